@@ -0,0 +1,31 @@
+package com.mamarino.puzzle.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of benchmarks.jar. With no arguments every suite runs with the GC profiler, so that
+ * gc.alloc.rate.norm (bytes allocated per operation) is reported next to the latency; otherwise
+ * the arguments are handed to the standard JMH command line (f.i. "TileClick -p dimension=5 -prof gc").
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    if (args.length > 0) {
+      Main.main(args);
+      return;
+    }
+
+    Options options = new OptionsBuilder()
+        .include(BenchmarkRunner.class.getPackage().getName() + ".*")
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,117 @@
+package com.mamarino.puzzle.benchmarks;
+
+import com.mamarino.puzzle.Pair;
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyVetoException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Move validation hot paths of {@code EightController}: the vetoable change (accepted and rejected),
+ * the adjacency check and the coordinate arithmetic that replaced {@code getNearHolePosition} and
+ * {@code getMatrixCoordinates}, and the victory check.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ControllerBenchmark {
+
+  @Param({"3", "4", "5"})
+  public int dimension;
+
+  private HeadlessGame game;
+  private HeadlessGame controllerOnly;
+  private BoardState board;
+  private Grid grid;
+
+  // moving the tile before the hole into it, and then back
+  private PropertyChangeEvent moveForward;
+  private PropertyChangeEvent moveBack;
+  private boolean forward;
+
+  // a tile far from the hole
+  private PropertyChangeEvent illegalMove;
+
+  private int position;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    HeadlessGame.discardConsole();
+
+    game = new HeadlessGame(dimension, true);
+    game.restartSolved();
+
+    // rejected moves are measured on the controller alone: every veto makes the tile flash
+    controllerOnly = new HeadlessGame(dimension, false);
+    controllerOnly.restartSolved();
+
+    int size = game.size;
+    moveForward = new PropertyChangeEvent(this, "tileLabelProperty",
+        new Pair<>(size - 1, size - 1), new Pair<>(size - 1, size));
+    moveBack = new PropertyChangeEvent(this, "tileLabelProperty",
+        new Pair<>(size, size - 1), new Pair<>(size, size));
+    illegalMove = new PropertyChangeEvent(this, "tileLabelProperty",
+        new Pair<>(1, 1), new Pair<>(1, size));
+    forward = true;
+
+    grid = Grid.of(dimension);
+    List<Integer> goal = new ArrayList<>();
+    for (int label = 1; label <= size; label++) goal.add(label);
+    board = new BoardState(goal);
+  }
+
+  @Benchmark
+  public void vetoableChangeAccepted() throws PropertyVetoException {
+    game.controller.vetoableChange(forward ? moveForward : moveBack);
+    forward = !forward;
+  }
+
+  @Benchmark
+  public boolean vetoableChangeRejected() {
+    try {
+      controllerOnly.controller.vetoableChange(illegalMove);
+      return true;
+    } catch (PropertyVetoException e) {
+      return false;
+    }
+  }
+
+  @Benchmark
+  public boolean canMove() {
+    position = position % game.size + 1;
+    return board.canMove(position);
+  }
+
+  @Benchmark
+  public void coordinates(Blackhole blackhole) {
+    position = position % game.size + 1;
+    blackhole.consume(grid.row(position - 1));
+    blackhole.consume(grid.col(position - 1));
+  }
+
+  @Benchmark
+  public boolean checkVictory() {
+    return game.controller.checkVictory();
+  }
+}
@@ -0,0 +1,61 @@
+package com.mamarino.puzzle.benchmarks;
+
+import com.mamarino.puzzle.Constants;
+import com.mamarino.puzzle.EightController;
+import com.mamarino.puzzle.EightTile;
+
+import java.beans.PropertyChangeSupport;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The beans wired together as {@code EightBoard.initGame} does, without the JFrame, so that the
+ * whole event chain can be driven headless.
+ */
+final class HeadlessGame {
+
+  final EightController controller = new EightController();
+  final List<EightTile> tiles = new ArrayList<>();
+  final int size;
+
+  private final PropertyChangeSupport boardChanges = new PropertyChangeSupport(this);
+
+  /**
+   * @param dimension number of rows (and columns) of the board
+   * @param withTiles whether the tiles are created and registered to the controller
+   */
+  HeadlessGame(int dimension, boolean withTiles) {
+    this.size = dimension * dimension;
+
+    if (withTiles) {
+      for (int i = 0; i < size; i++) {
+        EightTile tile = new EightTile();
+        tile.setPosition(i + 1);
+        tile.addVetoableChangeListener(controller);
+        boardChanges.addPropertyChangeListener(tile);
+        controller.addTileListener(i + 1, tile);
+        tiles.add(tile);
+      }
+    }
+    boardChanges.addPropertyChangeListener(controller);
+  }
+
+  /**
+   * it deals the goal board: the hole is in the last position, next to position size - 1
+   */
+  void restartSolved() {
+    List<Integer> permutation = new ArrayList<>();
+    for (int label = 1; label <= size; label++) permutation.add(label);
+    boardChanges.firePropertyChange(Constants.RESTART_EVT, new ArrayList<>(), permutation);
+  }
+
+  /**
+   * the beans no longer log moves on the console, but anything still printed (f.i. by a journal
+   * error) is thrown away so that the benchmark log stays readable
+   */
+  static void discardConsole() {
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+  }
+}
@@ -0,0 +1,77 @@
+package com.mamarino.puzzle.benchmarks;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.solver.AStarSolver;
+import com.mamarino.puzzle.solver.BidirectionalBfsSolver;
+import com.mamarino.puzzle.solver.IdaStarSolver;
+import com.mamarino.puzzle.solver.Solution;
+import com.mamarino.puzzle.solver.Solver;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Optimal solvers on a fixed set of boards, scrambled by a seeded random walk from the goal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SolverBenchmark {
+
+  private static final int BOARDS = 64;
+
+  @Param({"3", "4"})
+  public int dimension;
+
+  @Param({"ida", "astar", "bfs"})
+  public String algorithm;
+
+  @Param({"30"})
+  public int scramble;
+
+  private Solver solver;
+  private long[] boards;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Grid grid = Grid.of(dimension);
+    solver = algorithm.equals("astar") ? new AStarSolver(grid)
+        : algorithm.equals("bfs") ? new BidirectionalBfsSolver(grid)
+        : new IdaStarSolver(grid);
+
+    Random random = new Random(42);
+    boards = new long[BOARDS];
+    for (int i = 0; i < BOARDS; i++) {
+      BoardState board = new BoardState(grid, grid.goal());
+      for (int step = 0; step < scramble; step++) {
+        int hole = board.getHolePosition() - 1;
+        board.move(grid.neighbour(hole, random.nextInt(grid.neighbourCount(hole))) + 1);
+      }
+      boards[i] = board.getPacked();
+    }
+  }
+
+  @Benchmark
+  public Solution solve() {
+    next = (next + 1) % BOARDS;
+    return solver.solve(boards[next]);
+  }
+}
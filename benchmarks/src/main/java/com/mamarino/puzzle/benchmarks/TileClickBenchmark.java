@@ -0,0 +1,60 @@
+package com.mamarino.puzzle.benchmarks;
+
+import com.mamarino.puzzle.EightTile;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full round trip of an accepted click: {@code EightTile.onClick} -> {@code setLabel} ->
+ * {@code VetoableChangeSupport} -> {@code EightController.vetoableChange} -> {@code SET_LABEL_EVT}
+ * to the tile at the hole position -> repaint of the two tiles involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TileClickBenchmark {
+
+  @Param({"3", "4", "5"})
+  public int dimension;
+
+  private HeadlessGame game;
+  private EightTile beforeLast;
+  private EightTile last;
+  private boolean forward;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    HeadlessGame.discardConsole();
+
+    game = new HeadlessGame(dimension, true);
+    game.restartSolved();
+    beforeLast = game.tiles.get(game.size - 2);
+    last = game.tiles.get(game.size - 1);
+    forward = true;
+  }
+
+  /**
+   * the hole goes back and forth between the last two positions, so that every click is legal
+   */
+  @Benchmark
+  public void click() {
+    (forward ? beforeLast : last).onClick();
+    forward = !forward;
+  }
+}
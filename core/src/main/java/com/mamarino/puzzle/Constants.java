@@ -0,0 +1,17 @@
+package com.mamarino.puzzle;
+
+public class Constants {
+    // default board dimension (3x3); boards from 2x2 up to Grid.MAX_DIM are supported
+    public static final Integer DEFAULT_DIM = 3;
+    // label of the hole on the default board; on a dim x dim board the hole is hole(dim)
+    public static final Integer HOLE = hole(DEFAULT_DIM);
+    public static final Integer ERR_DURATION = 500;
+    public static final String RESTART_EVT = "restartEvent";
+    public static final String FLIP_EVT = "flipEvent";
+    public static final String SET_LABEL_EVT = "setLabelEvent";
+    public static final String HINT_EVT = "hintEvent";
+
+    public static int hole(int dim) {
+        return dim * dim;
+    }
+}
@@ -0,0 +1,322 @@
+package com.mamarino.puzzle.batch;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.PatternDatabase;
+import com.mamarino.puzzle.core.PermutationFormat;
+import com.mamarino.puzzle.solver.AStarSolver;
+import com.mamarino.puzzle.solver.BidirectionalBfsSolver;
+import com.mamarino.puzzle.solver.IdaStarSolver;
+import com.mamarino.puzzle.solver.Solution;
+import com.mamarino.puzzle.solver.Solver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Offline solver for large corpora of boards. Boards are read one per line, in the same text form
+ * of the {@code RESTART_EVT} permutation (see {@link PermutationFormat}), in chunks of fixed size:
+ * each chunk is split across a {@link ForkJoinPool} while the previous one is written out and the
+ * next one is read, so memory stays bounded whatever the size of the input.
+ * <p>
+ * Every worker thread owns its {@link Solver} (and therefore its search buffers) and its
+ * {@link WorkerStats}: workers share no mutable state.
+ * <p>
+ * Output lines are "board TAB status TAB length TAB moves", in the same order of the input; a flip
+ * is written as F. With flips enabled every board is solvable, and the length is the cost of the solution.
+ */
+public class BatchSolver implements AutoCloseable {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+  // boards solved by a leaf task, below this size a task is not split any further
+  private static final int LEAF_SIZE = 64;
+
+  private final Grid grid;
+  private final ForkJoinPool pool;
+  private final int chunkSize;
+  private final ThreadLocal<Solver> solvers;
+  private final ThreadLocal<WorkerStats> stats = new ThreadLocal<>();
+  // stats of the workers of the current run: workers retired by the pool keep theirs in earlier runs only
+  private volatile Queue<WorkerStats> runStats = new ConcurrentLinkedQueue<>();
+  private volatile int run;
+
+  /**
+   * @param grid geometry of the boards to be solved, up to 4x4
+   * @param solverFactory creates the solver of each worker thread
+   * @param parallelism number of worker threads
+   * @param chunkSize number of boards read (and kept in memory) at a time
+   */
+  public BatchSolver(Grid grid, Function<Grid, Solver> solverFactory, int parallelism, int chunkSize) {
+    if (!grid.isPackable()) throw new IllegalArgumentException(grid + " boards are not supported.");
+
+    this.grid = grid;
+    this.pool = new ForkJoinPool(parallelism);
+    this.chunkSize = chunkSize;
+    this.solvers = ThreadLocal.withInitial(() -> solverFactory.apply(grid));
+  }
+
+  public BatchSolver(Grid grid, Function<Grid, Solver> solverFactory) {
+    this(grid, solverFactory, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * it solves every board read from 'in' and writes one result line per board to 'out'
+   * @param in boards, one per line; blank lines are skipped
+   * @param out results
+   * @return statistics of the run
+   * @throws IOException when reading or writing fails
+   */
+  public Report run(BufferedReader in, Writer out) throws IOException {
+    // workers are idle between runs: each one registers new stats on its first board of this run
+    Queue<WorkerStats> workers = new ConcurrentLinkedQueue<>();
+    runStats = workers;
+    run++;
+    long start = System.nanoTime();
+    long boards = 0;
+
+    Chunk current = new Chunk(chunkSize);
+    Chunk previous = new Chunk(chunkSize);
+    ForkJoinTask<?> running = null;
+
+    while (true) {
+      current.read(in);
+      if (current.size == 0) break;
+
+      ForkJoinTask<?> task = pool.submit(new SolveTask(current, 0, current.size));
+
+      // the previous chunk is written while the current one is being solved
+      if (running != null) {
+        running.join();
+        previous.write(out);
+      }
+
+      boards += current.size;
+      running = task;
+
+      Chunk swap = previous;
+      previous = current;
+      current = swap;
+    }
+
+    if (running != null) {
+      running.join();
+      previous.write(out);
+    }
+    out.flush();
+
+    return new Report(boards, System.nanoTime() - start, new ArrayList<>(workers));
+  }
+
+  @Override
+  public void close() {
+    pool.shutdown();
+  }
+
+  /**
+   * usage: BatchSolver input output [dimension] [threads] [ida|astar|bfs] [flipCost] [patternFile]
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) usage(null);
+
+    int dimension = args.length > 2 ? Integer.parseInt(args[2]) : Grid.DEFAULT.getDimension();
+    // checked before any input is read or any worker started
+    if (dimension < Grid.MIN_DIM || dimension * dimension > Grid.MAX_PACKED_SIZE) {
+      usage(dimension + "x" + dimension + " boards are not supported, the dimension must be between "
+          + Grid.MIN_DIM + " and 4");
+    }
+    Grid grid = Grid.of(dimension);
+    int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+    String algorithm = args.length > 4 ? args[4] : "ida";
+    int flipCost = args.length > 5 ? Integer.parseInt(args[5]) : Solver.NO_FLIPS;
+    Path patternFile = args.length > 6 ? Paths.get(args[6]) : null;
+    if (patternFile != null && !Files.exists(patternFile) && !PatternDatabase.hasDefaultPatterns(grid)) {
+      usage(patternFile + " does not exist, and there are no default patterns for " + grid + " boards");
+    }
+    // computed on the first run, then mapped and shared by every worker
+    PatternDatabase patterns = patternFile != null ? PatternDatabase.loadOrCreate(patternFile, grid) : null;
+    Function<Grid, Solver> algorithmFactory = algorithm.equals("astar") ? AStarSolver::new
+        : algorithm.equals("bfs") ? BidirectionalBfsSolver::new
+        : IdaStarSolver::new;
+    Function<Grid, Solver> factory = solverGrid -> {
+      Solver solver = algorithmFactory.apply(solverGrid);
+      solver.setFlipCost(flipCost);
+      solver.setPatternDatabase(patterns);
+      return solver;
+    };
+
+    try (BatchSolver batch = new BatchSolver(grid, factory, threads, DEFAULT_CHUNK_SIZE);
+         BufferedReader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+         BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+      System.out.println(batch.run(in, out));
+    }
+  }
+
+  /**
+   * it prints the usage, after 'error' if any, and exits
+   */
+  private static void usage(String error) {
+    if (error != null) System.err.println("BatchSolver: " + error);
+    System.err.println("usage: BatchSolver input output [dimension] [threads] [ida|astar|bfs] [flipCost] [patternFile]");
+    System.exit(1);
+  }
+
+  private void solve(Chunk chunk, int index) {
+    try {
+      chunk.boards[index] = PermutationFormat.parse(chunk.lines[index], grid);
+    } catch (IllegalArgumentException e) {
+      chunk.results[index] = null;
+      return;
+    }
+
+    Solution solution = solvers.get().solve(chunk.boards[index]);
+    chunk.results[index] = solution;
+    workerStats().record(solution.isSolved(), solution.getNodesExpanded(), solution.getElapsedNanos());
+  }
+
+  /**
+   * @return stats of the calling worker in the current run
+   */
+  private WorkerStats workerStats() {
+    WorkerStats workerStats = stats.get();
+    if (workerStats == null || workerStats.getRun() != run) {
+      workerStats = new WorkerStats(Thread.currentThread().getName(), run);
+      stats.set(workerStats);
+      runStats.add(workerStats);
+    }
+    return workerStats;
+  }
+
+  private final class SolveTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Chunk chunk;
+    private final int from;
+    private final int to;
+
+    SolveTask(Chunk chunk, int from, int to) {
+      this.chunk = chunk;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= LEAF_SIZE) {
+        for (int i = from; i < to; i++) solve(chunk, i);
+        return;
+      }
+
+      int middle = (from + to) >>> 1;
+      invokeAll(new SolveTask(chunk, from, middle), new SolveTask(chunk, middle, to));
+    }
+  }
+
+  /**
+   * boards read at a time, together with their results
+   */
+  private static final class Chunk {
+
+    final String[] lines;
+    final long[] boards;
+    final Solution[] results;
+    int size;
+
+    Chunk(int capacity) {
+      lines = new String[capacity];
+      boards = new long[capacity];
+      results = new Solution[capacity];
+    }
+
+    void read(BufferedReader in) throws IOException {
+      size = 0;
+      String line;
+      while (size < lines.length && (line = in.readLine()) != null) {
+        line = line.trim();
+        if (!line.isEmpty()) lines[size++] = line;
+      }
+    }
+
+    void write(Writer out) throws IOException {
+      StringBuilder builder = new StringBuilder(128);
+
+      for (int i = 0; i < size; i++) {
+        builder.setLength(0);
+        builder.append(lines[i]).append('\t');
+
+        Solution solution = results[i];
+        if (solution == null) {
+          builder.append("INVALID");
+        } else {
+          builder.append(solution.getStatus()).append('\t').append(solution.getCost()).append('\t');
+          int[] moves = solution.getMoves();
+          for (int m = 0; m < moves.length; m++) {
+            if (m > 0) builder.append(' ');
+            if (moves[m] == BoardState.FLIP) builder.append('F');
+            else builder.append(moves[m]);
+          }
+        }
+
+        builder.append('\n');
+        out.append(builder);
+        results[i] = null;
+      }
+    }
+  }
+
+  /**
+   * Statistics of a {@link #run(BufferedReader, Writer)}
+   */
+  public static final class Report {
+
+    private final long boards;
+    private final long elapsedNanos;
+    private final List<WorkerStats> workers;
+
+    Report(long boards, long elapsedNanos, List<WorkerStats> workers) {
+      this.boards = boards;
+      this.elapsedNanos = elapsedNanos;
+      this.workers = workers;
+    }
+
+    public long getBoards() {
+      return boards;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getBoardsPerSecond() {
+      return elapsedNanos == 0 ? 0 : boards * 1e9 / elapsedNanos;
+    }
+
+    public List<WorkerStats> getWorkers() {
+      return workers;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder(String.format("%d boards in %d ms, %.0f boards/s",
+          boards, elapsedNanos / 1_000_000, getBoardsPerSecond()));
+      for (WorkerStats worker : workers) builder.append('\n').append("  ").append(worker);
+      return builder.toString();
+    }
+  }
+}
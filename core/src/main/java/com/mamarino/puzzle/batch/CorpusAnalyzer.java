@@ -0,0 +1,250 @@
+package com.mamarino.puzzle.batch;
+
+import com.mamarino.puzzle.core.DistanceTable;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.Heuristics;
+import com.mamarino.puzzle.core.PermutationFormat;
+import com.mamarino.puzzle.solver.IdaStarSolver;
+import com.mamarino.puzzle.solver.Solution;
+import com.mamarino.puzzle.solver.Solver;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streaming analysis of board corpora of any size. Boards are read through a {@link MappedBoardReader}
+ * (text or packed binary) and, for each of them, the analyzer computes:
+ * <ul>
+ *   <li>solvability with regular moves only;</li>
+ *   <li>optimal length: a {@link DistanceTable} lookup on 3x3 boards, an {@link IdaStarSolver} run otherwise;</li>
+ *   <li>flip distance, the optimal cost when flips are allowed (costing 1 as a move): every board
+ *   reaches the goal with flips, so this is how far the unsolvable ones are. It is a lookup in a
+ *   flips {@link DistanceTable} on 3x3 boards, and it is not computed on the other grids;</li>
+ *   <li>misplaced tiles, manhattan distance and linear conflict penalty.</li>
+ * </ul>
+ * Rows "board TAB solvable TAB length TAB flipDistance TAB misplaced TAB manhattan TAB linearConflict"
+ * (-1 where a value does not apply, INVALID after a line that is not a board) go through a
+ * {@link RowWriter}, and the aggregates (depth histograms, heuristic means) are kept in fixed arrays:
+ * memory does not depend on the size of the input.
+ */
+public class CorpusAnalyzer {
+
+  // optimal lengths of packable boards are far below this (80 moves at most on 4x4 boards)
+  private static final int MAX_DEPTH = 128;
+
+  private final Grid grid;
+  private final DistanceTable distances;
+  private final DistanceTable flipDistances;
+  private final Solver solver;
+
+  /**
+   * @param grid geometry of the boards, up to 4x4
+   */
+  public CorpusAnalyzer(Grid grid) {
+    if (!grid.isPackable()) throw new UnsupportedOperationException(grid + " boards cannot be packed.");
+
+    this.grid = grid;
+    boolean table = grid.equals(Grid.DEFAULT);
+    this.distances = table ? DistanceTable.loadDefault(DistanceTable.NO_FLIPS) : null;
+    this.flipDistances = table ? DistanceTable.loadDefault(1) : null;
+    this.solver = table ? null : new IdaStarSolver(grid);
+  }
+
+  /**
+   * it analyzes every board of 'input'
+   * @param input board file
+   * @param binary true -> packed boards; false -> text
+   * @param output destination of the per-board rows, null for the aggregates only
+   * @return aggregates of the run
+   * @throws IOException when reading or writing fails
+   */
+  public Report analyze(Path input, boolean binary, Path output) throws IOException {
+    Report report = new Report(grid);
+    long start = System.nanoTime();
+
+    try (MappedBoardReader reader = new MappedBoardReader(input, grid, binary);
+         RowWriter rows = output == null ? null : new RowWriter(FileChannel.open(output,
+             StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+      StringBuilder text = new StringBuilder(64);
+
+      while (reader.next()) {
+        if (!reader.isValid()) {
+          report.invalid++;
+          if (rows != null) rows.append(binary ? Long.toHexString(reader.getBoard()) : reader.getLine()).append("\tINVALID").endRow();
+          continue;
+        }
+
+        long board = reader.getBoard();
+        boolean solvable = grid.isSolvable(board);
+        int length = solvable ? length(board) : -1;
+        int flipDistance = flipDistances == null ? -1 : flipDistances.distance(board);
+        int misplaced = Heuristics.misplaced(grid, board);
+        int manhattan = Heuristics.manhattan(grid, board);
+        int linearConflict = Heuristics.linearConflict(grid, board);
+
+        report.record(solvable, length, flipDistance, misplaced, manhattan, linearConflict);
+
+        if (rows != null) {
+          text.setLength(0);
+          rows.append(binary ? PermutationFormat.format(board, grid, text) : reader.getLine())
+              .append('\t').append(solvable ? "true" : "false")
+              .append('\t').append(length)
+              .append('\t').append(flipDistance)
+              .append('\t').append(misplaced)
+              .append('\t').append(manhattan)
+              .append('\t').append(linearConflict)
+              .endRow();
+        }
+      }
+      report.bytes = reader.getOffset();
+    }
+
+    report.elapsedNanos = System.nanoTime() - start;
+    return report;
+  }
+
+  /**
+   * usage: CorpusAnalyzer input [output|-] [dimension] [text|binary]
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("usage: CorpusAnalyzer input [output|-] [dimension] [text|binary]");
+      System.exit(1);
+    }
+
+    Path output = args.length > 1 && !args[1].equals("-") ? Paths.get(args[1]) : null;
+    Grid grid = Grid.of(args.length > 2 ? Integer.parseInt(args[2]) : Grid.DEFAULT.getDimension());
+    boolean binary = args.length > 3 && args[3].equals("binary");
+
+    System.out.println(new CorpusAnalyzer(grid).analyze(Paths.get(args[0]), binary, output));
+  }
+
+  private int length(long board) {
+    if (distances != null) return distances.distance(board);
+
+    Solution solution = solver.solve(board);
+    return solution.getLength();
+  }
+
+  /**
+   * Aggregates of an {@link #analyze(Path, boolean, Path)} run
+   */
+  public static final class Report {
+
+    private final Grid grid;
+    private final long[] depths = new long[MAX_DEPTH];
+    private final long[] flipDepths = new long[MAX_DEPTH];
+    private long boards;
+    private long invalid;
+    private long solvable;
+    private long misplaced;
+    private long manhattan;
+    private long linearConflict;
+    private long bytes;
+    private long elapsedNanos;
+
+    Report(Grid grid) {
+      this.grid = grid;
+    }
+
+    void record(boolean isSolvable, int length, int flipDistance, int misplacedTiles, int manhattanDistance, int conflicts) {
+      boards++;
+      if (isSolvable) solvable++;
+      if (length >= 0) depths[length]++;
+      if (flipDistance >= 0) flipDepths[flipDistance]++;
+      misplaced += misplacedTiles;
+      manhattan += manhattanDistance;
+      linearConflict += conflicts;
+    }
+
+    /**
+     * @return valid boards analyzed
+     */
+    public long getBoards() {
+      return boards;
+    }
+
+    public long getInvalid() {
+      return invalid;
+    }
+
+    public long getSolvable() {
+      return solvable;
+    }
+
+    /**
+     * @return number of boards by optimal length (index), up to the longest one found
+     */
+    public long[] getDepthHistogram() {
+      return trim(depths);
+    }
+
+    /**
+     * @return number of boards by flip distance (index), up to the farthest one found; empty when not computed
+     */
+    public long[] getFlipDepthHistogram() {
+      return trim(flipDepths);
+    }
+
+    public double getMeanMisplaced() {
+      return mean(misplaced);
+    }
+
+    public double getMeanManhattan() {
+      return mean(manhattan);
+    }
+
+    public double getMeanLinearConflict() {
+      return mean(linearConflict);
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getBoardsPerSecond() {
+      return elapsedNanos == 0 ? 0 : (boards + invalid) * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder(String.format(
+          "%s: %d boards (%d solvable, %d invalid), %d bytes in %d ms, %.0f boards/s",
+          grid, boards, solvable, invalid, bytes, elapsedNanos / 1_000_000, getBoardsPerSecond()));
+      builder.append(String.format("%n  mean misplaced %.2f, manhattan %.2f, linear conflict %.2f",
+          getMeanMisplaced(), getMeanManhattan(), getMeanLinearConflict()));
+
+      appendHistogram(builder, "length", getDepthHistogram());
+      appendHistogram(builder, "flip distance", getFlipDepthHistogram());
+      return builder.toString();
+    }
+
+    private double mean(long sum) {
+      return boards == 0 ? 0 : (double) sum / boards;
+    }
+
+    private static long[] trim(long[] histogram) {
+      int length = histogram.length;
+      while (length > 0 && histogram[length - 1] == 0) length--;
+      return Arrays.copyOf(histogram, length);
+    }
+
+    private static void appendHistogram(StringBuilder builder, String name, long[] histogram) {
+      if (histogram.length == 0) return;
+
+      builder.append(String.format("%n  %s:", name));
+      for (int depth = 0; depth < histogram.length; depth++) {
+        if (histogram[depth] > 0) builder.append(String.format("%n    %3d %d", depth, histogram[depth]));
+      }
+    }
+  }
+}
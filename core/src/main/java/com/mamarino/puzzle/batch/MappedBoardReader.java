@@ -0,0 +1,224 @@
+package com.mamarino.puzzle.batch;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.PermutationFormat;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader of a board file of any size, mapped a window ({@link #WINDOW_SIZE} bytes by
+ * default) at a time: memory stays the same whatever the size of the file, and boards are parsed straight from
+ * the mapped bytes, with no String and no boxing.
+ * <p>
+ * Two formats are read:
+ * <ul>
+ *   <li>text: one board per line in the {@link PermutationFormat} text form; blank lines are skipped;</li>
+ *   <li>binary: one packed board (see {@link BoardState#getPacked()}) per 8 bytes, big-endian, no header.</li>
+ * </ul>
+ * A reader is not thread-safe.
+ */
+final class MappedBoardReader implements AutoCloseable {
+
+  static final long WINDOW_SIZE = 1L << 26;
+
+  private final FileChannel channel;
+  private final long size;
+  private final Grid grid;
+  private final boolean binary;
+  private final long windowSize;
+  private final ByteSequence line = new ByteSequence();
+
+  private MappedByteBuffer window;
+  // file offset of the window, and offset of the next record inside it
+  private long windowStart;
+  private int position;
+
+  private long board;
+  private boolean valid;
+
+  /**
+   * @param file board file
+   * @param grid geometry of the boards, up to 4x4
+   * @param binary true -> packed boards; false -> text
+   * @throws IOException when the file cannot be opened
+   */
+  MappedBoardReader(Path file, Grid grid, boolean binary) throws IOException {
+    this(file, grid, binary, WINDOW_SIZE);
+  }
+
+  /**
+   * @param windowSize bytes mapped at a time, at least a packed board; a text line, newline included,
+   *                   must fit in a window
+   */
+  MappedBoardReader(Path file, Grid grid, boolean binary, long windowSize) throws IOException {
+    if (!grid.isPackable()) throw new UnsupportedOperationException(grid + " boards cannot be packed.");
+    if (windowSize < Long.BYTES || windowSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Window size must be between " + Long.BYTES + " and " + Integer.MAX_VALUE + " bytes.");
+    }
+
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.size = channel.size();
+    this.grid = grid;
+    this.binary = binary;
+    this.windowSize = windowSize;
+    map(0);
+  }
+
+  /**
+   * it moves to the next board
+   * @return boolean: true -> a board has been read; false -> the end of the file has been reached
+   * @throws IOException when the file cannot be mapped or a line is longer than a window
+   */
+  boolean next() throws IOException {
+    return binary ? nextPacked() : nextLine();
+  }
+
+  /**
+   * @return packed board just read; meaningful only when {@link #isValid()}
+   */
+  long getBoard() {
+    return board;
+  }
+
+  /**
+   * @return boolean: true -> the record just read is a permutation of the grid labels; not otherwise
+   */
+  boolean isValid() {
+    return valid;
+  }
+
+  /**
+   * @return text of the line just read, valid until the next call of {@link #next()}; null with binary files
+   */
+  CharSequence getLine() {
+    return binary ? null : line;
+  }
+
+  /**
+   * @return file offset of the next record
+   */
+  long getOffset() {
+    return windowStart + position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private boolean nextPacked() throws IOException {
+    if (getOffset() + Long.BYTES > size) return false;
+    if (position + Long.BYTES > window.limit()) map(getOffset());
+
+    board = window.getLong(position);
+    position += Long.BYTES;
+    valid = isPermutation(board);
+    return true;
+  }
+
+  private boolean nextLine() throws IOException {
+    while (getOffset() < size) {
+      int end = lineEnd();
+      if (end < 0) {
+        // the line crosses the window: the next window starts with it
+        if (position == 0) throw new IOException("Line longer than " + windowSize + " bytes at offset " + windowStart);
+        map(getOffset());
+        continue;
+      }
+
+      int start = position;
+      position = end < window.limit() ? end + 1 : end;
+      if (isBlank(start, end)) continue;
+
+      line.set(window, start, end);
+      try {
+        board = PermutationFormat.parse(line, grid);
+        valid = true;
+      } catch (IllegalArgumentException e) {
+        valid = false;
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return index of the newline ending the current line, the window limit when the line is the last
+   *         one of the file, -1 when the line goes on in the next window
+   */
+  private int lineEnd() {
+    for (int i = position; i < window.limit(); i++) {
+      if (window.get(i) == '\n') return i;
+    }
+    return windowStart + window.limit() == size ? window.limit() : -1;
+  }
+
+  private boolean isBlank(int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (window.get(i) > ' ') return false;
+    }
+    return true;
+  }
+
+  private boolean isPermutation(long packed) {
+    int n = grid.getSize();
+    if (n < Grid.MAX_PACKED_SIZE && (packed >>> (4 * n)) != 0) return false;
+
+    int seen = 0;
+    for (int i = 0; i < n; i++) {
+      int label = BoardState.labelAt(packed, i);
+      if (label > n || (seen & (1 << label)) != 0) return false;
+      seen |= 1 << label;
+    }
+    return true;
+  }
+
+  private void map(long offset) throws IOException {
+    windowStart = offset;
+    position = 0;
+    window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+  }
+
+  /**
+   * ASCII bytes of a mapped window seen as characters, so that lines can be parsed in place
+   */
+  private static final class ByteSequence implements CharSequence {
+
+    private MappedByteBuffer buffer;
+    private int start;
+    private int end;
+
+    void set(MappedByteBuffer buffer, int start, int end) {
+      this.buffer = buffer;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (buffer.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return toString().substring(from, to);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder(length());
+      for (int i = start; i < end; i++) builder.append((char) (buffer.get(i) & 0xFF));
+      return builder.toString();
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.mamarino.puzzle.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Backpressured ASCII writer: rows are encoded into a fixed pool of buffers, and full buffers are
+ * written to the channel by a dedicated thread. When the channel is slower than the producer every
+ * buffer ends up queued and {@link #append(char)} blocks until one is written: memory is bounded by
+ * BUFFERS * BUFFER_SIZE, whatever the number of rows.
+ * <p>
+ * A write error stops the writing thread, which then just recycles the buffers, and it is thrown by
+ * the next {@link #endRow()} or by {@link #close()}. A writer must be filled by one thread.
+ */
+final class RowWriter implements AutoCloseable {
+
+  static final int BUFFER_SIZE = 1 << 16;
+  static final int BUFFERS = 8;
+
+  // queued after the last buffer, it stops the writing thread
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  private final WritableByteChannel channel;
+  private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFERS);
+  private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(BUFFERS + 1);
+  private final Thread thread;
+
+  private ByteBuffer current;
+  private volatile IOException failure;
+
+  /**
+   * @param channel destination of the rows, closed by {@link #close()}
+   */
+  RowWriter(WritableByteChannel channel) {
+    this.channel = channel;
+    for (int i = 0; i < BUFFERS; i++) free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+    this.current = free.poll();
+
+    this.thread = new Thread(this::drain, "row-writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  RowWriter append(char c) throws IOException {
+    if (!current.hasRemaining()) flip();
+    current.put((byte) c);
+    return this;
+  }
+
+  RowWriter append(CharSequence text) throws IOException {
+    for (int i = 0; i < text.length(); i++) append(text.charAt(i));
+    return this;
+  }
+
+  RowWriter append(long value) throws IOException {
+    if (value < 0) {
+      append('-');
+      value = -value;
+    }
+
+    long divisor = 1;
+    while (value / divisor >= 10) divisor *= 10;
+    for (; divisor > 0; divisor /= 10) append((char) ('0' + value / divisor % 10));
+    return this;
+  }
+
+  /**
+   * it ends the current row with a newline
+   * @throws IOException when the writing thread has failed
+   */
+  void endRow() throws IOException {
+    append('\n');
+    if (failure != null) throw failure;
+  }
+
+  /**
+   * it writes the rows still buffered, waits for the writing thread and closes the channel
+   * @throws IOException when a write has failed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (current.position() > 0) flip();
+      full.put(END);
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing rows.", e);
+    } finally {
+      channel.close();
+    }
+
+    if (failure != null) throw failure;
+  }
+
+  /**
+   * it queues the current buffer and takes a free one, waiting for it when all of them are queued
+   */
+  private void flip() throws IOException {
+    try {
+      current.flip();
+      full.put(current);
+      current = free.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing rows.", e);
+    }
+  }
+
+  private void drain() {
+    try {
+      while (true) {
+        ByteBuffer buffer = full.take();
+        if (buffer == END) return;
+
+        try {
+          while (failure == null && buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+          failure = e;
+        }
+
+        buffer.clear();
+        free.add(buffer);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.mamarino.puzzle.batch;
+
+/**
+ * Counters of a single batch worker thread. They are only written by the owning worker;
+ * reading them is safe once the batch is over.
+ */
+public final class WorkerStats {
+
+  private final String worker;
+  private final int run;
+  private long boards;
+  private long solved;
+  private long nodesExpanded;
+  private long busyNanos;
+
+  WorkerStats(String worker, int run) {
+    this.worker = worker;
+    this.run = run;
+  }
+
+  void record(boolean isSolved, long nodes, long nanos) {
+    boards++;
+    if (isSolved) solved++;
+    nodesExpanded += nodes;
+    busyNanos += nanos;
+  }
+
+  public String getWorker() {
+    return worker;
+  }
+
+  /**
+   * @return number of the {@link BatchSolver} run the counters belong to
+   */
+  int getRun() {
+    return run;
+  }
+
+  public long getBoards() {
+    return boards;
+  }
+
+  public long getSolved() {
+    return solved;
+  }
+
+  public long getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  public long getBusyNanos() {
+    return busyNanos;
+  }
+
+  /**
+   * @return boards solved per second of actual work of this worker
+   */
+  public double getBoardsPerSecond() {
+    return busyNanos == 0 ? 0 : boards * 1e9 / busyNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %d boards (%d solved), %.0f boards/s, %d nodes",
+        worker, boards, solved, getBoardsPerSecond(), nodesExpanded);
+  }
+}
@@ -0,0 +1,182 @@
+package com.mamarino.puzzle.core;
+
+import com.mamarino.puzzle.metrics.GameMetrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Board shared by several input sources (UI clicks, bots, remote players) with no lock: every change
+ * reads the current {@link BoardVersion}, computes the next packed board and installs it with a single
+ * compare-and-set, retrying when another source got there first. The result tells whether the change
+ * has been accepted ({@link BoardVersion#isAccepted()}), and the versions form one sequence, so every
+ * change is linearized at its successful compare-and-set.
+ * <p>
+ * Listeners see the versions in that order, one at a time. Each accepted version is linked to the one
+ * before it; after its compare-and-set a source delivers the versions not delivered yet, unless another
+ * source is already doing it, in which case that source delivers them too. No source ever waits for
+ * another one, and a listener is never called concurrently. Listeners should be quick, f.i. hand the
+ * version over to the EDT. A listener which throws is reported to {@link GameMetrics#listenerFailed(Exception)}
+ * and skipped for that version only: the others still get it, and the change stays accepted.
+ * <p>
+ * Only boards up to 4x4 (packable) are supported.
+ */
+public final class AtomicBoard {
+
+  public interface Listener {
+    /**
+     * @param version board after an accepted change
+     */
+    void boardChanged(BoardVersion version);
+  }
+
+  private final Grid grid;
+  private final AtomicReference<BoardVersion> current;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  private final AtomicBoolean delivering = new AtomicBoolean();
+  // last version delivered to the listeners, only written while 'delivering' is held
+  private volatile BoardVersion delivered;
+
+  /**
+   * @param grid geometry of the board, up to 4x4
+   * @param packed initial packed board
+   * @throws IllegalArgumentException when the boards of the grid do not fit in a long
+   */
+  public AtomicBoard(Grid grid, long packed) {
+    if (!grid.isPackable()) throw new IllegalArgumentException(grid + " boards are not supported.");
+
+    this.grid = grid;
+    BoardVersion initial = new BoardVersion(BoardVersion.Outcome.ACCEPTED, 0, packed, -1, BoardVersion.RESTART);
+    this.current = new AtomicReference<>(initial);
+    this.delivered = initial;
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @return the latest version of the board
+   */
+  public BoardVersion current() {
+    return current.get();
+  }
+
+  /**
+   * it moves the tile in 'position' into the hole, whatever the version of the board
+   * @param position 1-based position of the tile
+   * @return the new version, or {@link BoardVersion#REJECTED} when the tile is not next to the hole
+   */
+  public BoardVersion move(int position) {
+    while (true) {
+      BoardVersion version = current.get();
+      BoardVersion next = moved(version, position);
+      if (next == BoardVersion.REJECTED || install(version, next)) return next;
+    }
+  }
+
+  /**
+   * it moves the tile in 'position' into the hole, only if the board is still at 'expectedVersion':
+   * f.i. a bot which computed the move on that version
+   * @param position 1-based position of the tile
+   * @param expectedVersion version the move has been chosen on
+   * @return the new version, {@link BoardVersion#REJECTED} or {@link BoardVersion#STALE}
+   */
+  public BoardVersion move(int position, long expectedVersion) {
+    BoardVersion version = current.get();
+    if (version.getVersion() != expectedVersion) return BoardVersion.STALE;
+
+    BoardVersion next = moved(version, position);
+    if (next == BoardVersion.REJECTED) return next;
+    return install(version, next) ? next : BoardVersion.STALE;
+  }
+
+  /**
+   * it switches the tiles in position 1 and 2, if the hole is in the last position
+   * @return the new version, or {@link BoardVersion#REJECTED}
+   */
+  public BoardVersion flip() {
+    while (true) {
+      BoardVersion version = current.get();
+      long packed = version.getPacked();
+      if (!grid.canFlip(packed)) return BoardVersion.REJECTED;
+
+      BoardVersion next = new BoardVersion(BoardVersion.Outcome.ACCEPTED, version.getVersion() + 1,
+          BoardState.flip(packed), grid.getSize(), BoardState.FLIP);
+      if (install(version, next)) return next;
+    }
+  }
+
+  /**
+   * it deals a new board, whatever the current one
+   * @param packed new packed board
+   * @return the new version
+   */
+  public BoardVersion restart(long packed) {
+    while (true) {
+      BoardVersion version = current.get();
+      BoardVersion next = new BoardVersion(BoardVersion.Outcome.ACCEPTED, version.getVersion() + 1, packed, -1,
+          BoardVersion.RESTART);
+      if (install(version, next)) return next;
+    }
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * @return the version after the move, or REJECTED
+   */
+  private BoardVersion moved(BoardVersion version, int position) {
+    long packed = version.getPacked();
+    int hole = grid.holeIndex(packed);
+    int index = position - 1;
+    if (index < 0 || index >= grid.getSize() || !grid.isAdjacent(hole, index)) return BoardVersion.REJECTED;
+
+    return new BoardVersion(BoardVersion.Outcome.ACCEPTED, version.getVersion() + 1,
+        BoardState.swap(packed, hole, index), hole + 1, position);
+  }
+
+  /**
+   * @return boolean: true -> 'next' is the new version, and it has been published; false -> the board
+   *         is no longer at 'version'
+   */
+  private boolean install(BoardVersion version, BoardVersion next) {
+    if (!current.compareAndSet(version, next)) return false;
+
+    version.next = next;
+    deliver();
+    return true;
+  }
+
+  private void deliver() {
+    // a version linked after the holder has found no successor is delivered by the thread that linked it
+    while (delivered.next != null && delivering.compareAndSet(false, true)) {
+      try {
+        for (BoardVersion next = delivered.next; next != null; next = next.next) {
+          for (Listener listener : listeners) notify(listener, next);
+          delivered = next;
+        }
+      } finally {
+        delivering.set(false);
+      }
+    }
+  }
+
+  private static void notify(Listener listener, BoardVersion version) {
+    try {
+      listener.boardChanged(version);
+    } catch (RuntimeException e) {
+      // the version has been installed already: a failing listener must not undo it for the others
+      GameMetrics.listenerFailed(e);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.mamarino.puzzle.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Uniform random generator of solvable boards. A random permutation is drawn by unranking a uniform
+ * random rank (the Lehmer code digits are drawn one by one, so ranks never overflow); when it falls in
+ * the unsolvable half, the tiles 1 and 2 are switched: that flips the parity and maps the unsolvable
+ * half one-to-one onto the solvable one, so every solvable board has the same probability.
+ * <p>
+ * On 3x3 boards a {@link DistanceTable} can be supplied to deal boards at a chosen optimal distance
+ * from the goal.
+ * <p>
+ * A generator is not thread-safe: bulk generation should use one generator per thread.
+ */
+public final class BoardGenerator {
+
+  // ranks of the distance tables
+  private static final StateSpace TABLE_SPACE = StateSpace.full(Grid.DEFAULT);
+
+  private final Grid grid;
+  private final SplittableRandom random;
+  private final DistanceTable table;
+  // ranks of the 3x3 boards grouped by distance, built at the first request
+  private int[][] ranksByDistance;
+
+  public BoardGenerator(Grid grid) {
+    this(grid, new SplittableRandom(), null);
+  }
+
+  public BoardGenerator(Grid grid, long seed) {
+    this(grid, new SplittableRandom(seed), null);
+  }
+
+  /**
+   * @param table distance table of regular moves, used by {@link #next(int)}; only 3x3 boards can be generated
+   * @param seed random seed
+   * @throws IllegalArgumentException when the table allows flips: it would deal unsolvable boards too
+   */
+  public BoardGenerator(DistanceTable table, long seed) {
+    this(Grid.DEFAULT, new SplittableRandom(seed), table);
+    if (table.getFlipCost() != DistanceTable.NO_FLIPS) {
+      throw new IllegalArgumentException("A distance table without flips is required.");
+    }
+  }
+
+  private BoardGenerator(Grid grid, SplittableRandom random, DistanceTable table) {
+    this.grid = grid;
+    this.random = random;
+    this.table = table;
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @return packed random solvable board
+   * @throws UnsupportedOperationException when the boards of the grid do not fit in a long
+   */
+  public long next() {
+    if (!grid.isPackable()) throw new UnsupportedOperationException(grid + " boards cannot be packed.");
+
+    int size = grid.getSize();
+    long packed = 0L;
+    int used = 0;
+    int slot1 = 0;
+    int slot2 = 0;
+
+    for (int i = 0; i < size; i++) {
+      // Lehmer digit: take the digit-th label still available
+      int digit = random.nextInt(size - i);
+      int label = 1;
+      while (true) {
+        if ((used & (1 << label)) == 0 && digit-- == 0) break;
+        label++;
+      }
+
+      used |= 1 << label;
+      packed = BoardState.withLabel(packed, i, label);
+      if (label == 1) slot1 = i;
+      if (label == 2) slot2 = i;
+    }
+
+    return grid.isSolvable(packed) ? packed : BoardState.swap(packed, slot1, slot2);
+  }
+
+  /**
+   * it fills 'tiles' with a random solvable board of any size, without allocating
+   * @param tiles destination, labels by 0-based slot index; its length must be the grid size
+   */
+  public void next(byte[] tiles) {
+    int size = grid.getSize();
+    for (int i = 0; i < size; i++) tiles[i] = (byte) (i + 1);
+
+    // Fisher-Yates, the same Lehmer digits drawn from the end
+    for (int i = size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      byte label = tiles[i];
+      tiles[i] = tiles[j];
+      tiles[j] = label;
+    }
+
+    if (!grid.isSolvable(tiles)) {
+      int slot1 = -1;
+      int slot2 = -1;
+      for (int i = 0; i < size; i++) {
+        if (tiles[i] == 1) slot1 = i;
+        else if (tiles[i] == 2) slot2 = i;
+      }
+      tiles[slot1] = 2;
+      tiles[slot2] = 1;
+    }
+  }
+
+  /**
+   * @return random solvable board, same format fired with {@code RESTART_EVT}
+   */
+  public List<Integer> nextPermutation() {
+    byte[] tiles = new byte[grid.getSize()];
+    next(tiles);
+
+    List<Integer> permutation = new ArrayList<>(tiles.length);
+    for (byte label : tiles) permutation.add((int) label);
+    return permutation;
+  }
+
+  /**
+   * @param distance number of moves of the optimal solution of the board to be generated
+   * @return packed random 3x3 board, uniformly chosen among the ones at that distance from the goal
+   * @throws UnsupportedOperationException when the generator has no distance table
+   * @throws IllegalArgumentException when no board lies at that distance
+   */
+  public long next(int distance) {
+    if (table == null) throw new UnsupportedOperationException("A distance table is required.");
+    if (ranksByDistance == null) ranksByDistance = groupByDistance(table);
+
+    if (distance < 0 || distance >= ranksByDistance.length || ranksByDistance[distance].length == 0) {
+      throw new IllegalArgumentException("No board at distance " + distance + ".");
+    }
+
+    int[] ranks = ranksByDistance[distance];
+    return TABLE_SPACE.unrank(ranks[random.nextInt(ranks.length)]);
+  }
+
+  /**
+   * @return largest distance from the goal of a solvable 3x3 board
+   */
+  public int getMaxDistance() {
+    if (table == null) throw new UnsupportedOperationException("A distance table is required.");
+    if (ranksByDistance == null) ranksByDistance = groupByDistance(table);
+    return ranksByDistance.length - 1;
+  }
+
+  private static int[][] groupByDistance(DistanceTable table) {
+    int maxDistance = 0;
+    for (int rank = 0; rank < DistanceTable.COUNT; rank++) maxDistance = Math.max(maxDistance, table.distanceOfRank(rank));
+
+    int[] counts = new int[maxDistance + 1];
+    for (int rank = 0; rank < DistanceTable.COUNT; rank++) {
+      int distance = table.distanceOfRank(rank);
+      if (distance != DistanceTable.UNREACHABLE) counts[distance]++;
+    }
+
+    int[][] groups = new int[maxDistance + 1][];
+    for (int distance = 0; distance <= maxDistance; distance++) groups[distance] = new int[counts[distance]];
+
+    int[] filled = new int[maxDistance + 1];
+    for (int rank = 0; rank < DistanceTable.COUNT; rank++) {
+      int distance = table.distanceOfRank(rank);
+      if (distance != DistanceTable.UNREACHABLE) groups[distance][filled[distance]++] = rank;
+    }
+    return groups;
+  }
+}
@@ -0,0 +1,259 @@
+package com.mamarino.puzzle.core;
+
+import java.util.List;
+
+/**
+ * Compact board state for dim x dim boards: labels are kept in a byte per slot and the hole index
+ * is tracked directly, so validating and applying a move is just a bit of arithmetic, with no
+ * boxing and no allocation.
+ * <p>
+ * Boards up to 4x4 are also kept packed in a single {@code long}, 4 bits per slot (slot of
+ * position 1 in the lowest nibble, holding label - 1): the packed value ({@link #getPacked()})
+ * identifies a board uniquely and is the key shared by solvers and caches. The static helpers
+ * of this class work on such packed values.
+ * <p>
+ * Positions follow the same convention used by the beans: they go from 1 to dim * dim, row by row.
+ */
+public final class BoardState {
+
+  /** move code of a flip in a list of moves, next to the 1-based positions of the tiles clicked */
+  public static final int FLIP = 0;
+
+  private static final int CELL_BITS = 4;
+  private static final long CELL_MASK = 0xFL;
+
+  private final Grid grid;
+  private final byte[] tiles;
+  // 0-based index of the hole slot
+  private int hole;
+  // kept in sync with 'tiles' when the grid is packable
+  private long packed;
+
+  /**
+   * @param permutation labels from position 1 to dim * dim, same format fired with {@code RESTART_EVT}
+   */
+  public BoardState(List<Integer> permutation) {
+    this.grid = Grid.ofSize(permutation.size());
+    this.tiles = new byte[grid.getSize()];
+    set(permutation);
+  }
+
+  /**
+   * @param grid geometry of the board
+   * @param packed board packed as returned by {@link #getPacked()}
+   */
+  public BoardState(Grid grid, long packed) {
+    this.grid = grid;
+    this.tiles = new byte[grid.getSize()];
+    set(packed);
+  }
+
+  /**
+   * @param packed 3x3 board packed as returned by {@link #getPacked()}
+   */
+  public BoardState(long packed) {
+    this(Grid.DEFAULT, packed);
+  }
+
+  /**
+   * it replaces the whole board with the given permutation
+   * @param permutation labels from position 1 to dim * dim
+   */
+  public void set(List<Integer> permutation) {
+    if (permutation.size() != grid.getSize()) {
+      throw new IllegalArgumentException("Permutation must have exactly " + grid.getSize() + " values.");
+    }
+
+    for (int i = 0; i < tiles.length; i++) {
+      tiles[i] = permutation.get(i).byteValue();
+      if (tiles[i] == grid.getHole()) hole = i;
+    }
+    packed = grid.isPackable() ? pack(tiles) : 0L;
+  }
+
+  /**
+   * it replaces the whole board with the packed one
+   * @param packed board packed as returned by {@link #getPacked()}
+   */
+  public void set(long packed) {
+    checkPackable();
+
+    for (int i = 0; i < tiles.length; i++) tiles[i] = (byte) labelAt(packed, i);
+    this.packed = packed;
+    this.hole = grid.holeIndex(packed);
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @return board packed in a long, 4 bits per slot
+   * @throws UnsupportedOperationException when the board is larger than 4x4
+   */
+  public long getPacked() {
+    checkPackable();
+    return packed;
+  }
+
+  /**
+   * @param position integer position (1,...,dim * dim)
+   * @return label currently shown at 'position'
+   */
+  public int get(int position) {
+    return tiles[position - 1];
+  }
+
+  /**
+   * @return position (1,...,dim * dim) of the hole
+   */
+  public int getHolePosition() {
+    return hole + 1;
+  }
+
+  /**
+   * it checks whether the tile in 'position' lies next to the hole (top, left, right or bottom)
+   * @param position integer position (1,...,dim * dim)
+   * @return boolean: true -> the tile can be moved into the hole; not otherwise
+   */
+  public boolean canMove(int position) {
+    int index = position - 1;
+    if (index < 0 || index >= tiles.length)
+      return false;
+
+    return grid.isAdjacent(index, hole);
+  }
+
+  /**
+   * it moves the tile in 'position' into the hole, so that 'position' becomes the new hole
+   * @param position integer position (1,...,dim * dim)
+   * @return boolean: true -> the move has been applied; false -> the move is not legal and the board is untouched
+   */
+  public boolean move(int position) {
+    if (!canMove(position))
+      return false;
+
+    int index = position - 1;
+    switchSlots(index, hole);
+    hole = index;
+    return true;
+  }
+
+  /**
+   * it checks if the flip move is possible: the hole must be in the last position
+   * (therefore tiles in position 1 and 2 are not holes)
+   * @return boolean: true -> flip move is possible; not otherwise
+   */
+  public boolean canFlip() {
+    return hole == tiles.length - 1;
+  }
+
+  /**
+   * it switches tiles in position 1 and 2, if the flip move is possible
+   * @return boolean: true -> the flip has been applied; not otherwise
+   */
+  public boolean flip() {
+    if (!canFlip())
+      return false;
+
+    switchSlots(0, 1);
+    return true;
+  }
+
+  public boolean isSolved() {
+    if (grid.isPackable()) return packed == grid.goal();
+
+    for (int i = 0; i < tiles.length; i++) {
+      if (tiles[i] != i + 1) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < tiles.length; i++) {
+      if (i > 0) builder.append(grid.col(i) == 0 ? " | " : " ");
+      builder.append(tiles[i]);
+    }
+    return builder.toString();
+  }
+
+  private void switchSlots(int a, int b) {
+    byte label = tiles[a];
+    tiles[a] = tiles[b];
+    tiles[b] = label;
+
+    if (grid.isPackable()) packed = swap(packed, a, b);
+  }
+
+  private void checkPackable() {
+    if (!grid.isPackable()) throw new UnsupportedOperationException(grid + " boards cannot be packed.");
+  }
+
+  /**
+   * it packs a permutation into a single long, 4 bits per slot
+   * @param permutation labels from position 1 to dim * dim, with dim up to 4
+   * @return packed board
+   */
+  public static long pack(List<Integer> permutation) {
+    if (permutation.size() > Grid.MAX_PACKED_SIZE) {
+      throw new IllegalArgumentException("Permutation must have at most " + Grid.MAX_PACKED_SIZE + " values.");
+    }
+
+    long packed = 0L;
+    for (int i = 0; i < permutation.size(); i++) {
+      packed = withLabel(packed, i, permutation.get(i));
+    }
+    return packed;
+  }
+
+  private static long pack(byte[] tiles) {
+    long packed = 0L;
+    for (int i = 0; i < tiles.length; i++) {
+      packed = withLabel(packed, i, tiles[i]);
+    }
+    return packed;
+  }
+
+  /**
+   * @param packed packed board
+   * @param index 0-based slot index
+   * @return label stored in the slot
+   */
+  public static int labelAt(long packed, int index) {
+    return (int) ((packed >>> (index * CELL_BITS)) & CELL_MASK) + 1;
+  }
+
+  /**
+   * @param packed packed board
+   * @param index 0-based slot index
+   * @param label label to be stored in the slot
+   * @return packed board where the slot holds 'label'
+   */
+  public static long withLabel(long packed, int index, int label) {
+    int shift = index * CELL_BITS;
+    return (packed & ~(CELL_MASK << shift)) | ((long) (label - 1) << shift);
+  }
+
+  /**
+   * @param packed packed board whose hole is in the last slot (see {@link Grid#canFlip(long)})
+   * @return packed board where the tiles in position 1 and 2 are switched
+   */
+  public static long flip(long packed) {
+    return swap(packed, 0, 1);
+  }
+
+  /**
+   * @param packed packed board
+   * @param a 0-based slot index
+   * @param b 0-based slot index
+   * @return packed board where the labels of the two slots are switched
+   */
+  public static long swap(long packed, int a, int b) {
+    long labelA = (packed >>> (a * CELL_BITS)) & CELL_MASK;
+    long labelB = (packed >>> (b * CELL_BITS)) & CELL_MASK;
+    long diff = labelA ^ labelB;
+    return packed ^ ((diff << (a * CELL_BITS)) | (diff << (b * CELL_BITS)));
+  }
+}
@@ -0,0 +1,82 @@
+package com.mamarino.puzzle.core;
+
+/**
+ * Immutable state of an {@link AtomicBoard} after a change: the packed board, its version number and
+ * the change that produced it. The outcome of a rejected change is one of the shared {@link #REJECTED}
+ * and {@link #STALE} instances, which carry no board.
+ */
+public final class BoardVersion {
+
+  public enum Outcome {
+    /** the change has been applied and this is the board it produced */
+    ACCEPTED,
+    /** the change is not legal on the current board (tile not next to the hole, hole not in the last slot) */
+    REJECTED,
+    /** the board has changed since the version the change was meant for */
+    STALE
+  }
+
+  /** change code of a new board being dealt; moves are 1-based positions, flips {@link BoardState#FLIP} */
+  public static final int RESTART = -1;
+
+  public static final BoardVersion REJECTED = new BoardVersion(Outcome.REJECTED, -1, 0L, -1, 0);
+  public static final BoardVersion STALE = new BoardVersion(Outcome.STALE, -1, 0L, -1, 0);
+
+  private final Outcome outcome;
+  private final long version;
+  private final long packed;
+  private final int previousHole;
+  private final int change;
+
+  // following version, linked once it has been published: listeners are walked along these links
+  volatile BoardVersion next;
+
+  BoardVersion(Outcome outcome, long version, long packed, int previousHole, int change) {
+    this.outcome = outcome;
+    this.version = version;
+    this.packed = packed;
+    this.previousHole = previousHole;
+    this.change = change;
+  }
+
+  public Outcome getOutcome() {
+    return outcome;
+  }
+
+  public boolean isAccepted() {
+    return outcome == Outcome.ACCEPTED;
+  }
+
+  /**
+   * @return number of changes applied to the board before this one was produced
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return packed board (see {@link BoardState#getPacked()})
+   */
+  public long getPacked() {
+    return packed;
+  }
+
+  /**
+   * @return 1-based position of the hole before the change; -1 after a restart
+   */
+  public int getPreviousHole() {
+    return previousHole;
+  }
+
+  /**
+   * @return position of the tile moved, {@link BoardState#FLIP} or {@link #RESTART}
+   */
+  public int getChange() {
+    return change;
+  }
+
+  @Override
+  public String toString() {
+    return isAccepted() ? "v" + version + " " + Long.toHexString(packed) + " (" + change + ")" : outcome.toString();
+  }
+}
@@ -0,0 +1,334 @@
+package com.mamarino.puzzle.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact distance-to-goal of every 3x3 board, one byte per permutation indexed by its rank in the
+ * full {@link StateSpace} of the 3x3 grid. The table is computed once by a breadth-first search from the
+ * goal, stored to a file and then memory-mapped, so a query is a single read from the page cache
+ * and the table takes no heap.
+ * <p>
+ * A table computed by {@link #computeWithFlips(int)} also allows flips (tiles in position 1 and 2
+ * switched while the hole is in the last slot): every board can then reach the goal, and the distance
+ * is the cost of the cheapest solution, moves costing 1 and flips the given cost.
+ * <p>
+ * File layout: a {@link #HEADER_SIZE} bytes header (magic number and number of entries, or flip magic
+ * number and flip cost) followed by 9! distance bytes.
+ */
+public final class DistanceTable {
+
+  /** distance of the boards which cannot reach the goal */
+  public static final int UNREACHABLE = -1;
+
+  /** flip cost of a table of regular moves only */
+  public static final int NO_FLIPS = 0;
+  /** distances stay below 128, so that they fit in a byte */
+  public static final int MAX_FLIP_COST = 64;
+
+  /** system property naming the directory of the tables of {@link #loadDefault(int)}, ~/.8puzzle by default */
+  public static final String DIRECTORY_PROPERTY = "puzzle.tables";
+
+  static final int MAGIC = 0x38504454; // "8PDT"
+  static final int FLIPS_MAGIC = 0x38504446; // "8PDF"
+  static final int HEADER_SIZE = 8;
+
+  private static final Grid GRID = Grid.DEFAULT;
+  private static final StateSpace SPACE = StateSpace.full(GRID);
+  /** number of boards, and of distances */
+  static final int COUNT = (int) SPACE.size();
+
+  private final ByteBuffer distances;
+  private final int flipCost;
+
+  private DistanceTable(ByteBuffer distances, int flipCost) {
+    this.distances = distances;
+    this.flipCost = flipCost;
+  }
+
+  /**
+   * it computes the table in memory by a breadth-first search from the goal
+   * @return table backed by the heap
+   */
+  public static DistanceTable compute() {
+    return new DistanceTable(ByteBuffer.wrap(breadthFirstSearch()), NO_FLIPS);
+  }
+
+  /**
+   * it computes the table of every permutation in memory, flips included
+   * @param flipCost cost of a flip, from 1 to {@link #MAX_FLIP_COST}; a regular move costs 1
+   * @return table backed by the heap
+   */
+  public static DistanceTable computeWithFlips(int flipCost) {
+    if (flipCost < 1 || flipCost > MAX_FLIP_COST) {
+      throw new IllegalArgumentException("Flip cost must be between 1 and " + MAX_FLIP_COST + ".");
+    }
+    return new DistanceTable(ByteBuffer.wrap(bucketSearch(flipCost)), flipCost);
+  }
+
+  /**
+   * it maps a table previously written by {@link #write(Path)}
+   * @param file table file
+   * @return table backed by the mapped file
+   * @throws IOException when the file cannot be read or is not a distance table
+   */
+  public static DistanceTable load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() != HEADER_SIZE + (long) COUNT) {
+        throw new IOException("Not a distance table: " + file);
+      }
+
+      // the mapping stays valid after the channel is closed
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      int magic = mapped.getInt(0);
+      int value = mapped.getInt(4);
+      boolean regular = magic == MAGIC && value == COUNT;
+      if (!regular && (magic != FLIPS_MAGIC || value < 1 || value > MAX_FLIP_COST)) {
+        throw new IOException("Not a distance table: " + file);
+      }
+
+      return new DistanceTable(mapped.position(HEADER_SIZE).slice(), regular ? NO_FLIPS : value);
+    }
+  }
+
+  /**
+   * it maps the table stored in 'file', computing and writing it first if the file does not exist yet
+   * @param file table file
+   * @return table backed by the mapped file
+   * @throws IOException when the file cannot be read or written
+   */
+  public static DistanceTable loadOrCreate(Path file) throws IOException {
+    if (!Files.exists(file)) compute().write(file);
+    return load(file);
+  }
+
+  /**
+   * it maps the table of the given flip cost from the tables directory (see {@link #DIRECTORY_PROPERTY}),
+   * computing and writing it there first when it is missing or unreadable: only the first run pays for
+   * the search. When the directory cannot be written the table is computed in memory
+   * @param flipCost {@link #NO_FLIPS}, or the cost of a flip as in {@link #computeWithFlips(int)}
+   * @return table backed by the mapped file, or by the heap
+   */
+  public static DistanceTable loadDefault(int flipCost) {
+    Path directory = Paths.get(System.getProperty(DIRECTORY_PROPERTY, System.getProperty("user.home") + "/.8puzzle"));
+    Path file = directory.resolve(flipCost == NO_FLIPS ? "distance-3x3.table" : "distance-3x3-flips-" + flipCost + ".table");
+
+    try {
+      if (Files.exists(file)) {
+        DistanceTable table = load(file);
+        if (table.getFlipCost() == flipCost) return table;
+      }
+    } catch (IOException e) {
+      // corrupted or unreadable: computed again, and replaced below
+    }
+
+    DistanceTable table = flipCost == NO_FLIPS ? compute() : computeWithFlips(flipCost);
+    try {
+      Files.createDirectories(directory);
+      table.write(file);
+      return load(file);
+    } catch (IOException e) {
+      return table;
+    }
+  }
+
+  /**
+   * it stores the table to 'file'; the file is written aside and then moved in place, so that a
+   * concurrent {@link #load(Path)} never sees a partial table
+   * @param file table file
+   * @throws IOException when the file cannot be written
+   */
+  public void write(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = flipCost == NO_FLIPS
+          ? ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(COUNT)
+          : ByteBuffer.allocate(HEADER_SIZE).putInt(FLIPS_MAGIC).putInt(flipCost);
+      header.flip();
+      ByteBuffer body = distances.duplicate();
+      body.clear();
+
+      while (header.hasRemaining()) channel.write(header);
+      while (body.hasRemaining()) channel.write(body);
+    }
+
+    try {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * @return cost of a flip, {@link #NO_FLIPS} when the table has regular moves only
+   */
+  public int getFlipCost() {
+    return flipCost;
+  }
+
+  /**
+   * @param packed packed board
+   * @return number of moves (cost, with flips) of the optimal solution, or {@link #UNREACHABLE}
+   */
+  public int distance(long packed) {
+    return distanceOfRank(rank(packed));
+  }
+
+  /**
+   * @param rank board rank (see {@link StateSpace#rank(long)} in the full 3x3 space)
+   * @return number of moves of the optimal solution, or {@link #UNREACHABLE}
+   */
+  public int distanceOfRank(int rank) {
+    byte distance = distances.get(rank);
+    return distance < 0 ? UNREACHABLE : distance;
+  }
+
+  /**
+   * @param permutation labels from position 1 to 9, same format fired with {@code RESTART_EVT}
+   * @return number of moves of the optimal solution, or {@link #UNREACHABLE}
+   */
+  public int distance(List<Integer> permutation) {
+    return distance(BoardState.pack(permutation));
+  }
+
+  /**
+   * @param packed packed board
+   * @return position (1,...,9) of the tile to be clicked to get one move closer to the goal, or
+   *         {@link BoardState#FLIP} when a flip does; -1 when the board is already solved or it cannot be solved
+   */
+  public int bestMove(long packed) {
+    int distance = distance(packed);
+    if (distance <= 0) return -1;
+
+    int hole = GRID.holeIndex(packed);
+    for (int k = 0; k < GRID.neighbourCount(hole); k++) {
+      int next = GRID.neighbour(hole, k);
+      if (distance(BoardState.swap(packed, hole, next)) == distance - 1) return next + 1;
+    }
+    if (flipCost != NO_FLIPS && GRID.canFlip(packed) && distance(BoardState.flip(packed)) == distance - flipCost) {
+      return BoardState.FLIP;
+    }
+    throw new IllegalStateException("Corrupted distance table");
+  }
+
+  /**
+   * @param packed packed board
+   * @return moves of an optimal solution (see {@link #bestMove(long)}); null when the board cannot be solved
+   */
+  public int[] solve(long packed) {
+    int distance = distance(packed);
+    if (distance == UNREACHABLE) return null;
+
+    int[] moves = new int[distance];
+    int length = 0;
+    for (long state = packed; state != GRID.goal(); length++) {
+      moves[length] = bestMove(state);
+      state = moves[length] == BoardState.FLIP
+          ? BoardState.flip(state)
+          : BoardState.swap(state, GRID.holeIndex(state), moves[length] - 1);
+    }
+    // flips costing more than a move make the solution shorter than its cost
+    return Arrays.copyOf(moves, length);
+  }
+
+  /**
+   * @return distances indexed by rank; unreachable boards hold -1
+   */
+  static byte[] breadthFirstSearch() {
+    byte[] distances = new byte[COUNT];
+    Arrays.fill(distances, (byte) UNREACHABLE);
+
+    // every reachable board enters the queue once: half of the permutations at most
+    int[] queue = new int[COUNT / 2];
+    int head = 0;
+    int tail = 0;
+
+    int goal = rank(GRID.goal());
+    distances[goal] = 0;
+    queue[tail++] = goal;
+
+    while (head < tail) {
+      int rank = queue[head++];
+      long packed = SPACE.unrank(rank);
+      int hole = GRID.holeIndex(packed);
+      byte next = (byte) (distances[rank] + 1);
+
+      for (int k = 0; k < GRID.neighbourCount(hole); k++) {
+        int child = rank(BoardState.swap(packed, hole, GRID.neighbour(hole, k)));
+        if (distances[child] == UNREACHABLE) {
+          distances[child] = next;
+          queue[tail++] = child;
+        }
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * shortest paths with moves costing 1 and flips 'flipCost' (Dial's algorithm): boards are queued
+   * in one bucket per distance and the buckets are emptied in order, so a board is settled the first
+   * time its own bucket is reached. A board found again at a shorter distance is queued again, and
+   * the stale entry is skipped
+   * @return distances indexed by rank
+   */
+  static byte[] bucketSearch(int flipCost) {
+    byte[] distances = new byte[COUNT];
+    Arrays.fill(distances, (byte) UNREACHABLE);
+
+    int[][] buckets = new int[Byte.MAX_VALUE + 1][];
+    int[] sizes = new int[buckets.length];
+
+    int goal = rank(GRID.goal());
+    distances[goal] = 0;
+    enqueue(buckets, sizes, 0, goal);
+
+    for (int distance = 0; distance < buckets.length; distance++) {
+      for (int i = 0; i < sizes[distance]; i++) {
+        int rank = buckets[distance][i];
+        if (distances[rank] != distance) continue;
+
+        long packed = SPACE.unrank(rank);
+        int hole = GRID.holeIndex(packed);
+
+        for (int k = 0; k < GRID.neighbourCount(hole); k++) {
+          relax(distances, buckets, sizes, BoardState.swap(packed, hole, GRID.neighbour(hole, k)), distance + 1);
+        }
+        if (GRID.canFlip(packed)) relax(distances, buckets, sizes, BoardState.flip(packed), distance + flipCost);
+      }
+      // settled: the bucket is not needed any more
+      buckets[distance] = null;
+    }
+    return distances;
+  }
+
+  private static void relax(byte[] distances, int[][] buckets, int[] sizes, long child, int distance) {
+    // no optimal distance gets that far (see MAX_FLIP_COST)
+    if (distance > Byte.MAX_VALUE) return;
+
+    int rank = rank(child);
+    if (distances[rank] != UNREACHABLE && distances[rank] <= distance) return;
+
+    distances[rank] = (byte) distance;
+    enqueue(buckets, sizes, distance, rank);
+  }
+
+  private static int rank(long packed) {
+    return (int) SPACE.rank(packed);
+  }
+
+  private static void enqueue(int[][] buckets, int[] sizes, int distance, int rank) {
+    if (buckets[distance] == null) buckets[distance] = new int[1 << 10];
+    if (sizes[distance] == buckets[distance].length) buckets[distance] = Arrays.copyOf(buckets[distance], sizes[distance] * 2);
+    buckets[distance][sizes[distance]++] = rank;
+  }
+}
@@ -0,0 +1,232 @@
+package com.mamarino.puzzle.core;
+
+import java.util.List;
+
+/**
+ * Rules of a puzzle game, with no UI: a tile moves into the hole only when it is next to it, the first
+ * two tiles flip only when the hole is in the last position, a restart deals a new board and the game
+ * is won on the goal board. Alongside the board it keeps its distance estimates ({@link HeuristicTracker}),
+ * the moves made since the board was dealt, the last tile moved and the status text shown to the player.
+ * <p>
+ * The Swing beans ({@code EightController}) and the server sessions are adapters over an engine; it does
+ * not load any AWT/Swing class. An engine is not thread-safe.
+ */
+public final class GameEngine {
+
+  public static final String START = "START";
+  public static final String OK = "OK";
+  public static final String KO = "KO";
+  public static final String WON = "YOU WON!";
+
+  private BoardState board;
+  private HeuristicTracker heuristics;
+  // accepted moves since the board was dealt
+  private long moveCount;
+  // last tile moved (position, label); label -1 after a refused move, (0, 0) before the first move
+  private int lastPosition;
+  private int lastLabel;
+  private String status;
+
+  /**
+   * @param permutation labels of the first board, by position
+   */
+  public GameEngine(List<Integer> permutation) {
+    restart(permutation);
+  }
+
+  /**
+   * @param snapshot state of the game
+   */
+  public GameEngine(GameSnapshot snapshot) {
+    restore(snapshot);
+  }
+
+  /**
+   * it deals a new board; the grid changes with the size of 'permutation'
+   * @param permutation labels of the board, by position
+   */
+  public void restart(List<Integer> permutation) {
+    if (board != null && board.getGrid().getSize() == permutation.size()) {
+      board.set(permutation);
+    } else {
+      board = new BoardState(permutation);
+      heuristics = new HeuristicTracker(board.getGrid());
+    }
+    heuristics.reset(board);
+    moveCount = 0;
+    status = heuristics.isSolved() ? WON : START;
+  }
+
+  /**
+   * it moves the tile in the given position into the hole, if it is next to it
+   * @param position 1-based position of the tile to be moved
+   * @return boolean: true -> the move has been applied; false -> the status is KO
+   */
+  public boolean move(int position) {
+    int holePosition = board.getHolePosition();
+    if (!board.move(position)) {
+      reject(position);
+      return false;
+    }
+
+    moveCount++;
+    lastPosition = holePosition;
+    lastLabel = board.get(holePosition);
+    heuristics.moved(board, position, holePosition);
+    status = heuristics.isSolved() ? WON : OK;
+    return true;
+  }
+
+  /**
+   * it records a move refused without being tried on this board, f.i. by a shared board
+   * @param position 1-based position of the tile
+   */
+  public void reject(int position) {
+    lastPosition = position;
+    lastLabel = -1;
+    status = KO;
+  }
+
+  /**
+   * it switches tiles in position 1 and 2, only if the hole is in the last position
+   * @return boolean: true -> the flip has been applied; false -> nothing has changed
+   */
+  public boolean flip() {
+    if (!board.flip()) return false;
+
+    heuristics.flipped(board);
+    status = heuristics.isSolved() ? WON : OK;
+    return true;
+  }
+
+  /**
+   * it applies a change made on a shared board, which this engine follows version after version
+   * @param version accepted version, following the last one applied
+   */
+  public void apply(BoardVersion version) {
+    board.set(version.getPacked());
+
+    switch (version.getChange()) {
+      case BoardVersion.RESTART:
+        heuristics.reset(board);
+        moveCount = 0;
+        status = heuristics.isSolved() ? WON : START;
+        return;
+      case BoardState.FLIP:
+        heuristics.flipped(board);
+        break;
+      default:
+        heuristics.moved(board, version.getChange(), version.getPreviousHole());
+        moveCount++;
+        lastPosition = version.getPreviousHole();
+        lastLabel = board.get(lastPosition);
+        break;
+    }
+    status = heuristics.isSolved() ? WON : OK;
+  }
+
+  /**
+   * it replaces the board, keeping moves and status: f.i. to catch up with a board changed elsewhere
+   * @param packed packed board of the same grid
+   */
+  public void set(long packed) {
+    board.set(packed);
+    heuristics.reset(board);
+  }
+
+  /**
+   * @return the whole state of the game
+   */
+  public GameSnapshot snapshot() {
+    return GameSnapshot.of(board, moveCount, lastPosition, lastLabel, status);
+  }
+
+  /**
+   * it brings the game back to a snapshot
+   * @param snapshot state of the game
+   */
+  public void restore(GameSnapshot snapshot) {
+    if (board != null && board.getGrid().equals(snapshot.getGrid())) {
+      snapshot.restore(board);
+    } else {
+      board = snapshot.toBoard();
+      heuristics = new HeuristicTracker(board.getGrid());
+    }
+    heuristics.reset(board);
+    moveCount = snapshot.getMoveCount();
+    lastPosition = snapshot.getClickedPosition();
+    lastLabel = snapshot.getClickedLabel();
+    status = snapshot.getStatus();
+  }
+
+  /**
+   * @return board of the game, to be read only: changes go through the engine
+   */
+  public BoardState getBoard() {
+    return board;
+  }
+
+  public Grid getGrid() {
+    return board.getGrid();
+  }
+
+  /**
+   * @return packed value of the current board (see {@link BoardState#getPacked()})
+   */
+  public long getPacked() {
+    return board.getPacked();
+  }
+
+  public boolean isSolved() {
+    return heuristics.isSolved();
+  }
+
+  /**
+   * @return number of tiles (hole excluded) which are not in their goal position
+   */
+  public int getMisplaced() {
+    return heuristics.getMisplaced();
+  }
+
+  /**
+   * @return sum of the distances of each tile from its goal position
+   */
+  public int getManhattan() {
+    return heuristics.getManhattan();
+  }
+
+  /**
+   * @return lower bound of the moves left to the goal without flips (see {@link HeuristicTracker#getEstimate()})
+   */
+  public int getEstimate() {
+    return heuristics.getEstimate();
+  }
+
+  /**
+   * @return accepted moves since the board was dealt
+   */
+  public long getMoveCount() {
+    return moveCount;
+  }
+
+  /**
+   * @return 1-based position of the last tile moved (the hole before the move), or refused
+   */
+  public int getLastPosition() {
+    return lastPosition;
+  }
+
+  /**
+   * @return label of the last tile moved, -1 when the last move has been refused
+   */
+  public int getLastLabel() {
+    return lastLabel;
+  }
+
+  /**
+   * @return START, OK, KO, YOU WON! or the status of a restored snapshot
+   */
+  public String getStatus() {
+    return status;
+  }
+}
@@ -0,0 +1,282 @@
+package com.mamarino.puzzle.core;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable state of a game: board, hole position, number of moves made since the board was dealt,
+ * last tile label change fired by the controller (position, label) and status text. A snapshot
+ * restores a game directly, without replaying its events.
+ * <p>
+ * Binary form, version {@link #VERSION}:
+ * <pre>
+ *   version       byte
+ *   dimension     byte
+ *   status        byte: index of START, OK, KO, YOU WON!, "" or OTHER, followed by varint length and UTF-8 text
+ *   hole          byte: 1-based position of the hole
+ *   board         varint rank in the full {@link StateSpace} up to 4x4, a byte per slot on bigger boards
+ *   moves         varint
+ *   clicked tile  two zigzag varints: position, label
+ * </pre>
+ * A 3x3 game takes about 10 bytes. Varints are unsigned LEB128: 7 bits per byte, lowest bits first.
+ */
+public final class GameSnapshot {
+
+  public static final byte VERSION = 1;
+
+  // status texts with a code of their own; any other text is stored in full
+  private static final String[] STATUSES = {"START", "OK", "KO", "YOU WON!", ""};
+  private static final int OTHER = STATUSES.length;
+
+  private final Grid grid;
+  // packable boards only
+  private final long packed;
+  // bigger boards only, labels by slot
+  private final byte[] tiles;
+  private final int holePosition;
+  private final long moveCount;
+  private final int clickedPosition;
+  private final int clickedLabel;
+  private final String status;
+
+  private GameSnapshot(Grid grid, long packed, byte[] tiles, int holePosition, long moveCount,
+                       int clickedPosition, int clickedLabel, String status) {
+    this.grid = grid;
+    this.packed = packed;
+    this.tiles = tiles;
+    this.holePosition = holePosition;
+    this.moveCount = moveCount;
+    this.clickedPosition = clickedPosition;
+    this.clickedLabel = clickedLabel;
+    this.status = status;
+  }
+
+  /**
+   * @param board board of the game, copied
+   * @param moveCount moves made since the board was dealt
+   * @param clickedPosition position of the last tile label change
+   * @param clickedLabel label of the last tile label change
+   * @param status status text
+   */
+  public static GameSnapshot of(BoardState board, long moveCount, int clickedPosition, int clickedLabel, String status) {
+    Grid grid = board.getGrid();
+    long packed = 0L;
+    byte[] tiles = null;
+
+    if (grid.isPackable()) {
+      packed = board.getPacked();
+    } else {
+      tiles = new byte[grid.getSize()];
+      for (int i = 0; i < tiles.length; i++) tiles[i] = (byte) board.get(i + 1);
+    }
+    return new GameSnapshot(grid, packed, tiles, board.getHolePosition(), moveCount, clickedPosition, clickedLabel,
+        status == null ? "" : status);
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @return packed board (see {@link BoardState#getPacked()})
+   * @throws UnsupportedOperationException when boards of the grid cannot be packed
+   */
+  public long getPacked() {
+    if (!grid.isPackable()) throw new UnsupportedOperationException(grid + " boards cannot be packed.");
+    return packed;
+  }
+
+  public int getHolePosition() {
+    return holePosition;
+  }
+
+  public long getMoveCount() {
+    return moveCount;
+  }
+
+  public int getClickedPosition() {
+    return clickedPosition;
+  }
+
+  public int getClickedLabel() {
+    return clickedLabel;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  /**
+   * @return new board holding the snapshot board
+   */
+  public BoardState toBoard() {
+    if (grid.isPackable()) return new BoardState(grid, packed);
+    return new BoardState(permutation());
+  }
+
+  /**
+   * @param board board of the same grid, overwritten with the snapshot board
+   */
+  public void restore(BoardState board) {
+    if (!board.getGrid().equals(grid)) throw new IllegalArgumentException("Snapshot of a " + grid + " board.");
+
+    if (grid.isPackable()) board.set(packed);
+    else board.set(permutation());
+  }
+
+  /**
+   * @param buffer destination, with room for the whole snapshot
+   */
+  public void write(ByteBuffer buffer) {
+    buffer.put(VERSION).put((byte) grid.getDimension());
+
+    int code = statusCode(status);
+    buffer.put((byte) code);
+    if (code == OTHER) {
+      byte[] text = status.getBytes(StandardCharsets.UTF_8);
+      putVarint(buffer, text.length);
+      buffer.put(text);
+    }
+
+    buffer.put((byte) holePosition);
+    if (grid.isPackable()) putVarint(buffer, StateSpace.full(grid).rank(packed));
+    else buffer.put(tiles);
+
+    putVarint(buffer, moveCount);
+    putVarint(buffer, zigzag(clickedPosition));
+    putVarint(buffer, zigzag(clickedLabel));
+  }
+
+  /**
+   * @return upper bound of the bytes taken by {@link #write(ByteBuffer)}
+   */
+  public int maxSize() {
+    int text = statusCode(status) == OTHER ? 5 + status.length() * 3 : 0;
+    return 4 + text + (grid.isPackable() ? 10 : grid.getSize()) + 10 + 5 + 5;
+  }
+
+  /**
+   * @param buffer source, positioned at the start of a snapshot; it is left after its end, or
+   *               anywhere within it when the snapshot is rejected
+   * @return the snapshot read
+   * @throws IllegalArgumentException when the version is not supported or the snapshot is corrupted or truncated
+   */
+  public static GameSnapshot read(ByteBuffer buffer) {
+    try {
+      return readFields(buffer);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Corrupted snapshot: truncated.", e);
+    }
+  }
+
+  private static GameSnapshot readFields(ByteBuffer buffer) {
+    byte version = buffer.get();
+    if (version != VERSION) throw new IllegalArgumentException("Unsupported snapshot version " + version + ".");
+
+    Grid grid = Grid.of(buffer.get());
+    int code = buffer.get();
+    String status;
+    if (code == OTHER) {
+      long length = getVarint(buffer);
+      if (length < 0 || length > buffer.remaining()) {
+        throw new IllegalArgumentException("Corrupted snapshot: status of " + length + " bytes, " + buffer.remaining() + " left.");
+      }
+      byte[] text = new byte[(int) length];
+      buffer.get(text);
+      status = new String(text, StandardCharsets.UTF_8);
+    } else if (code >= 0 && code < OTHER) {
+      status = STATUSES[code];
+    } else {
+      throw new IllegalArgumentException("Unknown snapshot status " + code + ".");
+    }
+
+    int holePosition = buffer.get() & 0xFF;
+    long packed = 0L;
+    byte[] tiles = null;
+    int hole;
+    if (grid.isPackable()) {
+      // out of range ranks are rejected by the space
+      packed = StateSpace.full(grid).unrank(getVarint(buffer));
+      hole = grid.holeIndex(packed) + 1;
+    } else {
+      tiles = new byte[grid.getSize()];
+      buffer.get(tiles);
+      hole = holeIndex(tiles, grid) + 1;
+    }
+    if (hole != holePosition) throw new IllegalArgumentException("Corrupted snapshot: hole in " + hole + ", not " + holePosition + ".");
+
+    long moveCount = getVarint(buffer);
+    if (moveCount < 0) throw new IllegalArgumentException("Corrupted snapshot: negative move count.");
+    int clickedPosition = unzigzag(getVarint(buffer));
+    int clickedLabel = unzigzag(getVarint(buffer));
+    return new GameSnapshot(grid, packed, tiles, holePosition, moveCount, clickedPosition, clickedLabel, status);
+  }
+
+  @Override
+  public String toString() {
+    String board = grid.isPackable() ? new BoardState(grid, packed).toString() : permutation().toString();
+    return board + " (" + moveCount + " moves, " + status + ")";
+  }
+
+  private List<Integer> permutation() {
+    List<Integer> permutation = new ArrayList<>(tiles.length);
+    for (byte label : tiles) permutation.add((int) label);
+    return permutation;
+  }
+
+  /**
+   * @return index of the hole in 'tiles'
+   * @throws IllegalArgumentException when 'tiles' is not a permutation of the grid labels
+   */
+  private static int holeIndex(byte[] tiles, Grid grid) {
+    boolean[] seen = new boolean[tiles.length + 1];
+    int hole = -1;
+    for (int i = 0; i < tiles.length; i++) {
+      int label = tiles[i];
+      if (label < 1 || label > tiles.length || seen[label]) {
+        throw new IllegalArgumentException("Corrupted snapshot: label " + label + " in slot " + (i + 1) + ".");
+      }
+      seen[label] = true;
+      if (label == grid.getHole()) hole = i;
+    }
+    return hole;
+  }
+
+  private static int statusCode(String status) {
+    for (int code = 0; code < STATUSES.length; code++) {
+      if (STATUSES[code].equals(status)) return code;
+    }
+    return OTHER;
+  }
+
+  static void putVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  static long getVarint(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) return value;
+    }
+    throw new IllegalArgumentException("Corrupted snapshot: varint too long.");
+  }
+
+  private static long zigzag(int value) {
+    return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+  }
+
+  private static int unzigzag(long value) {
+    if ((value & ~0xFFFFFFFFL) != 0) throw new IllegalArgumentException("Corrupted snapshot: " + value + " out of int range.");
+    int bits = (int) value;
+    return (bits >>> 1) ^ -(bits & 1);
+  }
+}
@@ -0,0 +1,241 @@
+package com.mamarino.puzzle.core;
+
+import com.mamarino.puzzle.Constants;
+
+import java.util.Arrays;
+
+/**
+ * Geometry of a dim x dim board: slot index (0-based, row by row) to (row, col) arithmetic,
+ * neighbour table and the goal board. Instances are immutable and cached, one per dimension.
+ * <p>
+ * The hole label is dim * dim, the last label, so that on the goal board every label L sits in slot L - 1.
+ */
+public final class Grid {
+
+  public static final int MIN_DIM = 2;
+  // labels are stored in a byte
+  public static final int MAX_DIM = 11;
+
+  /** boards up to this many slots fit in a packed long (see {@link BoardState#getPacked()}) */
+  public static final int MAX_PACKED_SIZE = 16;
+
+  private static final Grid[] GRIDS = new Grid[MAX_DIM + 1];
+
+  static {
+    for (int dim = MIN_DIM; dim <= MAX_DIM; dim++) GRIDS[dim] = new Grid(dim);
+  }
+
+  /** the 3x3 board */
+  public static final Grid DEFAULT = of(Constants.DEFAULT_DIM);
+
+  private final int dim;
+  private final int size;
+  private final int[][] neighbours;
+  private final long goal;
+
+  private Grid(int dim) {
+    this.dim = dim;
+    this.size = dim * dim;
+    this.neighbours = buildNeighbours();
+
+    long packed = 0L;
+    for (int i = 0; isPackable() && i < size; i++) packed = BoardState.withLabel(packed, i, i + 1);
+    this.goal = packed;
+  }
+
+  /**
+   * @param dim number of rows (and columns)
+   * @return geometry of the dim x dim board
+   */
+  public static Grid of(int dim) {
+    if (dim < MIN_DIM || dim > MAX_DIM) {
+      throw new IllegalArgumentException("Board dimension must be between " + MIN_DIM + " and " + MAX_DIM + ".");
+    }
+    return GRIDS[dim];
+  }
+
+  /**
+   * @param size number of slots, i.e. the size of the permutation fired with {@code RESTART_EVT}
+   * @return geometry of the board having 'size' slots
+   */
+  public static Grid ofSize(int size) {
+    int dim = (int) Math.round(Math.sqrt(size));
+    if (dim * dim != size) {
+      throw new IllegalArgumentException("Permutation size must be a perfect square: " + size);
+    }
+    return of(dim);
+  }
+
+  public int getDimension() {
+    return dim;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return label of the hole
+   */
+  public int getHole() {
+    return size;
+  }
+
+  /**
+   * @return boolean: true -> boards of this grid fit in a packed long; not otherwise
+   */
+  public boolean isPackable() {
+    return size <= MAX_PACKED_SIZE;
+  }
+
+  public int row(int index) {
+    return index / dim;
+  }
+
+  public int col(int index) {
+    return index % dim;
+  }
+
+  public int index(int row, int col) {
+    return row * dim + col;
+  }
+
+  /**
+   * @param index 0-based slot index
+   * @return number of slots sharing a side with 'index' (2, 3 or 4)
+   */
+  public int neighbourCount(int index) {
+    return neighbours[index].length;
+  }
+
+  /**
+   * @param index 0-based slot index
+   * @param k neighbour number, from 0 to {@link #neighbourCount(int)} - 1
+   * @return 0-based index of the k-th slot sharing a side with 'index'
+   */
+  public int neighbour(int index, int k) {
+    return neighbours[index][k];
+  }
+
+  /**
+   * @param a 0-based slot index
+   * @param b 0-based slot index
+   * @return boolean: true -> the two slots share a side; not otherwise
+   */
+  public boolean isAdjacent(int a, int b) {
+    return Math.abs(row(a) - row(b)) + Math.abs(col(a) - col(b)) == 1;
+  }
+
+  /**
+   * @param index 0-based slot index
+   * @param label label of a tile
+   * @return distance of the tile 'label' lying in 'index' from its goal slot
+   */
+  public int distance(int index, int label) {
+    int goal = label - 1;
+    return Math.abs(row(index) - row(goal)) + Math.abs(col(index) - col(goal));
+  }
+
+  /**
+   * @return packed goal board (1, 2, ..., hole)
+   * @throws UnsupportedOperationException when boards of this grid do not fit in a long
+   */
+  public long goal() {
+    if (!isPackable()) throw new UnsupportedOperationException(this + " boards cannot be packed.");
+    return goal;
+  }
+
+  /**
+   * @param packed packed board of this grid
+   * @return 0-based index of the hole slot
+   */
+  public int holeIndex(long packed) {
+    for (int i = 0; i < size; i++) {
+      if (BoardState.labelAt(packed, i) == size)
+        return i;
+    }
+    throw new IllegalArgumentException("Board has no hole.");
+  }
+
+  /**
+   * @param packed packed board of this grid
+   * @return boolean: true -> the hole is in the last slot, so the flip move is possible; not otherwise
+   */
+  public boolean canFlip(long packed) {
+    return BoardState.labelAt(packed, size - 1) == size;
+  }
+
+  /**
+   * it checks whether the goal can be reached with regular moves only. A move never changes the
+   * parity of the inversions among the tiles (hole excluded) plus, on boards with an even dimension,
+   * the distance of the hole from the last row: the board is solvable when that parity is even, as in the goal
+   * @param packed packed board of this grid
+   * @return boolean: true -> the board is solvable without flips; not otherwise
+   */
+  public boolean isSolvable(long packed) {
+    int parity = 0;
+    for (int i = 0; i < size; i++) {
+      int label = BoardState.labelAt(packed, i);
+      if (label == size) {
+        parity += holeParity(i);
+        continue;
+      }
+
+      for (int j = i + 1; j < size; j++) {
+        int other = BoardState.labelAt(packed, j);
+        if (other != size && other < label) parity++;
+      }
+    }
+    return (parity & 1) == 0;
+  }
+
+  /**
+   * @param tiles labels by 0-based slot index
+   * @return boolean: true -> the board is solvable without flips; not otherwise
+   * @see #isSolvable(long)
+   */
+  public boolean isSolvable(byte[] tiles) {
+    int parity = 0;
+    for (int i = 0; i < size; i++) {
+      if (tiles[i] == size) {
+        parity += holeParity(i);
+        continue;
+      }
+
+      for (int j = i + 1; j < size; j++) {
+        if (tiles[j] != size && tiles[j] < tiles[i]) parity++;
+      }
+    }
+    return (parity & 1) == 0;
+  }
+
+  @Override
+  public String toString() {
+    return dim + "x" + dim;
+  }
+
+  /**
+   * on boards with an odd dimension a vertical move shifts the hole over an even number of tiles,
+   * leaving the inversions parity untouched: the hole row only counts when the dimension is even
+   */
+  int holeParity(int holeIndex) {
+    return (dim & 1) == 1 ? 0 : (dim - 1) - row(holeIndex);
+  }
+
+  private int[][] buildNeighbours() {
+    int[][] table = new int[size][];
+
+    for (int i = 0; i < size; i++) {
+      int[] found = new int[4];
+      int count = 0;
+
+      if (row(i) > 0) found[count++] = i - dim;
+      if (row(i) < dim - 1) found[count++] = i + dim;
+      if (col(i) > 0) found[count++] = i - 1;
+      if (col(i) < dim - 1) found[count++] = i + 1;
+
+      table[i] = Arrays.copyOf(found, count);
+    }
+    return table;
+  }
+}
@@ -0,0 +1,92 @@
+package com.mamarino.puzzle.core;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) set of 64-bit board hashes (see {@link ZobristHash}), with no
+ * boxing: the visited set of searches over boards too large for the dense bit sets of a
+ * {@link StateSpace}. A set is not thread-safe.
+ */
+public final class HashedVisitedSet {
+
+  private static final float LOAD_FACTOR = 0.5f;
+
+  // 0 marks the empty slots, so the hash 0 is kept aside
+  private long[] hashes;
+  private boolean containsZero;
+  private int mask;
+  private int size;
+
+  public HashedVisitedSet() {
+    this(1 << 10);
+  }
+
+  /**
+   * @param capacity expected number of hashes, the set grows beyond it
+   */
+  public HashedVisitedSet(int capacity) {
+    int slots = Integer.highestOneBit(Math.max(2, (int) Math.min(1 << 30, capacity * 2L) - 1)) << 1;
+    hashes = new long[slots];
+    mask = slots - 1;
+  }
+
+  /**
+   * @param hash board hash
+   * @return boolean: true -> 'hash' has been added; false -> it was already in the set
+   */
+  public boolean add(long hash) {
+    if (hash == 0L) {
+      if (containsZero) return false;
+      containsZero = true;
+      size++;
+      return true;
+    }
+
+    int slot = slot(hash);
+    while (hashes[slot] != 0L) {
+      if (hashes[slot] == hash) return false;
+      slot = (slot + 1) & mask;
+    }
+
+    hashes[slot] = hash;
+    if (++size > hashes.length * LOAD_FACTOR) grow();
+    return true;
+  }
+
+  public boolean contains(long hash) {
+    if (hash == 0L) return containsZero;
+
+    int slot = slot(hash);
+    while (hashes[slot] != 0L) {
+      if (hashes[slot] == hash) return true;
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(hashes, 0L);
+    containsZero = false;
+    size = 0;
+  }
+
+  private int slot(long hash) {
+    // Zobrist hashes are uniform already: their high bits are as good as any mix
+    return (int) (hash >>> 32 ^ hash) & mask;
+  }
+
+  private void grow() {
+    long[] old = hashes;
+    hashes = new long[old.length * 2];
+    mask = hashes.length - 1;
+    size = containsZero ? 1 : 0;
+
+    for (long hash : old) {
+      if (hash != 0L) add(hash);
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package com.mamarino.puzzle.core;
+
+/**
+ * The {@link Heuristics} of a {@link BoardState} kept up to date move by move instead of being
+ * recomputed from scratch: a move only changes the misplaced and manhattan terms of the moved
+ * tile, and the linear conflicts of the two lines the tile leaves and enters (a horizontal move
+ * never changes the order of the tiles in its row, a vertical one in its column). So an update
+ * costs a constant amount of work for a given board dimension, and reading the values is free.
+ * <p>
+ * Each line penalty is the exact minimum of {@link Heuristics#linearConflict(Grid, long)}, for lines of
+ * any length: the estimate is a lower bound of the moves left on boards of every size, the ones
+ * too large to be packed included.
+ * <p>
+ * A tracker is not thread-safe: it is updated together with the board it follows.
+ */
+public final class HeuristicTracker {
+
+  private final Grid grid;
+  private final int[] rowConflicts;
+  private final int[] colConflicts;
+  private int misplaced;
+  private int manhattan;
+  private int linearConflict;
+
+  public HeuristicTracker(Grid grid) {
+    this.grid = grid;
+    this.rowConflicts = new int[grid.getDimension()];
+    this.colConflicts = new int[grid.getDimension()];
+  }
+
+  /**
+   * it recomputes every value for a new board
+   * @param board board to be followed
+   */
+  public void reset(BoardState board) {
+    misplaced = 0;
+    manhattan = 0;
+    for (int i = 0; i < grid.getSize(); i++) {
+      int label = board.get(i + 1);
+      if (label == grid.getHole()) continue;
+
+      if (label != i + 1) misplaced++;
+      manhattan += grid.distance(i, label);
+    }
+
+    linearConflict = 0;
+    for (int line = 0; line < grid.getDimension(); line++) {
+      rowConflicts[line] = rowConflicts(board, line);
+      colConflicts[line] = colConflicts(board, line);
+      linearConflict += rowConflicts[line] + colConflicts[line];
+    }
+  }
+
+  /**
+   * it updates the values after a move
+   * @param board board, the move already applied
+   * @param from 1-based position the tile has left, i.e. the new hole
+   * @param to 1-based position the tile has moved to, i.e. the old hole
+   */
+  public void moved(BoardState board, int from, int to) {
+    int label = board.get(to);
+    int fromIndex = from - 1;
+    int toIndex = to - 1;
+
+    misplaced += (label != to ? 1 : 0) - (label != from ? 1 : 0);
+    manhattan += grid.distance(toIndex, label) - grid.distance(fromIndex, label);
+
+    if (grid.row(fromIndex) == grid.row(toIndex)) {
+      updateCol(board, grid.col(fromIndex));
+      updateCol(board, grid.col(toIndex));
+    } else {
+      updateRow(board, grid.row(fromIndex));
+      updateRow(board, grid.row(toIndex));
+    }
+  }
+
+  /**
+   * it updates the values after a flip (tiles in position 1 and 2 switched)
+   * @param board board, the flip already applied
+   */
+  public void flipped(BoardState board) {
+    for (int position = 1; position <= 2; position++) {
+      int label = board.get(position);
+      int other = 3 - position;
+
+      misplaced += (label != position ? 1 : 0) - (label != other ? 1 : 0);
+      manhattan += grid.distance(position - 1, label) - grid.distance(other - 1, label);
+    }
+
+    updateRow(board, 0);
+    updateCol(board, 0);
+    updateCol(board, 1);
+  }
+
+  /**
+   * @return number of tiles (hole excluded) which are not in their goal slot
+   */
+  public int getMisplaced() {
+    return misplaced;
+  }
+
+  public int getManhattan() {
+    return manhattan;
+  }
+
+  public int getLinearConflict() {
+    return linearConflict;
+  }
+
+  /**
+   * @return manhattan distance plus linear conflict penalty, a lower bound of the moves left to the goal
+   *         without flips, on boards of any size
+   */
+  public int getEstimate() {
+    return manhattan + linearConflict;
+  }
+
+  /**
+   * @return boolean: true -> every tile is in its goal slot (and so is the hole); not otherwise
+   */
+  public boolean isSolved() {
+    return misplaced == 0;
+  }
+
+  private void updateRow(BoardState board, int row) {
+    int conflicts = rowConflicts(board, row);
+    linearConflict += conflicts - rowConflicts[row];
+    rowConflicts[row] = conflicts;
+  }
+
+  private void updateCol(BoardState board, int col) {
+    int conflicts = colConflicts(board, col);
+    linearConflict += conflicts - colConflicts[col];
+    colConflicts[col] = conflicts;
+  }
+
+  /**
+   * @see Heuristics#linearConflict(Grid, long)
+   */
+  private int rowConflicts(BoardState board, int row) {
+    int dim = grid.getDimension();
+    long line = 0L;
+    int count = 0;
+
+    for (int c = 0; c < dim; c++) {
+      int label = board.get(grid.index(row, c) + 1);
+      // tiles whose goal row is this row, stored by goal column
+      if (label != grid.getHole() && (label - 1) / dim == row)
+        line |= (long) ((label - 1) % dim) << (4 * count++);
+    }
+    return 2 * Heuristics.lineConflicts(line, count);
+  }
+
+  private int colConflicts(BoardState board, int col) {
+    int dim = grid.getDimension();
+    long line = 0L;
+    int count = 0;
+
+    for (int r = 0; r < dim; r++) {
+      int label = board.get(grid.index(r, col) + 1);
+      // tiles whose goal column is this column, stored by goal row
+      if (label != grid.getHole() && (label - 1) % dim == col)
+        line |= (long) ((label - 1) / dim) << (4 * count++);
+    }
+    return 2 * Heuristics.lineConflicts(line, count);
+  }
+}
@@ -0,0 +1,129 @@
+package com.mamarino.puzzle.core;
+
+/**
+ * Admissible distance-to-goal estimates computed straight on packed boards (see {@link BoardState}).
+ * In the goal board the label L sits in slot L - 1, the hole is never counted.
+ */
+public final class Heuristics {
+
+  private Heuristics() {}
+
+  /**
+   * @param grid geometry of the board
+   * @param packed packed board
+   * @return number of tiles (hole excluded) which are not in their goal slot
+   */
+  public static int misplaced(Grid grid, long packed) {
+    int count = 0;
+    for (int i = 0; i < grid.getSize(); i++) {
+      int label = BoardState.labelAt(packed, i);
+      if (label != grid.getHole() && label != i + 1) count++;
+    }
+    return count;
+  }
+
+  /**
+   * @param grid geometry of the board
+   * @param packed packed board
+   * @return sum of the distances of each tile (hole excluded) from its goal slot
+   */
+  public static int manhattan(Grid grid, long packed) {
+    int distance = 0;
+    for (int i = 0; i < grid.getSize(); i++) {
+      int label = BoardState.labelAt(packed, i);
+      if (label != grid.getHole()) distance += grid.distance(i, label);
+    }
+    return distance;
+  }
+
+  /**
+   * it counts the extra moves required by tiles which are in their goal row (or column) but
+   * in reversed order: one of them has to leave the line and come back, costing 2 more moves
+   * than the manhattan distance. For each line only the fewest tiles which leave the rest in order
+   * are counted (see {@link #lineConflicts(long, int)}), which keeps the estimate admissible
+   * @param grid geometry of the board
+   * @param packed packed board
+   * @return linear conflict penalty to be added to {@link #manhattan(Grid, long)}
+   */
+  public static int linearConflict(Grid grid, long packed) {
+    int dim = grid.getDimension();
+    int hole = grid.getHole();
+    int penalty = 0;
+
+    for (int r = 0; r < dim; r++) {
+      long line = 0L;
+      int count = 0;
+      for (int c = 0; c < dim; c++) {
+        int label = BoardState.labelAt(packed, r * dim + c);
+        // tiles whose goal row is this row, stored by goal column
+        if (label != hole && (label - 1) / dim == r)
+          line |= (long) ((label - 1) % dim) << (4 * count++);
+      }
+      penalty += 2 * lineConflicts(line, count);
+    }
+
+    for (int c = 0; c < dim; c++) {
+      long line = 0L;
+      int count = 0;
+      for (int r = 0; r < dim; r++) {
+        int label = BoardState.labelAt(packed, r * dim + c);
+        // tiles whose goal column is this column, stored by goal row
+        if (label != hole && (label - 1) % dim == c)
+          line |= (long) ((label - 1) / dim) << (4 * count++);
+      }
+      penalty += 2 * lineConflicts(line, count);
+    }
+
+    return penalty;
+  }
+
+  /**
+   * @param grid geometry of the board
+   * @param packed packed board
+   * @return manhattan distance plus linear conflict penalty
+   */
+  public static int estimate(Grid grid, long packed) {
+    return manhattan(grid, packed) + linearConflict(grid, packed);
+  }
+
+  /**
+   * lower bound of the cost to the goal when flips are allowed: a move brings one tile one step
+   * closer, a flip two tiles. The linear conflict penalty no longer holds, since a flip resolves the
+   * conflict of tiles 1 and 2 without taking any of them off their line
+   * @param grid geometry of the board
+   * @param packed packed board
+   * @param flipCost cost of a flip, a regular move costing 1
+   * @return manhattan distance, halved (rounded up) when a flip costs less than two moves
+   */
+  public static int flipEstimate(Grid grid, long packed, int flipCost) {
+    int manhattan = manhattan(grid, packed);
+    return flipCost >= 2 ? manhattan : (manhattan + 1) / 2;
+  }
+
+  /**
+   * the tiles left on the line must be in order, so the fewest removals keep a longest increasing
+   * subsequence of their goals: O(count^2), with count up to {@link Grid#MAX_DIM}
+   * @param goals goal coordinate along the line of the tiles lying on it, in their current order,
+   *              4 bits each (first tile in the lowest nibble)
+   * @param count number of tiles stored in 'goals'
+   * @return minimum number of tiles to be removed from the line so that the remaining ones are in order
+   */
+  static int lineConflicts(long goals, int count) {
+    // length of the longest increasing subsequence ending with each tile, 4 bits each
+    long lengths = 0L;
+    int longest = 0;
+
+    for (int i = 0; i < count; i++) {
+      int goalI = (int) ((goals >>> (4 * i)) & 0xF);
+      int length = 1;
+      for (int j = 0; j < i; j++) {
+        int goalJ = (int) ((goals >>> (4 * j)) & 0xF);
+        if (goalJ < goalI) length = Math.max(length, (int) ((lengths >>> (4 * j)) & 0xF) + 1);
+      }
+
+      lengths |= (long) length << (4 * i);
+      longest = Math.max(longest, length);
+    }
+    return count - longest;
+  }
+}
@@ -0,0 +1,68 @@
+package com.mamarino.puzzle.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size array of values in [0, 15], two per byte: half the memory of a {@code byte[]} for
+ * per-board values indexed by rank (see {@link StateSpace}), f.i. heuristic values or BFS depths
+ * kept modulo 16.
+ */
+public final class NibbleArray {
+
+  public static final int MAX_VALUE = 0xF;
+
+  private final byte[] nibbles;
+  private final int length;
+
+  public NibbleArray(int length) {
+    if (length < 0) throw new IllegalArgumentException("Negative length " + length + ".");
+
+    this.nibbles = new byte[(length + 1) >>> 1];
+    this.length = length;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @param index index, in [0, {@link #length()})
+   * @return value at 'index'
+   */
+  public int get(int index) {
+    checkIndex(index);
+    return (nibbles[index >>> 1] >>> ((index & 1) << 2)) & MAX_VALUE;
+  }
+
+  /**
+   * @param index index, in [0, {@link #length()})
+   * @param value value, in [0, {@link #MAX_VALUE}]
+   */
+  public void set(int index, int value) {
+    checkIndex(index);
+    if (value < 0 || value > MAX_VALUE) throw new IllegalArgumentException("Value " + value + " out of range [0, " + MAX_VALUE + "].");
+
+    int shift = (index & 1) << 2;
+    int slot = index >>> 1;
+    nibbles[slot] = (byte) ((nibbles[slot] & ~(MAX_VALUE << shift)) | (value << shift));
+  }
+
+  /**
+   * @param value value, in [0, {@link #MAX_VALUE}], written to every index
+   */
+  public void fill(int value) {
+    if (value < 0 || value > MAX_VALUE) throw new IllegalArgumentException("Value " + value + " out of range [0, " + MAX_VALUE + "].");
+    Arrays.fill(nibbles, (byte) (value | (value << 4)));
+  }
+
+  /**
+   * @return the backing array, not copied: index i in the low nibble of byte i / 2 when i is even, in the high one otherwise
+   */
+  byte[] bytes() {
+    return nibbles;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= length) throw new IndexOutOfBoundsException("Index " + index + " out of range [0, " + length + ").");
+  }
+}
@@ -0,0 +1,546 @@
+package com.mamarino.puzzle.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Additive pattern database heuristic for boards too large for a {@link DistanceTable}, up to 4x4 as
+ * the solvers taking it (see {@code Solver#setPatternDatabase}). The tiles are
+ * split in disjoint patterns; for each pattern a table holds, for every placement of its tiles, the
+ * number of moves of those tiles needed to bring them home, the other tiles being indistinguishable
+ * and their moves free. Since no move is counted twice, the values of the patterns add up to an
+ * admissible estimate, usually well above manhattan distance plus linear conflicts.
+ * <p>
+ * A placement is ranked as a partial permutation: the slots of the pattern tiles, in ascending label
+ * order, each one among the slots left by the previous ones. The moves of a pattern differ from the
+ * manhattan distance of its tiles by an even number (every move changes it by one), so a table stores
+ * half of that difference, in a nibble (see {@link NibbleArray}): the estimate of a board is its
+ * manhattan distance plus twice the sum of the table values. Differences above 30 are cut down to
+ * 30, which keeps the estimate admissible.
+ * <p>
+ * Tables are computed by a breadth-first search over placements of the pattern tiles and of the hole,
+ * run by levels on several threads, and then memory-mapped from a file, as distance tables are; a
+ * lookup allocates nothing, so the database can be shared by the solvers of every thread.
+ * <p>
+ * File layout: a header (magic number, dimension, number of patterns, then the pattern of each label
+ * from 1 to hole - 1, a byte each, -1 for the labels in none) followed by the nibbles of each pattern.
+ */
+public final class PatternDatabase {
+
+  static final int MAGIC = 0x38505044; // "8PPD"
+
+  /** the search of a pattern of k tiles visits n! / (n - k - 1)! states, indexed by an int */
+  public static final long MAX_STATES = Integer.MAX_VALUE - 8;
+
+  // 6-6-3 partition of the 4x4 board
+  private static final int[][] PATTERNS_4X4 = {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}};
+
+  private static final byte UNSEEN = -1;
+
+  private final Grid grid;
+  private final int[][] patterns;
+  // first byte of the table of each pattern
+  private final int[] offsets;
+  private final ByteBuffer tables;
+
+  private PatternDatabase(Grid grid, int[][] patterns, ByteBuffer tables) {
+    this.grid = grid;
+    this.patterns = patterns;
+    this.offsets = new int[patterns.length];
+    this.tables = tables;
+
+    long offset = 0;
+    for (int p = 0; p < patterns.length; p++) {
+      offsets[p] = (int) offset;
+      offset += tableBytes(grid, patterns[p].length);
+    }
+  }
+
+  /**
+   * @param grid geometry of the boards
+   * @return boolean: true -> {@link #defaultPatterns(Grid)} has a partition for 'grid'; false otherwise
+   */
+  public static boolean hasDefaultPatterns(Grid grid) {
+    return grid.getDimension() == 4;
+  }
+
+  /**
+   * @param grid geometry of the boards
+   * @return the default partition of the tiles of 'grid': 6-6-3 on 4x4 boards
+   */
+  public static int[][] defaultPatterns(Grid grid) {
+    if (!hasDefaultPatterns(grid)) throw new IllegalArgumentException("No default patterns for " + grid + " boards.");
+    return copy(PATTERNS_4X4);
+  }
+
+  /**
+   * it computes the database of the default patterns on every available processor
+   * @param grid geometry of the boards
+   * @return database backed by the heap
+   */
+  public static PatternDatabase compute(Grid grid) {
+    return compute(grid, defaultPatterns(grid), Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * it computes the database in memory, one pattern after another
+   * @param grid geometry of the boards
+   * @param patterns disjoint sets of labels (hole excluded); the tiles in none count their manhattan distance
+   * @param threads threads searching each pattern
+   * @return database backed by the heap
+   */
+  public static PatternDatabase compute(Grid grid, int[][] patterns, int threads) {
+    int[][] sorted = validate(grid, patterns);
+    if (threads < 1) throw new IllegalArgumentException("At least one thread is required.");
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      ByteBuffer tables = ByteBuffer.allocate((int) totalBytes(grid, sorted));
+      for (int[] pattern : sorted) tables.put(search(grid, pattern, pool, threads).bytes());
+      tables.clear();
+      return new PatternDatabase(grid, sorted, tables);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * it maps a database previously written by {@link #write(Path)}
+   * @param file database file
+   * @return database backed by the mapped file
+   * @throws IOException when the file cannot be read or is not a pattern database
+   */
+  public static PatternDatabase load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (channel.size() < 12 || mapped.getInt(0) != MAGIC) {
+        throw new IOException("Not a pattern database: " + file);
+      }
+
+      int dimension = mapped.getInt(4);
+      int count = mapped.getInt(8);
+      if (dimension < Grid.MIN_DIM || dimension > Grid.MAX_DIM || count < 1) {
+        throw new IOException("Not a pattern database: " + file);
+      }
+      Grid grid = Grid.of(dimension);
+      int headerSize = headerSize(grid);
+      if (channel.size() < headerSize) throw new IOException("Not a pattern database: " + file);
+
+      int[][] patterns;
+      try {
+        patterns = validate(grid, readPatterns(mapped, grid, count));
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Not a pattern database: " + file, e);
+      }
+      if (channel.size() != headerSize + totalBytes(grid, patterns)) {
+        throw new IOException("Not a pattern database: " + file);
+      }
+
+      return new PatternDatabase(grid, patterns, mapped.position(headerSize).slice());
+    }
+  }
+
+  /**
+   * it maps the database stored in 'file', computing the default patterns and writing it first if
+   * the file does not exist yet
+   * @param file database file
+   * @param grid geometry of the boards
+   * @return database backed by the mapped file
+   * @throws IOException when the file cannot be read or written, or it holds a database of other boards
+   */
+  public static PatternDatabase loadOrCreate(Path file, Grid grid) throws IOException {
+    if (!Files.exists(file)) compute(grid).write(file);
+
+    PatternDatabase database = load(file);
+    if (database.getGrid() != grid) {
+      throw new IOException(file + " is a pattern database of " + database.getGrid() + " boards.");
+    }
+    return database;
+  }
+
+  /**
+   * it stores the database to 'file'; the file is written aside and then moved in place, so that a
+   * concurrent {@link #load(Path)} never sees a partial database
+   * @param file database file
+   * @throws IOException when the file cannot be written
+   */
+  public void write(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(headerSize(grid))
+          .putInt(MAGIC).putInt(grid.getDimension()).putInt(patterns.length);
+      byte[] owners = new byte[grid.getSize() - 1];
+      Arrays.fill(owners, (byte) -1);
+      for (int p = 0; p < patterns.length; p++) {
+        for (int label : patterns[p]) owners[label - 1] = (byte) p;
+      }
+      header.put(owners).flip();
+      ByteBuffer body = tables.duplicate();
+      body.clear();
+
+      while (header.hasRemaining()) channel.write(header);
+      while (body.hasRemaining()) channel.write(body);
+    }
+
+    try {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @return labels of each pattern, in ascending order
+   */
+  public int[][] getPatterns() {
+    return copy(patterns);
+  }
+
+  /**
+   * @param packed packed board of the grid (see {@link BoardState#getPacked()})
+   * @return admissible estimate of the number of moves from 'packed' to the goal
+   */
+  public int estimate(long packed) {
+    int size = grid.getSize();
+    int hole = grid.getHole();
+
+    // slot of each label, 4 bits each, as labels are in a packed board
+    long slots = 0;
+    int manhattan = 0;
+    for (int i = 0; i < size; i++) {
+      int label = BoardState.labelAt(packed, i);
+      slots |= (long) i << ((label - 1) << 2);
+      if (label != hole) manhattan += grid.distance(i, label);
+    }
+
+    int extra = 0;
+    for (int p = 0; p < patterns.length; p++) {
+      int[] pattern = patterns[p];
+      int rank = 0;
+      int used = 0;
+      for (int j = 0; j < pattern.length; j++) {
+        int slot = (int) (slots >>> ((pattern[j] - 1) << 2)) & 0xF;
+        rank = rank * (size - j) + slot - Integer.bitCount(used & ((1 << slot) - 1));
+        used |= 1 << slot;
+      }
+      extra += nibble(p, rank);
+    }
+    return manhattan + 2 * extra;
+  }
+
+  private int nibble(int pattern, int rank) {
+    return (tables.get(offsets[pattern] + (rank >>> 1)) >>> ((rank & 1) << 2)) & NibbleArray.MAX_VALUE;
+  }
+
+  /**
+   * breadth-first search from the goal placement of 'pattern' and the hole, by levels of moves of the
+   * pattern tiles: the states of a level are first closed under the free moves of the hole among the
+   * other slots, and only then their pattern moves give the next level. Each phase splits its states
+   * among the threads; a state may be reached by two threads at once, but within a phase every write
+   * stores the same depth, so the race only costs a duplicate expansion
+   * @return half the extra moves over the manhattan distance, by rank of the placement of 'pattern'
+   */
+  static NibbleArray search(Grid grid, int[] pattern, ForkJoinPool pool, int threads) {
+    int size = grid.getSize();
+    int k = pattern.length;
+    byte[] depths = new byte[(int) permutations(size, k + 1)];
+    Arrays.fill(depths, UNSEEN);
+
+    int[] goal = new int[k + 1];
+    for (int j = 0; j < k; j++) goal[j] = pattern[j] - 1;
+    goal[k] = size - 1;
+    int start = rank(goal, k + 1, size);
+    depths[start] = 0;
+
+    IntList frontier = new IntList();
+    frontier.add(start);
+    for (int depth = 0; frontier.size() > 0; depth++) {
+      if (depth >= Byte.MAX_VALUE) throw new IllegalStateException("Pattern search too deep.");
+      final byte current = (byte) depth;
+      final byte next = (byte) (depth + 1);
+
+      List<Callable<IntList>> closures = new ArrayList<>();
+      int chunk = (frontier.size() + threads - 1) / threads;
+      for (int from = 0; from < frontier.size(); from += chunk) {
+        IntList part = frontier.copy(from, Math.min(frontier.size(), from + chunk));
+        closures.add(() -> close(grid, k, depths, part, current));
+      }
+      List<IntList> level = invokeAll(pool, closures);
+
+      List<Callable<IntList>> expansions = new ArrayList<>();
+      for (IntList part : level) expansions.add(() -> expand(grid, k, depths, part, next));
+      frontier = IntList.concat(invokeAll(pool, expansions));
+    }
+
+    // the hole is the last element of a state: the states of a placement are adjacent
+    int holeSlots = size - k;
+    NibbleArray table = new NibbleArray((int) permutations(size, k));
+    int[] slots = new int[k];
+    for (int rank = 0; rank < table.length(); rank++) {
+      int moves = Byte.MAX_VALUE;
+      for (int h = 0; h < holeSlots; h++) {
+        int depth = depths[rank * holeSlots + h];
+        if (depth != UNSEEN) moves = Math.min(moves, depth);
+      }
+
+      unrank(rank, slots, k, size);
+      int manhattan = 0;
+      for (int j = 0; j < k; j++) manhattan += grid.distance(slots[j], pattern[j]);
+      if (moves < manhattan || ((moves - manhattan) & 1) != 0) {
+        throw new IllegalStateException("Inconsistent pattern search at rank " + rank + ".");
+      }
+      table.set(rank, Math.min(NibbleArray.MAX_VALUE, (moves - manhattan) >>> 1));
+    }
+    return table;
+  }
+
+  /**
+   * @return 'part' followed by the states reached from it by free moves of the hole, all at 'depth'
+   */
+  private static IntList close(Grid grid, int k, byte[] depths, IntList part, byte depth) {
+    int size = grid.getSize();
+    int[] slots = new int[k + 1];
+
+    for (int i = 0; i < part.size(); i++) {
+      unrank(part.get(i), slots, k + 1, size);
+      int hole = slots[k];
+      for (int n = 0; n < grid.neighbourCount(hole); n++) {
+        int slot = grid.neighbour(hole, n);
+        if (indexOf(slots, k, slot) >= 0) continue;
+
+        slots[k] = slot;
+        int child = rank(slots, k + 1, size);
+        slots[k] = hole;
+        if (depths[child] == UNSEEN) {
+          depths[child] = depth;
+          part.add(child);
+        }
+      }
+    }
+    return part;
+  }
+
+  /**
+   * @return the unseen states reached from 'part' by a move of a pattern tile, now at 'depth'
+   */
+  private static IntList expand(Grid grid, int k, byte[] depths, IntList part, byte depth) {
+    int size = grid.getSize();
+    int[] slots = new int[k + 1];
+    IntList reached = new IntList();
+
+    for (int i = 0; i < part.size(); i++) {
+      unrank(part.get(i), slots, k + 1, size);
+      int hole = slots[k];
+      for (int n = 0; n < grid.neighbourCount(hole); n++) {
+        int slot = grid.neighbour(hole, n);
+        int tile = indexOf(slots, k, slot);
+        if (tile < 0) continue;
+
+        slots[tile] = hole;
+        slots[k] = slot;
+        int child = rank(slots, k + 1, size);
+        slots[tile] = slot;
+        slots[k] = hole;
+        if (depths[child] == UNSEEN) {
+          depths[child] = depth;
+          reached.add(child);
+        }
+      }
+    }
+    return reached;
+  }
+
+  private static List<IntList> invokeAll(ForkJoinPool pool, List<Callable<IntList>> tasks) {
+    try {
+      List<IntList> results = new ArrayList<>(tasks.size());
+      for (Future<IntList> result : pool.invokeAll(tasks)) results.add(result.get());
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Pattern search interrupted.", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Pattern search failed.", e.getCause());
+    }
+  }
+
+  /**
+   * @return rank of the partial permutation 'slots[0..count)' of 'size' slots
+   */
+  static int rank(int[] slots, int count, int size) {
+    int rank = 0;
+    long used = 0;
+    for (int j = 0; j < count; j++) {
+      int slot = slots[j];
+      rank = rank * (size - j) + slot - Long.bitCount(used & ((1L << slot) - 1));
+      used |= 1L << slot;
+    }
+    return rank;
+  }
+
+  /**
+   * it writes to 'slots[0..count)' the partial permutation of 'size' slots having the given rank
+   */
+  static void unrank(int rank, int[] slots, int count, int size) {
+    for (int j = count - 1; j >= 0; j--) {
+      slots[j] = rank % (size - j);
+      rank /= size - j;
+    }
+
+    long used = 0;
+    for (int j = 0; j < count; j++) {
+      // the slots[j]-th free slot
+      int slot = -1;
+      for (int free = slots[j]; free >= 0; free--) {
+        slot++;
+        while ((used & (1L << slot)) != 0) slot++;
+      }
+      slots[j] = slot;
+      used |= 1L << slot;
+    }
+  }
+
+  private static int indexOf(int[] slots, int count, int slot) {
+    for (int j = 0; j < count; j++) {
+      if (slots[j] == slot) return j;
+    }
+    return -1;
+  }
+
+  /**
+   * @return number of ways of placing 'count' tiles in 'size' slots
+   */
+  static long permutations(int size, int count) {
+    long result = 1;
+    for (int j = 0; j < count; j++) result *= size - j;
+    return result;
+  }
+
+  private static long tableBytes(Grid grid, int count) {
+    return (permutations(grid.getSize(), count) + 1) >>> 1;
+  }
+
+  private static long totalBytes(Grid grid, int[][] patterns) {
+    long total = 0;
+    for (int[] pattern : patterns) total += tableBytes(grid, pattern.length);
+    return total;
+  }
+
+  private static int headerSize(Grid grid) {
+    return 12 + grid.getSize() - 1;
+  }
+
+  private static int[][] readPatterns(ByteBuffer header, Grid grid, int count) {
+    int[] sizes = new int[count];
+    for (int label = 1; label < grid.getHole(); label++) {
+      int owner = header.get(12 + label - 1);
+      if (owner >= count) throw new IllegalArgumentException("Pattern " + owner + " out of range.");
+      if (owner >= 0) sizes[owner]++;
+    }
+
+    int[][] patterns = new int[count][];
+    for (int p = 0; p < count; p++) patterns[p] = new int[sizes[p]];
+    Arrays.fill(sizes, 0);
+    for (int label = 1; label < grid.getHole(); label++) {
+      int owner = header.get(12 + label - 1);
+      if (owner >= 0) patterns[owner][sizes[owner]++] = label;
+    }
+    return patterns;
+  }
+
+  /**
+   * @return the patterns, each one sorted
+   * @throws IllegalArgumentException when they are not disjoint sets of tiles or their search is too large
+   */
+  private static int[][] validate(Grid grid, int[][] patterns) {
+    // the solvers, the only users of the estimates, take packed boards
+    if (!grid.isPackable()) throw new IllegalArgumentException(grid + " boards are not supported.");
+    if (patterns.length == 0 || patterns.length > Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("Between 1 and " + Byte.MAX_VALUE + " patterns are required.");
+    }
+
+    int[][] sorted = copy(patterns);
+    boolean[] seen = new boolean[grid.getSize()];
+    for (int[] pattern : sorted) {
+      if (pattern.length == 0) throw new IllegalArgumentException("Empty pattern.");
+      if (permutations(grid.getSize(), pattern.length + 1) > MAX_STATES) {
+        throw new IllegalArgumentException("Pattern of " + pattern.length + " tiles too large for " + grid + " boards.");
+      }
+
+      Arrays.sort(pattern);
+      for (int label : pattern) {
+        if (label < 1 || label >= grid.getHole()) throw new IllegalArgumentException("Invalid tile " + label + ".");
+        if (seen[label]) throw new IllegalArgumentException("Tile " + label + " in more than one pattern.");
+        seen[label] = true;
+      }
+    }
+    if (totalBytes(grid, sorted) > MAX_STATES) throw new IllegalArgumentException("Patterns too large for " + grid + " boards.");
+    return sorted;
+  }
+
+  private static int[][] copy(int[][] patterns) {
+    int[][] copy = new int[patterns.length][];
+    for (int p = 0; p < patterns.length; p++) copy[p] = patterns[p].clone();
+    return copy;
+  }
+
+  /**
+   * growable list of state ranks
+   */
+  private static final class IntList {
+
+    private int[] values = new int[1 << 10];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) values = Arrays.copyOf(values, size * 2);
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int size() {
+      return size;
+    }
+
+    IntList copy(int from, int to) {
+      IntList copy = new IntList();
+      copy.values = Arrays.copyOfRange(values, from, Math.max(to, from + 1));
+      copy.size = to - from;
+      return copy;
+    }
+
+    static IntList concat(List<IntList> lists) {
+      int total = 0;
+      for (IntList list : lists) total += list.size;
+
+      IntList result = new IntList();
+      result.values = new int[Math.max(total, 1)];
+      for (IntList list : lists) {
+        System.arraycopy(list.values, 0, result.values, result.size, list.size);
+        result.size += list.size;
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.mamarino.puzzle.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text form of a board, the same produced by the {@code List<Integer>} fired with {@code RESTART_EVT}
+ * (f.i. "[8, 6, 7, 2, 5, 4, 3, 9, 1]"). When parsing, brackets are optional and labels can be
+ * separated by any non-digit character, so "8,6,7,2,5,4,3,9,1" and "8 6 7 2 5 4 3 9 1" are accepted too.
+ */
+public final class PermutationFormat {
+
+  private PermutationFormat() {}
+
+  /**
+   * it parses a board straight into its packed form, without boxing
+   * @param text board in text form
+   * @param grid geometry of the board, up to 4x4
+   * @return packed board
+   * @throws IllegalArgumentException when the text is not a permutation of the grid labels
+   */
+  public static long parse(CharSequence text, Grid grid) {
+    if (!grid.isPackable()) throw new UnsupportedOperationException(grid + " boards cannot be packed.");
+
+    long packed = 0L;
+    int seen = 0;
+    int count = 0;
+    int label = -1;
+
+    for (int i = 0; i <= text.length(); i++) {
+      char c = i < text.length() ? text.charAt(i) : ' ';
+
+      if (c >= '0' && c <= '9') {
+        label = (label < 0 ? 0 : label * 10) + (c - '0');
+        if (label > grid.getSize()) throw invalid(text, grid);
+        continue;
+      }
+
+      if (label < 0) continue;
+
+      if (label == 0 || count == grid.getSize() || (seen & (1 << label)) != 0) throw invalid(text, grid);
+
+      seen |= 1 << label;
+      packed = BoardState.withLabel(packed, count++, label);
+      label = -1;
+    }
+
+    if (count != grid.getSize()) throw invalid(text, grid);
+    return packed;
+  }
+
+  /**
+   * @param packed packed board
+   * @param grid geometry of the board
+   * @return labels from position 1 to dim * dim, same format fired with {@code RESTART_EVT}
+   */
+  public static List<Integer> toList(long packed, Grid grid) {
+    List<Integer> permutation = new ArrayList<>(grid.getSize());
+    for (int i = 0; i < grid.getSize(); i++) permutation.add(BoardState.labelAt(packed, i));
+    return permutation;
+  }
+
+  /**
+   * @param packed packed board
+   * @param grid geometry of the board
+   * @param builder destination of the board in text form, f.i. "[8, 6, 7, 2, 5, 4, 3, 9, 1]"
+   * @return 'builder'
+   */
+  public static StringBuilder format(long packed, Grid grid, StringBuilder builder) {
+    builder.append('[');
+    for (int i = 0; i < grid.getSize(); i++) {
+      if (i > 0) builder.append(", ");
+      builder.append(BoardState.labelAt(packed, i));
+    }
+    return builder.append(']');
+  }
+
+  private static IllegalArgumentException invalid(CharSequence text, Grid grid) {
+    return new IllegalArgumentException("Not a " + grid + " permutation: " + text);
+  }
+}
@@ -0,0 +1,174 @@
+package com.mamarino.puzzle.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bulk storage of many {@link GameSnapshot}s in a single file, written and read through one file
+ * channel with a large buffer, so that hundreds of thousands of games move in a few system calls.
+ * <p>
+ * Layout: a header (magic number and {@link GameSnapshot#VERSION}) followed by records, each one a
+ * varint game id followed by the snapshot. A file is either written or read by one thread.
+ */
+public final class SnapshotFile {
+
+  static final int MAGIC = 0x3850534E; // "8PSN"
+  static final int HEADER_SIZE = 5;
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private SnapshotFile() {}
+
+  /**
+   * @param file destination file, replaced if it exists
+   * @return writer of the records, to be closed
+   * @throws IOException when the file cannot be created
+   */
+  public static Writer create(Path file) throws IOException {
+    return new Writer(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING));
+  }
+
+  /**
+   * @param file file written by a {@link Writer}
+   * @return reader of the records, to be closed
+   * @throws IOException when the file cannot be read or it is not a snapshot file
+   */
+  public static Reader open(Path file) throws IOException {
+    return new Reader(FileChannel.open(file, StandardOpenOption.READ));
+  }
+
+  /**
+   * Sequential writer of snapshot records
+   */
+  public static final class Writer implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long count;
+
+    private Writer(FileChannel channel) throws IOException {
+      this.channel = channel;
+      buffer.putInt(MAGIC).put(GameSnapshot.VERSION);
+    }
+
+    /**
+     * @param id game id
+     * @param snapshot state of the game
+     * @throws IOException when the file cannot be written
+     */
+    public void append(long id, GameSnapshot snapshot) throws IOException {
+      int size = 10 + snapshot.maxSize();
+      if (buffer.remaining() < size) flush();
+      if (buffer.remaining() < size) throw new IOException("Snapshot too large: " + size + " bytes.");
+
+      GameSnapshot.putVarint(buffer, id);
+      snapshot.write(buffer);
+      count++;
+    }
+
+    /**
+     * @return records appended so far
+     */
+    public long getCount() {
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+      } finally {
+        channel.close();
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) channel.write(buffer);
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Sequential reader of snapshot records
+   */
+  public static final class Reader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean eof;
+    private long id;
+    private GameSnapshot snapshot;
+
+    private Reader(FileChannel channel) throws IOException {
+      this.channel = channel;
+      buffer.flip();
+      fill();
+
+      if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+        channel.close();
+        throw new IOException("Not a snapshot file.");
+      }
+      byte version = buffer.get();
+      if (version != GameSnapshot.VERSION) {
+        channel.close();
+        throw new IOException("Unsupported snapshot version " + version + ".");
+      }
+    }
+
+    /**
+     * it moves to the next record
+     * @return boolean: true -> a record has been read; false -> the end of the file has been reached
+     * @throws IOException when the file cannot be read or a record is corrupted or truncated
+     */
+    public boolean next() throws IOException {
+      // a record is far smaller than the buffer: refilling when less than half is left keeps it whole
+      if (buffer.remaining() < BUFFER_SIZE / 2) fill();
+      if (!buffer.hasRemaining()) return false;
+
+      try {
+        id = GameSnapshot.getVarint(buffer);
+        snapshot = GameSnapshot.read(buffer);
+        return true;
+      } catch (RuntimeException e) {
+        throw new IOException("Corrupted snapshot record: " + e.getMessage(), e);
+      }
+    }
+
+    /**
+     * @return id of the game of the record just read
+     */
+    public long getId() {
+      return id;
+    }
+
+    /**
+     * @return snapshot of the record just read
+     */
+    public GameSnapshot getSnapshot() {
+      return snapshot;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+
+    private void fill() throws IOException {
+      if (eof) return;
+
+      buffer.compact();
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          eof = true;
+          break;
+        }
+      }
+      buffer.flip();
+    }
+  }
+}
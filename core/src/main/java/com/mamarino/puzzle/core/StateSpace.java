@@ -0,0 +1,204 @@
+package com.mamarino.puzzle.core;
+
+import java.util.BitSet;
+
+/**
+ * Dense ranking of the packed boards of a grid (up to 4x4), so that search and analysis code can
+ * keep visited sets and per-board values in flat structures indexed by rank instead of hashing
+ * boards:
+ * <ul>
+ *   <li>{@link #full(Grid)}: every permutation, (dim * dim)! ranks in lexicographic order (Lehmer
+ *   code). It is the space reachable when flips are allowed;</li>
+ *   <li>{@link #solvable(Grid)}: the boards reachable with regular moves only, half the permutations.
+ *   The rank is hole index * (size - 1)! / 2 + lexicographic rank of the tiles (hole excluded) / 2:
+ *   swapping the last two tiles flips the parity, so consecutive tile ranks pair a solvable
+ *   permutation with an unsolvable one.</li>
+ * </ul>
+ * Ranks are longs: a 4x4 space has 16! (about 2 * 10^13) boards. {@link #newVisitedSet()} and
+ * {@link #newNibbleArray()} need a space of at most {@link Integer#MAX_VALUE} boards (3x3 and 2x2).
+ * Larger boards have no dense rank: they are identified by a 64-bit {@link ZobristHash} instead, and
+ * kept in a {@link HashedVisitedSet}.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class StateSpace {
+
+  private static final long[] FACTORIALS = new long[Grid.MAX_PACKED_SIZE + 1];
+
+  static {
+    FACTORIALS[0] = 1;
+    for (int i = 1; i <= Grid.MAX_PACKED_SIZE; i++) FACTORIALS[i] = FACTORIALS[i - 1] * i;
+  }
+
+  private final Grid grid;
+  private final boolean solvableOnly;
+  private final long size;
+
+  private StateSpace(Grid grid, boolean solvableOnly) {
+    if (!grid.isPackable()) {
+      throw new UnsupportedOperationException(grid + " boards cannot be packed, use a ZobristHash instead.");
+    }
+
+    this.grid = grid;
+    this.solvableOnly = solvableOnly;
+    this.size = solvableOnly ? FACTORIALS[grid.getSize()] / 2 : FACTORIALS[grid.getSize()];
+  }
+
+  /**
+   * @param grid geometry of the boards, up to 4x4
+   * @return space of every permutation of the grid labels
+   */
+  public static StateSpace full(Grid grid) {
+    return new StateSpace(grid, false);
+  }
+
+  /**
+   * @param grid geometry of the boards, up to 4x4
+   * @return space of the boards that can reach the goal without flips
+   */
+  public static StateSpace solvable(Grid grid) {
+    return new StateSpace(grid, true);
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  public boolean isSolvableOnly() {
+    return solvableOnly;
+  }
+
+  /**
+   * @return number of boards of the space
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * @param packed packed board of the space
+   * @return rank of the board, in [0, {@link #size()})
+   * @throws IllegalArgumentException when the space is the solvable one and the board is not solvable
+   */
+  public long rank(long packed) {
+    int n = grid.getSize();
+    if (!solvableOnly) return lehmerRank(packed, n, -1);
+
+    int hole = grid.holeIndex(packed);
+    long tilesRank = lehmerRank(packed, n, hole);
+    if (((inversionParity(tilesRank, n - 1) + grid.holeParity(hole)) & 1) != 0) {
+      throw new IllegalArgumentException("Board is not solvable: " + new BoardState(grid, packed));
+    }
+    return hole * (FACTORIALS[n - 1] / 2) + tilesRank / 2;
+  }
+
+  /**
+   * @param rank rank, in [0, {@link #size()})
+   * @return packed board having that rank
+   */
+  public long unrank(long rank) {
+    if (rank < 0 || rank >= size) throw new IllegalArgumentException("Rank " + rank + " out of range [0, " + size + ").");
+
+    int n = grid.getSize();
+    if (!solvableOnly) return lehmerUnrank(rank, n, -1);
+
+    long half = FACTORIALS[n - 1] / 2;
+    int hole = (int) (rank / half);
+    long tilesRank = (rank % half) * 2;
+    long packed = lehmerUnrank(tilesRank, n, hole);
+
+    // the other board of the pair (last two tiles switched) is the solvable one
+    if (((inversionParity(tilesRank, n - 1) + grid.holeParity(hole)) & 1) != 0) {
+      int last = hole == n - 1 ? n - 2 : n - 1;
+      int beforeLast = hole >= n - 2 ? n - 3 : n - 2;
+      packed = BoardState.swap(packed, beforeLast, last);
+    }
+    return packed;
+  }
+
+  /**
+   * @return empty set of boards, one bit per rank
+   */
+  public BitSet newVisitedSet() {
+    return new BitSet(intSize());
+  }
+
+  /**
+   * @return array of 4 bits values, one per rank, all 0
+   */
+  public NibbleArray newNibbleArray() {
+    return new NibbleArray(intSize());
+  }
+
+  @Override
+  public String toString() {
+    return (solvableOnly ? "solvable " : "full ") + grid + " space";
+  }
+
+  private int intSize() {
+    if (size > Integer.MAX_VALUE) throw new UnsupportedOperationException(this + " is too large to be indexed by int.");
+    return (int) size;
+  }
+
+  /**
+   * the Lehmer digits of a permutation add up to its inversions
+   * @param rank lexicographic rank of a permutation of 'length' values
+   * @return parity of the inversions of the permutation
+   */
+  private static int inversionParity(long rank, int length) {
+    int digits = 0;
+    for (int k = 0; k < length; k++) {
+      long factorial = FACTORIALS[length - 1 - k];
+      digits += (int) (rank / factorial);
+      rank %= factorial;
+    }
+    return digits & 1;
+  }
+
+  /**
+   * @param skip slot left out of the permutation (the hole), -1 to rank every slot
+   */
+  private static long lehmerRank(long packed, int n, int skip) {
+    int length = skip < 0 ? n : n - 1;
+    long rank = 0;
+    int used = 0;
+
+    for (int i = 0, k = 0; i < n; i++) {
+      if (i == skip) continue;
+
+      int value = BoardState.labelAt(packed, i) - 1;
+      // Lehmer digit: how many labels smaller than this one are still available
+      int digit = value - Integer.bitCount(used & ((1 << value) - 1));
+      rank += digit * FACTORIALS[length - 1 - k++];
+      used |= 1 << value;
+    }
+    return rank;
+  }
+
+  /**
+   * @param skip slot holding the hole, left out of the permutation; -1 to unrank every slot
+   */
+  private static long lehmerUnrank(long rank, int n, int skip) {
+    int length = skip < 0 ? n : n - 1;
+    long packed = skip < 0 ? 0L : BoardState.withLabel(0L, skip, n);
+    int used = 0;
+
+    for (int i = 0, k = 0; i < n; i++) {
+      if (i == skip) continue;
+
+      long factorial = FACTORIALS[length - 1 - k++];
+      int digit = (int) (rank / factorial);
+      rank %= factorial;
+
+      // pick the digit-th label still available
+      int value = 0;
+      while (true) {
+        if ((used & (1 << value)) == 0 && digit-- == 0) break;
+        value++;
+      }
+
+      used |= 1 << value;
+      packed = BoardState.withLabel(packed, i, value + 1);
+    }
+    return packed;
+  }
+}
@@ -0,0 +1,72 @@
+package com.mamarino.puzzle.core;
+
+import java.util.SplittableRandom;
+
+/**
+ * 64-bit Zobrist hash of the boards of any grid, for the boards which do not fit in a packed long
+ * and therefore have no rank in a {@link StateSpace}: a random key for each (slot, label) pair, the
+ * hash of a board being the xor of the keys of its tiles. A move or a flip switches the labels of
+ * two slots, so the hash is updated by xoring four keys, with no pass over the board (see
+ * {@link #swap(long, byte[], int, int)}).
+ * <p>
+ * Distinct boards share a hash with probability about n^2 / 2^65 among n boards (less than 10^-7 for
+ * a billion boards): a {@link HashedVisitedSet} of hashes is exact for any practical search.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class ZobristHash {
+
+  private static final long DEFAULT_SEED = 0x8B0A2D5E3C71F4A9L;
+
+  private final Grid grid;
+  // key of label l in slot i at i * size + (l - 1)
+  private final long[] keys;
+
+  /**
+   * @param grid geometry of the boards, of any size
+   */
+  public ZobristHash(Grid grid) {
+    this(grid, DEFAULT_SEED);
+  }
+
+  /**
+   * @param grid geometry of the boards, of any size
+   * @param seed seed of the keys: hashes are comparable only between instances built with the same seed
+   */
+  public ZobristHash(Grid grid, long seed) {
+    this.grid = grid;
+    this.keys = new long[grid.getSize() * grid.getSize()];
+
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int i = 0; i < keys.length; i++) keys[i] = random.nextLong();
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @param tiles labels of a board of the grid, by slot, as in {@link Grid#isSolvable(byte[])}
+   * @return hash of the board
+   */
+  public long hash(byte[] tiles) {
+    long hash = 0L;
+    for (int i = 0; i < tiles.length; i++) hash ^= key(i, tiles[i]);
+    return hash;
+  }
+
+  /**
+   * @param hash hash of 'tiles'
+   * @param tiles board before the switch, left unchanged
+   * @param a slot index
+   * @param b slot index
+   * @return hash of the board once the labels in slots 'a' and 'b' are switched, f.i. by a move of
+   *         the tile in 'a' into the hole in 'b', or by a flip
+   */
+  public long swap(long hash, byte[] tiles, int a, int b) {
+    return hash ^ key(a, tiles[a]) ^ key(b, tiles[b]) ^ key(a, tiles[b]) ^ key(b, tiles[a]);
+  }
+
+  private long key(int index, int label) {
+    return keys[index * grid.getSize() + label - 1];
+  }
+}
@@ -0,0 +1,125 @@
+package com.mamarino.puzzle.journal;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary layout of a move journal. The file starts with a header (magic, version, board dimension)
+ * followed by records, each one introduced by a tag byte:
+ * <pre>
+ *   RESTART     board                      a new board is dealt
+ *   CHECKPOINT  events (long), board       board after the first 'events' events
+ *   FLIP                                   tiles 1 and 2 switched
+ *   MOVES       count (1..255), directions run of moves, 2 bits each, 4 per byte, lowest bits first
+ * </pre>
+ * A move is stored as the direction the hole moves to (see {@link #UP}, ...), so a run of moves takes
+ * a little more than 2 bits per move. Boards up to 4x4 are stored packed in a long, bigger boards
+ * take a byte per slot. Restarts, flips and moves are events; checkpoints are not.
+ */
+final class JournalFormat {
+
+  static final int MAGIC = 0x385A504A;
+  static final byte VERSION = 1;
+  static final int HEADER_SIZE = 6;
+
+  static final byte RESTART = 1;
+  static final byte CHECKPOINT = 2;
+  static final byte FLIP = 3;
+  static final byte MOVES = 4;
+
+  static final int MAX_RUN = 255;
+
+  // directions of the hole
+  static final int UP = 0;
+  static final int DOWN = 1;
+  static final int LEFT = 2;
+  static final int RIGHT = 3;
+
+  private JournalFormat() {}
+
+  static int boardSize(Grid grid) {
+    return grid.isPackable() ? Long.BYTES : grid.getSize();
+  }
+
+  /**
+   * @param grid geometry of the board
+   * @param hole 0-based index of the hole
+   * @param tile 0-based index of the tile moved into the hole
+   * @return direction the hole moves to
+   */
+  static int direction(Grid grid, int hole, int tile) {
+    if (tile == hole - grid.getDimension()) return UP;
+    if (tile == hole + grid.getDimension()) return DOWN;
+    return tile == hole - 1 ? LEFT : RIGHT;
+  }
+
+  /**
+   * @param grid geometry of the board
+   * @param hole 0-based index of the hole
+   * @param direction direction the hole moves to
+   * @return 0-based index of the tile moved into the hole
+   */
+  static int tile(Grid grid, int hole, int direction) {
+    switch (direction) {
+      case UP:
+        return hole - grid.getDimension();
+      case DOWN:
+        return hole + grid.getDimension();
+      case LEFT:
+        return hole - 1;
+      default:
+        return hole + 1;
+    }
+  }
+
+  static void writeHeader(ByteBuffer buffer, Grid grid) {
+    buffer.putInt(MAGIC).put(VERSION).put((byte) grid.getDimension());
+  }
+
+  /**
+   * @return geometry of the boards of the journal
+   * @throws IllegalArgumentException when the header is not a journal header
+   */
+  static Grid readHeader(ByteBuffer buffer) {
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+      throw new IllegalArgumentException("Not a move journal.");
+    }
+    return Grid.of(buffer.get());
+  }
+
+  /**
+   * @return goal board of the grid, to be overwritten with a recorded one
+   */
+  static BoardState newBoard(Grid grid) {
+    if (grid.isPackable()) return new BoardState(grid, grid.goal());
+
+    List<Integer> goal = new ArrayList<>(grid.getSize());
+    for (int label = 1; label <= grid.getSize(); label++) goal.add(label);
+    return new BoardState(goal);
+  }
+
+  static void writeBoard(ByteBuffer buffer, BoardState board) {
+    if (board.getGrid().isPackable()) {
+      buffer.putLong(board.getPacked());
+      return;
+    }
+
+    for (int position = 1; position <= board.getGrid().getSize(); position++) buffer.put((byte) board.get(position));
+  }
+
+  static void readBoard(ByteBuffer buffer, int offset, BoardState board) {
+    Grid grid = board.getGrid();
+    if (grid.isPackable()) {
+      board.set(buffer.getLong(offset));
+      return;
+    }
+
+    List<Integer> permutation = new ArrayList<>(grid.getSize());
+    for (int i = 0; i < grid.getSize(); i++) permutation.add((int) buffer.get(offset + i));
+    board.set(permutation);
+  }
+}
@@ -0,0 +1,193 @@
+package com.mamarino.puzzle.journal;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped reader of a journal written by {@link MoveJournal}. At open the records are scanned
+ * once, without decoding the moves, to index the restarts and the checkpoints by event number;
+ * {@link #stateAt(long)} then starts from the nearest indexed board and replays only the events
+ * that follow it.
+ * <p>
+ * Journals up to 2 GB can be mapped. A record cut off at the end of the file (f.i. by a crash while
+ * it was being written) is ignored.
+ */
+public final class JournalReader implements Closeable {
+
+  private final FileChannel channel;
+  private final MappedByteBuffer data;
+  private final Grid grid;
+  private final int validLength;
+  private final long eventCount;
+
+  // indexed boards: events replayed once the board is set and offset of the board in the file
+  private long[] indexEvents = new long[16];
+  private int[] indexOffsets = new int[16];
+  private int indexSize;
+
+  private JournalReader(FileChannel channel) throws IOException {
+    this.channel = channel;
+    if (channel.size() > Integer.MAX_VALUE) throw new IOException("Journal too large to be mapped: " + channel.size());
+
+    this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    this.grid = JournalFormat.readHeader(data.duplicate());
+
+    int boardSize = JournalFormat.boardSize(grid);
+    int limit = data.limit();
+    int offset = JournalFormat.HEADER_SIZE;
+    long events = 0;
+
+    scan:
+    while (offset < limit) {
+      byte tag = data.get(offset);
+      switch (tag) {
+        case JournalFormat.RESTART:
+          if (offset + 1 + boardSize > limit) break scan;
+          index(++events, offset + 1);
+          offset += 1 + boardSize;
+          break;
+
+        case JournalFormat.CHECKPOINT:
+          if (offset + 1 + Long.BYTES + boardSize > limit) break scan;
+          index(data.getLong(offset + 1), offset + 1 + Long.BYTES);
+          offset += 1 + Long.BYTES + boardSize;
+          break;
+
+        case JournalFormat.FLIP:
+          events++;
+          offset++;
+          break;
+
+        case JournalFormat.MOVES:
+          if (offset + 2 > limit) break scan;
+          int runLength = data.get(offset + 1) & 0xFF;
+          if (offset + 2 + ((runLength + 3) >> 2) > limit) break scan;
+          events += runLength;
+          offset += 2 + ((runLength + 3) >> 2);
+          break;
+
+        default:
+          throw new IOException("Corrupted journal: unknown record " + tag + " at offset " + offset + ".");
+      }
+    }
+
+    this.validLength = offset;
+    this.eventCount = events;
+  }
+
+  /**
+   * @param path journal file
+   * @return reader of the journal
+   * @throws IOException when the file cannot be mapped or is corrupted
+   * @throws IllegalArgumentException when the file is not a journal
+   */
+  public static JournalReader open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new JournalReader(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @return number of restarts, flips and moves recorded
+   */
+  public long getEventCount() {
+    return eventCount;
+  }
+
+  /**
+   * @return length in bytes of the complete records, header included
+   */
+  public long getValidLength() {
+    return validLength;
+  }
+
+  /**
+   * @param events number of events to be replayed, from 0 to {@link #getEventCount()}
+   * @return board after the first 'events' events, or null when no board had been dealt yet
+   */
+  public BoardState stateAt(long events) {
+    if (events < 0 || events > eventCount) {
+      throw new IllegalArgumentException("Event " + events + " out of range [0, " + eventCount + "].");
+    }
+
+    // last indexed board not after 'events'
+    int entry = Arrays.binarySearch(indexEvents, 0, indexSize, events);
+    if (entry < 0) entry = -entry - 2;
+    // equal events (a checkpoint right after a restart): the last one is as good as the first
+    while (entry + 1 < indexSize && indexEvents[entry + 1] == events) entry++;
+    if (entry < 0) return null;
+
+    BoardState board = JournalFormat.newBoard(grid);
+    JournalFormat.readBoard(data, indexOffsets[entry], board);
+
+    // the indexed board closes its record
+    replay(board, indexOffsets[entry] + JournalFormat.boardSize(grid), indexEvents[entry], events);
+    return board;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void replay(BoardState board, int offset, long from, long to) {
+    int boardSize = JournalFormat.boardSize(grid);
+    long events = from;
+
+    while (events < to) {
+      byte tag = data.get(offset);
+      switch (tag) {
+        case JournalFormat.RESTART:
+          JournalFormat.readBoard(data, offset + 1, board);
+          events++;
+          offset += 1 + boardSize;
+          break;
+
+        case JournalFormat.CHECKPOINT:
+          offset += 1 + Long.BYTES + boardSize;
+          break;
+
+        case JournalFormat.FLIP:
+          board.flip();
+          events++;
+          offset++;
+          break;
+
+        default:
+          int runLength = data.get(offset + 1) & 0xFF;
+          for (int i = 0; i < runLength && events < to; i++, events++) {
+            int direction = (data.get(offset + 2 + (i >> 2)) >> ((i & 3) << 1)) & 3;
+            board.move(JournalFormat.tile(grid, board.getHolePosition() - 1, direction) + 1);
+          }
+          offset += 2 + ((runLength + 3) >> 2);
+          break;
+      }
+    }
+  }
+
+  private void index(long events, int boardOffset) {
+    if (indexSize == indexEvents.length) {
+      indexEvents = Arrays.copyOf(indexEvents, indexSize * 2);
+      indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+    }
+    indexEvents[indexSize] = events;
+    indexOffsets[indexSize] = boardOffset;
+    indexSize++;
+  }
+}
@@ -0,0 +1,212 @@
+package com.mamarino.puzzle.journal;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only binary journal of the restarts, flips and moves of a board (see {@link JournalFormat}
+ * for the layout). Records are collected in a buffer and written to the file channel together (group
+ * commit): when the buffer is full, on {@link #commit()} and on {@link #close()}. A checkpoint with
+ * the whole board is written every 'checkpointInterval' events, so that {@link JournalReader} can
+ * rebuild any state without replaying the journal from the start.
+ * <p>
+ * The journal follows the board on its own: a move is recorded by the position of the tile moved,
+ * as in {@code EightController}, and it must be legal. A journal is not thread-safe.
+ */
+public final class MoveJournal implements Closeable {
+
+  public static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final Grid grid;
+  private final int checkpointInterval;
+  private final boolean durable;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  // current run of moves, not written to the buffer yet
+  private final byte[] run = new byte[(JournalFormat.MAX_RUN + 3) / 4];
+  private int runLength;
+
+  private BoardState board;
+  private long events;
+  private int eventsSinceCheckpoint;
+
+  private MoveJournal(FileChannel channel, Grid grid, int checkpointInterval, boolean durable) {
+    this.channel = channel;
+    this.grid = grid;
+    this.checkpointInterval = checkpointInterval;
+    this.durable = durable;
+  }
+
+  /**
+   * it opens a journal for appending, creating it when it does not exist. The events of an existing
+   * journal are replayed to recover the board; a record cut off by a crash is discarded
+   * @param path journal file
+   * @param grid geometry of the board
+   * @param checkpointInterval number of events between two checkpoints
+   * @param durable whether every commit forces the data to the storage device
+   * @return journal positioned at its end
+   * @throws IOException when the file cannot be opened or read
+   * @throws IllegalArgumentException when the file is not a journal of 'grid' boards
+   */
+  public static MoveJournal open(Path path, Grid grid, int checkpointInterval, boolean durable) throws IOException {
+    if (checkpointInterval <= 0) throw new IllegalArgumentException("Checkpoint interval must be positive.");
+
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MoveJournal journal = new MoveJournal(channel, grid, checkpointInterval, durable);
+
+    try {
+      if (channel.size() == 0) {
+        JournalFormat.writeHeader(journal.buffer, grid);
+        return journal;
+      }
+
+      try (JournalReader reader = JournalReader.open(path)) {
+        if (!reader.getGrid().equals(grid)) {
+          throw new IllegalArgumentException(path + " is a journal of " + reader.getGrid() + " boards.");
+        }
+
+        if (reader.getValidLength() < channel.size()) channel.truncate(reader.getValidLength());
+        channel.position(reader.getValidLength());
+        journal.events = reader.getEventCount();
+        journal.board = reader.stateAt(journal.events);
+      }
+      return journal;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public static MoveJournal open(Path path, Grid grid) throws IOException {
+    return open(path, grid, DEFAULT_CHECKPOINT_INTERVAL, false);
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @return number of events recorded, the ones of the existing journal included
+   */
+  public long getEventCount() {
+    return events;
+  }
+
+  /**
+   * @param permutation labels from position 1 to dim * dim, same format fired with {@code RESTART_EVT}
+   * @throws IllegalArgumentException when the permutation is not a board of the journal grid
+   */
+  public void restart(List<Integer> permutation) throws IOException {
+    if (permutation.size() != grid.getSize()) {
+      throw new IllegalArgumentException("Permutation must have exactly " + grid.getSize() + " values.");
+    }
+    if (board == null) board = new BoardState(permutation);
+    else board.set(permutation);
+
+    flushRun();
+    reserve(1 + JournalFormat.boardSize(grid));
+    buffer.put(JournalFormat.RESTART);
+    JournalFormat.writeBoard(buffer, board);
+
+    events++;
+    // a restart holds the whole board, as a checkpoint does
+    eventsSinceCheckpoint = 0;
+  }
+
+  /**
+   * @param position 1-based position of the tile moved into the hole
+   * @throws IllegalStateException when no board has been dealt yet
+   * @throws IllegalArgumentException when the move is not legal
+   */
+  public void move(int position) throws IOException {
+    checkBoard();
+    int hole = board.getHolePosition() - 1;
+    if (!board.move(position)) throw new IllegalArgumentException("Illegal move of position " + position + ".");
+
+    int direction = JournalFormat.direction(grid, hole, position - 1);
+    run[runLength >> 2] |= (byte) (direction << ((runLength & 3) << 1));
+    if (++runLength == JournalFormat.MAX_RUN) flushRun();
+
+    recorded();
+  }
+
+  /**
+   * it records a flip; flips that cannot be applied (hole not in the last position) are ignored
+   * @throws IllegalStateException when no board has been dealt yet
+   */
+  public void flip() throws IOException {
+    checkBoard();
+    if (!board.flip()) return;
+
+    flushRun();
+    reserve(1);
+    buffer.put(JournalFormat.FLIP);
+
+    recorded();
+  }
+
+  /**
+   * it writes the buffered records to the file, forcing them to the device when the journal is durable
+   */
+  public void commit() throws IOException {
+    flushRun();
+    writeBuffer();
+    if (durable) channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      commit();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void recorded() throws IOException {
+    events++;
+    if (++eventsSinceCheckpoint < checkpointInterval) return;
+
+    flushRun();
+    reserve(1 + Long.BYTES + JournalFormat.boardSize(grid));
+    buffer.put(JournalFormat.CHECKPOINT).putLong(events);
+    JournalFormat.writeBoard(buffer, board);
+    eventsSinceCheckpoint = 0;
+  }
+
+  private void flushRun() throws IOException {
+    if (runLength == 0) return;
+
+    int bytes = (runLength + 3) >> 2;
+    reserve(2 + bytes);
+    buffer.put(JournalFormat.MOVES).put((byte) runLength).put(run, 0, bytes);
+
+    Arrays.fill(run, 0, bytes, (byte) 0);
+    runLength = 0;
+  }
+
+  private void reserve(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) writeBuffer();
+  }
+
+  private void writeBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) channel.write(buffer);
+    buffer.clear();
+  }
+
+  private void checkBoard() {
+    if (board == null) throw new IllegalStateException("No board has been dealt yet.");
+  }
+}
@@ -0,0 +1,41 @@
+package com.mamarino.puzzle.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a failure the game recovers from on its own, f.i. a journal dropped by the controller
+ * or a connection the server could not accept.
+ */
+@Name("com.mamarino.puzzle.Failure")
+@Label("Failure")
+@Category("8Puzzle")
+@Description("Failure recovered by the game")
+public class FailureEvent extends jdk.jfr.Event {
+
+  @Label("Component")
+  public String component;
+
+  @Label("Cause")
+  public Class<?> cause;
+
+  @Label("Message")
+  public String message;
+
+  /**
+   * it commits an event, when a recording enables them
+   * @param component part of the game which failed
+   * @param cause failure
+   */
+  static void report(String component, Throwable cause) {
+    FailureEvent event = new FailureEvent();
+    if (!event.shouldCommit()) return;
+
+    event.component = component;
+    event.cause = cause.getClass();
+    event.message = cause.getMessage();
+    event.commit();
+  }
+}
@@ -0,0 +1,212 @@
+package com.mamarino.puzzle.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and latency histograms of the game hot paths. They are switched on with
+ * {@code -Dpuzzle.metrics=true}: {@link #ENABLED} is a constant, so when it is false the JIT drops
+ * the instrumentation altogether. Counters are {@link LongAdder}s and histograms are lock-free, so
+ * recording never blocks.
+ * <p>
+ * JFR events ({@link MoveEvent}, {@link RestartEvent}, {@link FailureEvent}) do not depend on this switch: they are
+ * recorded whenever a JFR recording enables them.
+ */
+public final class GameMetrics {
+
+  public static final boolean ENABLED = Boolean.getBoolean("puzzle.metrics");
+
+  private static final LongAdder ACCEPTED = new LongAdder();
+  private static final LongAdder VETOED = new LongAdder();
+  private static final LongAdder FLIPPED = new LongAdder();
+  private static final LongAdder RESTARTED = new LongAdder();
+  private static final LongAdder JOURNALS_DROPPED = new LongAdder();
+  private static final LongAdder ACCEPT_FAILURES = new LongAdder();
+  private static final LongAdder LISTENER_FAILURES = new LongAdder();
+  private static final LatencyHistogram MOVE_LATENCY = new LatencyHistogram("vetoableChange");
+  private static final LatencyHistogram REPAINT_LATENCY = new LatencyHistogram("tileRepaint");
+
+  private GameMetrics() {}
+
+  /**
+   * @return start time to be passed to the recording methods, 0 when metrics are disabled
+   */
+  public static long start() {
+    return ENABLED ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * @param start value returned by {@link #start()} when the validation began
+   */
+  public static void moveAccepted(long start) {
+    if (!ENABLED) return;
+    ACCEPTED.increment();
+    MOVE_LATENCY.record(System.nanoTime() - start);
+  }
+
+  /**
+   * @param start value returned by {@link #start()} when the validation began
+   */
+  public static void moveVetoed(long start) {
+    if (!ENABLED) return;
+    VETOED.increment();
+    MOVE_LATENCY.record(System.nanoTime() - start);
+  }
+
+  public static void flipped() {
+    if (ENABLED) FLIPPED.increment();
+  }
+
+  public static void restarted() {
+    if (ENABLED) RESTARTED.increment();
+  }
+
+  /**
+   * @param cause failure which made the controller drop its journal
+   */
+  public static void journalDropped(Exception cause) {
+    if (ENABLED) JOURNALS_DROPPED.increment();
+    FailureEvent.report("journal", cause);
+  }
+
+  /**
+   * @param cause failure of the server accepting a connection
+   */
+  public static void acceptFailed(Exception cause) {
+    if (ENABLED) ACCEPT_FAILURES.increment();
+    FailureEvent.report("server", cause);
+  }
+
+  /**
+   * @param cause exception thrown by a listener of a shared board
+   */
+  public static void listenerFailed(Exception cause) {
+    if (ENABLED) LISTENER_FAILURES.increment();
+    FailureEvent.report("shared board", cause);
+  }
+
+  /**
+   * @param start value returned by {@link #start()} when the repaint began
+   */
+  public static void tileRepainted(long start) {
+    if (ENABLED) REPAINT_LATENCY.record(System.nanoTime() - start);
+  }
+
+  /**
+   * @return current values; counters are read one by one, so concurrent updates may be seen partially
+   */
+  public static Snapshot snapshot() {
+    return new Snapshot(ACCEPTED.sum(), VETOED.sum(), FLIPPED.sum(), RESTARTED.sum(),
+        JOURNALS_DROPPED.sum(), ACCEPT_FAILURES.sum(), LISTENER_FAILURES.sum(), MOVE_LATENCY.snapshot(), REPAINT_LATENCY.snapshot());
+  }
+
+  public static void reset() {
+    ACCEPTED.reset();
+    VETOED.reset();
+    FLIPPED.reset();
+    RESTARTED.reset();
+    JOURNALS_DROPPED.reset();
+    ACCEPT_FAILURES.reset();
+    LISTENER_FAILURES.reset();
+    MOVE_LATENCY.reset();
+    REPAINT_LATENCY.reset();
+  }
+
+  /**
+   * Values of the metrics at a given time.
+   */
+  public static final class Snapshot {
+
+    private final long accepted;
+    private final long vetoed;
+    private final long flipped;
+    private final long restarted;
+    private final long journalsDropped;
+    private final long acceptFailures;
+    private final long listenerFailures;
+    private final LatencyHistogram.Snapshot moveLatency;
+    private final LatencyHistogram.Snapshot repaintLatency;
+
+    Snapshot(long accepted, long vetoed, long flipped, long restarted, long journalsDropped, long acceptFailures,
+             long listenerFailures, LatencyHistogram.Snapshot moveLatency, LatencyHistogram.Snapshot repaintLatency) {
+      this.accepted = accepted;
+      this.vetoed = vetoed;
+      this.flipped = flipped;
+      this.restarted = restarted;
+      this.journalsDropped = journalsDropped;
+      this.acceptFailures = acceptFailures;
+      this.listenerFailures = listenerFailures;
+      this.moveLatency = moveLatency;
+      this.repaintLatency = repaintLatency;
+    }
+
+    public long getAccepted() {
+      return accepted;
+    }
+
+    public long getVetoed() {
+      return vetoed;
+    }
+
+    public long getFlipped() {
+      return flipped;
+    }
+
+    public long getRestarted() {
+      return restarted;
+    }
+
+    public long getJournalsDropped() {
+      return journalsDropped;
+    }
+
+    public long getAcceptFailures() {
+      return acceptFailures;
+    }
+
+    public long getListenerFailures() {
+      return listenerFailures;
+    }
+
+    public LatencyHistogram.Snapshot getMoveLatency() {
+      return moveLatency;
+    }
+
+    public LatencyHistogram.Snapshot getRepaintLatency() {
+      return repaintLatency;
+    }
+
+    /**
+     * it writes the metrics as "name value" lines, latencies in nanoseconds
+     * @param out destination
+     * @throws IOException when 'out' cannot be written
+     */
+    public void export(Appendable out) throws IOException {
+      out.append("moves_accepted ").append(Long.toString(accepted)).append('\n');
+      out.append("moves_vetoed ").append(Long.toString(vetoed)).append('\n');
+      out.append("flips ").append(Long.toString(flipped)).append('\n');
+      out.append("restarts ").append(Long.toString(restarted)).append('\n');
+      out.append("journals_dropped ").append(Long.toString(journalsDropped)).append('\n');
+      out.append("accept_failures ").append(Long.toString(acceptFailures)).append('\n');
+      out.append("listener_failures ").append(Long.toString(listenerFailures)).append('\n');
+      exportLatency(out, moveLatency);
+      exportLatency(out, repaintLatency);
+    }
+
+    private static void exportLatency(Appendable out, LatencyHistogram.Snapshot latency) throws IOException {
+      out.append(latency.getName()).append("_count ").append(Long.toString(latency.getCount())).append('\n');
+      for (double percentile : new double[] {50, 99, 99.9}) {
+        out.append(latency.getName()).append("_p").append(Double.toString(percentile).replace(".0", "").replace('.', '_'))
+            .append("_ns ").append(Long.toString(latency.getPercentile(percentile))).append('\n');
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "accepted=" + accepted + " vetoed=" + vetoed + " flipped=" + flipped + " restarted=" + restarted
+          + " journalsDropped=" + journalsDropped + " acceptFailures=" + acceptFailures
+          + " listenerFailures=" + listenerFailures
+          + "\n" + moveLatency + "\n" + repaintLatency;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.mamarino.puzzle.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two buckets: bucket i counts the samples in
+ * [2^(i-1), 2^i) nanoseconds (bucket 0 the samples of 0 ns). Recording is a single atomic
+ * increment, so any number of threads can record at the same time; percentiles are reported as
+ * the upper bound of their bucket, i.e. with an error of at most a factor of 2.
+ */
+public final class LatencyHistogram {
+
+  static final int BUCKETS = 64;
+
+  private final String name;
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  public LatencyHistogram(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @param nanos duration of the sample
+   */
+  public void record(long nanos) {
+    counts.incrementAndGet(nanos <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos));
+  }
+
+  /**
+   * @return bucket counts at the time of the call
+   */
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) copy[i] = counts.get(i);
+    return new Snapshot(name, copy);
+  }
+
+  void reset() {
+    for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+  }
+
+  /**
+   * Immutable copy of the bucket counts of a histogram.
+   */
+  public static final class Snapshot {
+
+    private final String name;
+    private final long[] counts;
+    private final long count;
+
+    private Snapshot(String name, long[] counts) {
+      this.name = name;
+      this.counts = counts;
+
+      long total = 0;
+      for (long bucket : counts) total += bucket;
+      this.count = total;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @param percentile percentile, in (0, 100]
+     * @return upper bound in nanoseconds of the bucket holding the percentile; 0 when there are no samples
+     */
+    public long getPercentile(double percentile) {
+      long rank = (long) Math.ceil(count * percentile / 100.0);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank && seen > 0) return i == 0 ? 0 : (i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i);
+      }
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return name + " count=" + count
+          + " p50<=" + getPercentile(50) + "ns p99<=" + getPercentile(99) + "ns p999<=" + getPercentile(99.9) + "ns";
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.mamarino.puzzle.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a tile click judged by {@code EightController.vetoableChange}; its duration is the
+ * time taken by the controller to validate and apply the move.
+ */
+@Name("com.mamarino.puzzle.Move")
+@Label("Move")
+@Category("8Puzzle")
+@Description("Tile click validated by the controller")
+public class MoveEvent extends jdk.jfr.Event {
+
+  @Label("Position")
+  public int position;
+
+  @Label("Accepted")
+  public boolean accepted;
+
+  @Label("Solved")
+  public boolean solved;
+}
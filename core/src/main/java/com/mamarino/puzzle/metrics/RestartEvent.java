@@ -0,0 +1,22 @@
+package com.mamarino.puzzle.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a new board dealt to the controller through {@code RESTART_EVT}.
+ */
+@Name("com.mamarino.puzzle.Restart")
+@Label("Restart")
+@Category("8Puzzle")
+@Description("New board dealt to the controller")
+public class RestartEvent extends jdk.jfr.Event {
+
+  @Label("Board Size")
+  public int size;
+
+  @Label("Distance Lower Bound")
+  public int lowerBound;
+}
@@ -0,0 +1,245 @@
+package com.mamarino.puzzle.server;
+
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.metrics.GameMetrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless game server: many puzzle sessions hosted in one JVM and played over a line-based text
+ * protocol on a local socket. Every connection is served by its own thread: a virtual thread when
+ * the runtime has them (Java 21+), a pooled platform thread otherwise.
+ * <p>
+ * Requests (one per line):
+ * <pre>
+ *   NEW [dimension]         creates a session with a random solvable board
+ *   STATE id                current board
+ *   RESTART id              deals a new random solvable board
+ *   MOVE id position        moves the tile in 'position' (1,...,dim * dim) into the hole
+ *   FLIP id                 switches tiles 1 and 2, if the hole is in the last position
+ *   CLOSE id                removes the session
+ *   QUIT                    closes the connection
+ * </pre>
+ * Every session request is answered with "id TAB status TAB board", where status is the text shown by
+ * the controller ({@code START}, {@code OK}, {@code KO}, {@code YOU WON!}) and board is the
+ * {@code RESTART_EVT} permutation text; errors are answered with "ERR message".
+ */
+public class GameServer implements AutoCloseable {
+
+  public static final int DEFAULT_PORT = 8088;
+
+  private final SessionRegistry sessions;
+  private final ServerSocket serverSocket;
+  private final ExecutorService connections = newConnectionExecutor();
+  // open client sockets: a thread blocked reading one is released only by closing it
+  private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+  private final Thread acceptor;
+
+  /**
+   * it binds the server to the loopback address and starts accepting connections
+   * @param port local port, 0 for any free port
+   * @param sessions sessions shared by every connection
+   * @throws IOException when the port cannot be bound
+   */
+  public GameServer(int port, SessionRegistry sessions) throws IOException {
+    this.sessions = sessions;
+    this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    this.acceptor = new Thread(this::acceptLoop, "game-server-acceptor");
+    acceptor.start();
+  }
+
+  public GameServer(int port) throws IOException {
+    this(port, new SessionRegistry());
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public SessionRegistry getSessions() {
+    return sessions;
+  }
+
+  /**
+   * it stops accepting connections and closes the open ones; the sessions stay in the registry
+   */
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    for (Socket socket : sockets) closeQuietly(socket);
+    connections.shutdownNow();
+  }
+
+  /**
+   * usage: GameServer [port]
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) throws IOException {
+    GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+    System.out.println("Game server listening on port " + server.getPort());
+  }
+
+  /**
+   * it handles a single request line
+   * @param line request
+   * @param builder destination of the reply, without line terminator
+   * @return boolean: true -> the connection must be kept open; not otherwise
+   */
+  boolean handle(String line, StringBuilder builder) {
+    String[] words = line.trim().split("\\s+");
+    String command = words[0].toUpperCase();
+
+    try {
+      GameSession session;
+      switch (command) {
+        case "QUIT":
+          return false;
+
+        case "NEW":
+          int dimension = words.length > 1 ? Integer.parseInt(words[1]) : Grid.DEFAULT.getDimension();
+          session = sessions.create(Grid.of(dimension));
+          break;
+
+        case "STATE":
+          session = session(words);
+          break;
+
+        case "RESTART":
+          session = session(words);
+          session.restart();
+          break;
+
+        case "MOVE":
+          if (words.length < 3) throw new IllegalArgumentException("Missing position.");
+          session = session(words);
+          session.move(Integer.parseInt(words[2]));
+          break;
+
+        case "FLIP":
+          session = session(words);
+          session.flip();
+          break;
+
+        case "CLOSE":
+          session = session(words);
+          sessions.remove(session.getId());
+          builder.append(session.getId()).append("\tCLOSED");
+          return true;
+
+        default:
+          throw new IllegalArgumentException("Unknown command " + words[0] + ".");
+      }
+
+      builder.append(session.getId()).append('\t').append(session.getStatus()).append('\t');
+      session.formatBoard(builder);
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException included
+      builder.setLength(0);
+      builder.append("ERR ").append(e.getMessage());
+    } catch (RuntimeException e) {
+      // any other failure is answered too, so that the connection stays usable
+      builder.setLength(0);
+      builder.append("ERR ").append(e.getClass().getSimpleName());
+      if (e.getMessage() != null) builder.append(": ").append(e.getMessage());
+    }
+    return true;
+  }
+
+  private GameSession session(String[] words) {
+    if (words.length < 2) throw new IllegalArgumentException("Missing session id.");
+
+    GameSession session = sessions.get(Long.parseLong(words[1]));
+    if (session == null) throw new IllegalArgumentException("No session " + words[1] + ".");
+    return session;
+  }
+
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        sockets.add(socket);
+        // accepted while the server was closing: close() may have missed it
+        if (serverSocket.isClosed()) {
+          closeQuietly(socket);
+          return;
+        }
+        try {
+          connections.execute(() -> serve(socket));
+        } catch (RejectedExecutionException e) {
+          // executor shut down by close()
+          sockets.remove(socket);
+          closeQuietly(socket);
+          return;
+        }
+      } catch (SocketException e) {
+        // server closed
+        return;
+      } catch (IOException e) {
+        GameMetrics.acceptFailed(e);
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    StringBuilder builder = new StringBuilder();
+
+    try (socket;
+         BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+         Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.isBlank()) continue;
+
+        builder.setLength(0);
+        boolean open = handle(line, builder);
+        if (!open) break;
+
+        // every reply is flushed: a partial request already buffered must not hold back the earlier replies
+        out.append(builder).append('\n');
+        out.flush();
+      }
+    } catch (IOException e) {
+      // connection dropped by the client (or closed by the server), its sessions stay alive
+    } finally {
+      sockets.remove(socket);
+    }
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // closing anyway
+    }
+  }
+
+  /**
+   * @return executor starting a virtual thread per connection, or pooled daemon threads on runtimes before Java 21
+   */
+  private static ExecutorService newConnectionExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "game-server-connection");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.mamarino.puzzle.server;
+
+import com.mamarino.puzzle.core.BoardGenerator;
+import com.mamarino.puzzle.core.GameEngine;
+import com.mamarino.puzzle.core.GameSnapshot;
+import com.mamarino.puzzle.core.Grid;
+
+/**
+ * A single puzzle game played without Swing components: a {@link GameEngine}, the same rules of
+ * {@code EightController}, and the same status texts shown by the controller label.
+ * <p>
+ * Every operation holds the monitor of the session only, so moves on different sessions never
+ * contend; a session is usually driven by a single connection anyway.
+ */
+public final class GameSession {
+
+  public static final String START = GameEngine.START;
+  public static final String OK = GameEngine.OK;
+  public static final String KO = GameEngine.KO;
+  public static final String WON = GameEngine.WON;
+
+  private final long id;
+  private final BoardGenerator generator;
+  private final GameEngine engine;
+
+  GameSession(long id, Grid grid, long seed) {
+    this.id = id;
+    this.generator = new BoardGenerator(grid, seed);
+    this.engine = new GameEngine(generator.nextPermutation());
+  }
+
+  /**
+   * @param id session id
+   * @param snapshot state of the session, as returned by {@link #snapshot()}
+   * @param seed seed of the boards dealt on restart
+   */
+  GameSession(long id, GameSnapshot snapshot, long seed) {
+    this.id = id;
+    this.generator = new BoardGenerator(snapshot.getGrid(), seed);
+    this.engine = new GameEngine(snapshot);
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public Grid getGrid() {
+    return engine.getGrid();
+  }
+
+  /**
+   * it deals a new random solvable board
+   */
+  public synchronized void restart() {
+    engine.restart(generator.nextPermutation());
+  }
+
+  /**
+   * it moves the tile in the given position into the hole, if it is next to it
+   * @param position 1-based position of the tile to be moved
+   * @return boolean: true -> the move has been applied; not otherwise
+   */
+  public synchronized boolean move(int position) {
+    return engine.move(position);
+  }
+
+  /**
+   * it switches tiles in position 1 and 2, only if the hole is in the last position
+   * @return boolean: true -> the flip has been applied; not otherwise
+   */
+  public synchronized boolean flip() {
+    return engine.flip();
+  }
+
+  public synchronized boolean isSolved() {
+    return engine.isSolved();
+  }
+
+  /**
+   * @return lower bound of the moves left to the goal without flips (see {@link GameEngine#getEstimate()})
+   */
+  public synchronized int getDistanceLowerBound() {
+    return engine.getEstimate();
+  }
+
+  public synchronized String getStatus() {
+    return engine.getStatus();
+  }
+
+  public synchronized long getMoveCount() {
+    return engine.getMoveCount();
+  }
+
+  /**
+   * @return the whole state of the session, to be restored in another process
+   */
+  public synchronized GameSnapshot snapshot() {
+    return engine.snapshot();
+  }
+
+  /**
+   * @param builder destination of the board, in the text form of the {@code RESTART_EVT} permutation
+   * @return 'builder'
+   */
+  public synchronized StringBuilder formatBoard(StringBuilder builder) {
+    builder.append('[');
+    for (int position = 1; position <= engine.getGrid().getSize(); position++) {
+      if (position > 1) builder.append(", ");
+      builder.append(engine.getBoard().get(position));
+    }
+    return builder.append(']');
+  }
+
+  /**
+   * @return packed value of the current board (see {@link GameEngine#getPacked()})
+   */
+  public synchronized long getPackedBoard() {
+    return engine.getPacked();
+  }
+}
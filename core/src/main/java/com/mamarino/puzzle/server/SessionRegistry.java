@@ -0,0 +1,86 @@
+package com.mamarino.puzzle.server;
+
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.SnapshotFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live game sessions keyed by id. Lookups, creations and removals never lock the whole registry,
+ * and the state of each session is guarded by the session itself.
+ */
+public final class SessionRegistry {
+
+  private final ConcurrentMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+  private final AtomicLong nextId = new AtomicLong(1);
+
+  /**
+   * @param grid geometry of the board
+   * @return new session, already dealt a random solvable board
+   */
+  public GameSession create(Grid grid) {
+    GameSession session = new GameSession(nextId.getAndIncrement(), grid, ThreadLocalRandom.current().nextLong());
+    sessions.put(session.getId(), session);
+    return session;
+  }
+
+  /**
+   * @param id session id
+   * @return the session, or null when no session has that id
+   */
+  public GameSession get(long id) {
+    return sessions.get(id);
+  }
+
+  /**
+   * @param id session id
+   * @return boolean: true -> the session has been removed; false -> no session has that id
+   */
+  public boolean remove(long id) {
+    return sessions.remove(id) != null;
+  }
+
+  public int size() {
+    return sessions.size();
+  }
+
+  /**
+   * it writes a snapshot of every session to 'file', f.i. to move them to another process. Sessions
+   * keep being played meanwhile: each snapshot is consistent, the set of sessions is the one seen
+   * while iterating
+   * @param file destination file, replaced if it exists
+   * @return number of sessions written
+   * @throws IOException when the file cannot be written
+   */
+  public long snapshotAll(Path file) throws IOException {
+    try (SnapshotFile.Writer writer = SnapshotFile.create(file)) {
+      for (GameSession session : sessions.values()) writer.append(session.getId(), session.snapshot());
+      return writer.getCount();
+    }
+  }
+
+  /**
+   * it adds the sessions of a file written by {@link #snapshotAll(Path)}, with their ids: a session
+   * with the same id of one already registered replaces it. New sessions get ids above the restored ones
+   * @param file snapshot file
+   * @return number of sessions restored
+   * @throws IOException when the file cannot be read or it is corrupted
+   */
+  public long restoreAll(Path file) throws IOException {
+    long count = 0;
+    try (SnapshotFile.Reader reader = SnapshotFile.open(file)) {
+      while (reader.next()) {
+        long id = reader.getId();
+        sessions.put(id, new GameSession(id, reader.getSnapshot(), ThreadLocalRandom.current().nextLong()));
+        nextId.accumulateAndGet(id + 1, Math::max);
+        count++;
+      }
+    }
+    return count;
+  }
+}
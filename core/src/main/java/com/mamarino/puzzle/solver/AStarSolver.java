@@ -0,0 +1,162 @@
+package com.mamarino.puzzle.solver;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+
+import java.util.Arrays;
+
+/**
+ * A* search with manhattan distance plus linear conflict. Nodes live in parallel primitive arrays,
+ * the open list is a binary heap of longs and the closed set is an open-addressing map from packed
+ * boards to node indexes, so a run allocates nothing once the buffers have grown large enough.
+ * With flips enabled the estimate is the one of {@link Solver#estimate(long)} and a flip is one more
+ * successor, costing the flip cost.
+ */
+public class AStarSolver extends Solver {
+
+  private static final int INITIAL_CAPACITY = 1 << 12;
+  private static final int MAX_COST = 0xFFFF;
+
+  private final LongIntHashMap index = new LongIntHashMap(INITIAL_CAPACITY);
+
+  // nodes
+  private long[] states = new long[INITIAL_CAPACITY];
+  private int[] parents = new int[INITIAL_CAPACITY];
+  private int[] costs = new int[INITIAL_CAPACITY];
+  private int[] estimates = new int[INITIAL_CAPACITY];
+  private byte[] holes = new byte[INITIAL_CAPACITY];
+  private boolean[] closed = new boolean[INITIAL_CAPACITY];
+  private int nodeCount;
+
+  // open list: (f, MAX_COST - g, node) packed in a long, so that ties are broken by the deepest node
+  private long[] heap = new long[INITIAL_CAPACITY];
+  private int heapSize;
+
+  public AStarSolver() {
+    this(Grid.DEFAULT);
+  }
+
+  public AStarSolver(Grid grid) {
+    super(grid);
+  }
+
+  @Override
+  protected int[] search(long start) {
+    index.clear();
+    nodeCount = 0;
+    heapSize = 0;
+
+    push(addNode(start, -1, 0, grid.holeIndex(start)));
+
+    while (heapSize > 0) {
+      long top = pop();
+      int node = (int) top;
+      int f = (int) (top >>> 48);
+
+      // stale entry: the node has been reached through a cheaper path in the meantime
+      if (closed[node] || f != costs[node] + estimates[node]) continue;
+
+      if (states[node] == goal) return path(node);
+
+      if (!expand()) return null;
+      closed[node] = true;
+
+      long state = states[node];
+      int hole = holes[node];
+
+      for (int k = 0; k < grid.neighbourCount(hole); k++) {
+        int next = grid.neighbour(hole, k);
+        reach(BoardState.swap(state, hole, next), node, costs[node] + 1, next);
+      }
+      if (canFlip(state)) reach(BoardState.flip(state), node, costs[node] + flipCost, hole);
+    }
+    return null;
+  }
+
+  /**
+   * it adds 'child' to the open list, or lowers its cost when it is already there
+   */
+  private void reach(long child, int parent, int cost, int hole) {
+    int known = index.get(child);
+
+    if (known == LongIntHashMap.MISSING) {
+      push(addNode(child, parent, cost, hole));
+    } else if (!closed[known] && cost < costs[known]) {
+      costs[known] = cost;
+      parents[known] = parent;
+      push(known);
+    }
+  }
+
+  private int addNode(long state, int parent, int cost, int hole) {
+    if (nodeCount == states.length) growNodes();
+
+    int node = nodeCount++;
+    states[node] = state;
+    parents[node] = parent;
+    costs[node] = cost;
+    estimates[node] = estimate(state);
+    holes[node] = (byte) hole;
+    closed[node] = false;
+    index.put(state, node);
+    return node;
+  }
+
+  private int[] path(int node) {
+    int length = 0;
+    for (int n = node; parents[n] != -1; n = parents[n]) length++;
+    int[] moves = new int[length];
+
+    // a regular move always moves the hole, a flip never does
+    for (int i = length - 1; i >= 0; i--) {
+      int parent = parents[node];
+      moves[i] = holes[node] == holes[parent] ? BoardState.FLIP : holes[node] + 1;
+      node = parent;
+    }
+    return moves;
+  }
+
+  private void growNodes() {
+    int capacity = states.length * 2;
+    states = Arrays.copyOf(states, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+    costs = Arrays.copyOf(costs, capacity);
+    estimates = Arrays.copyOf(estimates, capacity);
+    holes = Arrays.copyOf(holes, capacity);
+    closed = Arrays.copyOf(closed, capacity);
+  }
+
+  private void push(int node) {
+    long key = ((long) (costs[node] + estimates[node]) << 48)
+        | ((long) (MAX_COST - costs[node]) << 32)
+        | node;
+
+    if (heapSize == heap.length) heap = Arrays.copyOf(heap, heap.length * 2);
+
+    int i = heapSize++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent] <= key) break;
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = key;
+  }
+
+  private long pop() {
+    long top = heap[0];
+    long last = heap[--heapSize];
+
+    int i = 0;
+    int half = heapSize >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+      if (last <= heap[child]) break;
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = last;
+    return top;
+  }
+}
@@ -0,0 +1,183 @@
+package com.mamarino.puzzle.solver;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+
+import java.util.Arrays;
+
+/**
+ * Bidirectional breadth-first search: one search grows from the start board and one from the goal,
+ * a whole level at a time and always on the side with the smaller frontier, until a board reached
+ * by one side is found in the other one. No heuristic is involved, so it cross-checks the heuristic
+ * solvers; memory grows with the number of boards visited around both ends, which makes it best
+ * suited to 3x3 boards. Flips are supported at the cost of a regular move only, so that every edge
+ * still costs the same: a flip is its own inverse, like a move, so the backward search uses them too.
+ * <p>
+ * Both parent maps are primitive open-addressing tables from a packed board to the board it has
+ * been reached from, the frontiers are arrays of packed boards: a run allocates nothing but the
+ * moves of the solution once the buffers have grown large enough.
+ */
+public class BidirectionalBfsSolver extends Solver {
+
+  private static final int INITIAL_CAPACITY = 1 << 12;
+  // parent of the boards a search starts from: -1 is not a packed board
+  private static final long ROOT = -1L;
+
+  private static final int STOPPED = -1;
+  private static final int MET = -2;
+
+  // board -> board it has been reached from, towards the start or towards the goal
+  private final LongLongHashMap forward = new LongLongHashMap(INITIAL_CAPACITY);
+  private final LongLongHashMap backward = new LongLongHashMap(INITIAL_CAPACITY);
+
+  private long[] forwardFrontier = new long[INITIAL_CAPACITY];
+  private long[] backwardFrontier = new long[INITIAL_CAPACITY];
+  private long[] nextFrontier = new long[INITIAL_CAPACITY];
+  private int forwardSize;
+  private int backwardSize;
+
+  private long meeting;
+
+  public BidirectionalBfsSolver() {
+    this(Grid.DEFAULT);
+  }
+
+  public BidirectionalBfsSolver(Grid grid) {
+    super(grid);
+  }
+
+  /**
+   * @param flipCost {@link #NO_FLIPS} or 1: levels are only complete when every step costs the same
+   */
+  @Override
+  public void setFlipCost(int flipCost) {
+    if (flipCost > 1) throw new IllegalArgumentException("Breadth-first search supports flips costing 1 only.");
+    super.setFlipCost(flipCost);
+  }
+
+  @Override
+  protected int[] search(long start) {
+    if (start == goal) return new int[0];
+
+    forward.clear();
+    backward.clear();
+    forward.put(start, ROOT);
+    backward.put(goal, ROOT);
+    forwardFrontier[0] = start;
+    backwardFrontier[0] = goal;
+    forwardSize = 1;
+    backwardSize = 1;
+
+    // levels are complete on both sides, so the first board found by both is on a shortest path
+    while (forwardSize > 0 && backwardSize > 0) {
+      int result = forwardSize <= backwardSize ? expandForward() : expandBackward();
+
+      if (result == STOPPED) return null;
+      if (result == MET) return path();
+    }
+    return null;
+  }
+
+  /**
+   * @return packed board where the two searches met during the last solved run
+   */
+  public long getMeeting() {
+    return meeting;
+  }
+
+  /**
+   * @return STOPPED, MET or the size of the new forward frontier
+   */
+  private int expandForward() {
+    int next = expandLevel(forwardFrontier, forwardSize, forward, backward);
+    if (next < 0) return next;
+
+    long[] swap = forwardFrontier;
+    forwardFrontier = nextFrontier;
+    nextFrontier = swap;
+    forwardSize = next;
+    return next;
+  }
+
+  /**
+   * @return STOPPED, MET or the size of the new backward frontier
+   */
+  private int expandBackward() {
+    int next = expandLevel(backwardFrontier, backwardSize, backward, forward);
+    if (next < 0) return next;
+
+    long[] swap = backwardFrontier;
+    backwardFrontier = nextFrontier;
+    nextFrontier = swap;
+    backwardSize = next;
+    return next;
+  }
+
+  /**
+   * it expands a whole level of one side into 'nextFrontier'
+   * @return STOPPED, MET (the board is kept in 'meeting') or the size of the next level
+   */
+  private int expandLevel(long[] frontier, int size, LongLongHashMap own, LongLongHashMap other) {
+    int next = 0;
+
+    for (int i = 0; i < size; i++) {
+      if (!expand()) return STOPPED;
+
+      long state = frontier[i];
+      int hole = grid.holeIndex(state);
+
+      int count = grid.neighbourCount(hole);
+      // the extra successor, if any, is the flip
+      int successors = canFlip(state) ? count + 1 : count;
+
+      for (int k = 0; k < successors; k++) {
+        long child = k < count ? BoardState.swap(state, hole, grid.neighbour(hole, k)) : BoardState.flip(state);
+        if (own.get(child) != LongLongHashMap.MISSING) continue;
+
+        own.put(child, state);
+        if (other.get(child) != LongLongHashMap.MISSING) {
+          meeting = child;
+          return MET;
+        }
+
+        if (next == nextFrontier.length) nextFrontier = Arrays.copyOf(nextFrontier, next * 2);
+        nextFrontier[next++] = child;
+      }
+    }
+    return next;
+  }
+
+  /**
+   * @return positions of the tiles to be clicked from the start to the meeting board and then to the goal
+   */
+  private int[] path() {
+    int forwardLength = 0;
+    for (long state = meeting; forward.get(state) != ROOT; state = forward.get(state)) forwardLength++;
+    int backwardLength = 0;
+    for (long state = meeting; backward.get(state) != ROOT; state = backward.get(state)) backwardLength++;
+
+    int[] moves = new int[forwardLength + backwardLength];
+    long state = meeting;
+    for (int i = forwardLength - 1; i >= 0; i--) {
+      long parent = forward.get(state);
+      moves[i] = move(parent, state);
+      state = parent;
+    }
+
+    state = meeting;
+    for (int i = forwardLength; i < moves.length; i++) {
+      long next = backward.get(state);
+      moves[i] = move(state, next);
+      state = next;
+    }
+    return moves;
+  }
+
+  /**
+   * @return the slot that becomes the new hole, or a flip when the hole does not move
+   */
+  private int move(long from, long to) {
+    int hole = grid.holeIndex(to);
+    return hole == grid.holeIndex(from) ? BoardState.FLIP : hole + 1;
+  }
+}
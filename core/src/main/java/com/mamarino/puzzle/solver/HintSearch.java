@@ -0,0 +1,200 @@
+package com.mamarino.puzzle.solver;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.DistanceTable;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.Heuristics;
+
+import java.util.Arrays;
+
+/**
+ * Best next move for a board within a strict time budget. On 3x3 boards with a {@link DistanceTable}
+ * the answer is an O(1) lookup. Otherwise an anytime IDA* runs one search per first move, raising
+ * the bound of all of them together: after each completed round the first move with the lowest
+ * f estimate is the best known one, and when the budget runs out the move of the last completed
+ * round is returned. Before the first round completes, the move with the lowest g + h one step
+ * ahead is used. A move leading to a solution found within the budget is optimal, and the whole
+ * solution is then available from {@link #getSolution()} (f.i. to be kept in a {@link SolutionCache}).
+ * <p>
+ * A search keeps its state in the instance, so an instance must not be shared by threads.
+ */
+public final class HintSearch {
+
+  public static final long DEFAULT_BUDGET_MICROS = 2_000;
+
+  private static final int FOUND = -1;
+  private static final int ABORTED = -2;
+  // the deadline is checked once every CHECK_MASK + 1 expanded nodes
+  private static final int CHECK_MASK = (1 << 10) - 1;
+
+  private final Grid grid;
+  private final long goal;
+  private final DistanceTable table;
+  private long budgetNanos = DEFAULT_BUDGET_MICROS * 1_000L;
+
+  private long deadline;
+  private long nodesExpanded;
+  private boolean aborted;
+  // moves of the solution being searched, by depth; 'solutionLength' of them once found
+  private int[] path = new int[64];
+  private int solutionLength;
+  // board of the last table lookup, its solution is walked on demand; 0 when none
+  private long lookedUp;
+
+  /**
+   * @param grid geometry of the boards, up to 4x4
+   * @param table distance table of 3x3 boards with regular moves only, null to always search
+   */
+  public HintSearch(Grid grid, DistanceTable table) {
+    if (!grid.isPackable()) throw new IllegalArgumentException(grid + " boards are not supported.");
+    if (table != null && table.getFlipCost() != DistanceTable.NO_FLIPS) {
+      throw new IllegalArgumentException("Hints are searched with regular moves only.");
+    }
+    this.grid = grid;
+    this.goal = grid.goal();
+    this.table = grid.equals(Grid.DEFAULT) ? table : null;
+  }
+
+  public HintSearch(Grid grid) {
+    this(grid, null);
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @return distance table used for the lookups, null when the hints are searched
+   */
+  public DistanceTable getTable() {
+    return table;
+  }
+
+  /**
+   * @param micros wall-clock time limit of a search, in microseconds
+   */
+  public void setTimeBudget(long micros) {
+    this.budgetNanos = micros * 1_000L;
+  }
+
+  /**
+   * @param packed packed board
+   * @return position (1,...,dim * dim) of the tile to be clicked; -1 when the board is already solved
+   *         or it cannot be solved without flips
+   */
+  public int bestMove(long packed) {
+    solutionLength = -1;
+    lookedUp = 0L;
+    if (packed == goal || !grid.isSolvable(packed)) return -1;
+    if (table != null) {
+      lookedUp = packed;
+      return table.bestMove(packed);
+    }
+
+    deadline = System.nanoTime() + budgetNanos;
+    nodesExpanded = 0;
+    aborted = false;
+
+    int hole = grid.holeIndex(packed);
+    int count = grid.neighbourCount(hole);
+    long[] children = new long[count];
+    int[] bounds = new int[count];
+
+    // round 0: one step ahead
+    int best = -1;
+    for (int k = 0; k < count; k++) {
+      children[k] = BoardState.swap(packed, hole, grid.neighbour(hole, k));
+      if (children[k] == goal) return solved(grid.neighbour(hole, k), 1);
+
+      bounds[k] = 1 + Heuristics.estimate(grid, children[k]);
+      if (best < 0 || bounds[k] < bounds[best]) best = k;
+    }
+
+    int bound = bounds[best];
+    int[] next = new int[count];
+    while (true) {
+      if (path.length < bound) path = new int[bound * 2];
+      int roundBest = -1;
+
+      for (int k = 0; k < count; k++) {
+        int child = grid.neighbour(hole, k);
+        int result = dfs(children[k], child, hole, 1, bound);
+
+        if (result == ABORTED) return grid.neighbour(hole, best) + 1;
+        if (result == FOUND) return solved(child, solutionLength);
+
+        next[k] = result;
+        if (roundBest < 0 || result < next[roundBest]) roundBest = k;
+      }
+
+      best = roundBest;
+      bound = next[roundBest];
+    }
+  }
+
+  /**
+   * @return number of nodes expanded by the last search
+   */
+  public long getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * @return positions of the tiles to be clicked along an optimal solution of the board of the last
+   *         {@link #bestMove(long)} call; null when the search ran out of time before finding one
+   */
+  public int[] getSolution() {
+    if (lookedUp != 0L) return walk(lookedUp);
+    return solutionLength < 0 ? null : Arrays.copyOf(path, solutionLength);
+  }
+
+  /**
+   * it walks the distance table down to the goal
+   */
+  private int[] walk(long packed) {
+    int[] moves = new int[table.distance(packed)];
+    long state = packed;
+    for (int i = 0; i < moves.length; i++) {
+      moves[i] = table.bestMove(state);
+      state = BoardState.swap(state, grid.holeIndex(state), moves[i] - 1);
+    }
+    return moves;
+  }
+
+  /**
+   * @param first 0-based slot of the first move; the following ones are already in 'path'
+   * @return position of the first move
+   */
+  private int solved(int first, int length) {
+    path[0] = first + 1;
+    solutionLength = length;
+    return first + 1;
+  }
+
+  /**
+   * @see IdaStarSolver
+   */
+  private int dfs(long state, int hole, int previousHole, int g, int bound) {
+    int f = g + Heuristics.estimate(grid, state);
+    if (f > bound) return f;
+    if (state == goal) {
+      solutionLength = g;
+      return FOUND;
+    }
+
+    if ((++nodesExpanded & CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) aborted = true;
+    if (aborted) return ABORTED;
+
+    int min = Integer.MAX_VALUE;
+    for (int k = 0; k < grid.neighbourCount(hole); k++) {
+      int next = grid.neighbour(hole, k);
+      if (next == previousHole) continue;
+
+      int result = dfs(BoardState.swap(state, hole, next), next, hole, g + 1, bound);
+      if (result == FOUND) path[g] = next + 1;
+      if (result == FOUND || result == ABORTED) return result;
+      if (result < min) min = result;
+    }
+    return min;
+  }
+}
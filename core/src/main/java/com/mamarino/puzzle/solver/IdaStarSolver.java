@@ -0,0 +1,95 @@
+package com.mamarino.puzzle.solver;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+
+import java.util.Arrays;
+
+/**
+ * Iterative deepening A*: a depth-first search bounded by g + h, where h is the manhattan distance
+ * plus the linear conflict penalty (see {@link Solver#estimate(long)} when flips are enabled). Memory is
+ * limited to the current path, which is reused between runs.
+ */
+public class IdaStarSolver extends Solver {
+
+  private static final int FOUND = -1;
+  private static final int ABORTED = -2;
+  // previous hole of a node reached by a flip, which leaves the hole where it is
+  private static final int FLIPPED = -2;
+
+  // slot index of the tile moved at each depth of the current path, -1 for a flip
+  private int[] path = new int[64];
+  private int solutionLength;
+
+  public IdaStarSolver() {
+    this(Grid.DEFAULT);
+  }
+
+  public IdaStarSolver(Grid grid) {
+    super(grid);
+  }
+
+  @Override
+  protected int[] search(long start) {
+    int hole = grid.holeIndex(start);
+    int bound = estimate(start);
+
+    while (true) {
+      int next = dfs(start, hole, -1, 0, 0, bound);
+
+      if (next == ABORTED) return null;
+      if (next == FOUND) {
+        int[] moves = new int[solutionLength];
+        for (int i = 0; i < solutionLength; i++) moves[i] = path[i] + 1;
+        return moves;
+      }
+      bound = next;
+    }
+  }
+
+  /**
+   * @param state packed board at the current node
+   * @param hole slot index of the hole in 'state'
+   * @param previousHole slot index of the hole in the parent node, so that the last move is not undone;
+   *                     FLIPPED when the node has been reached by a flip
+   * @param g cost of the moves made so far
+   * @param depth number of moves made so far
+   * @param bound current f bound
+   * @return FOUND, ABORTED or the smallest f exceeding the bound
+   */
+  private int dfs(long state, int hole, int previousHole, int g, int depth, int bound) {
+    int f = g + estimate(state);
+    if (f > bound) return f;
+
+    if (state == goal) {
+      solutionLength = depth;
+      return FOUND;
+    }
+
+    if (!expand()) return ABORTED;
+
+    if (depth == path.length) path = Arrays.copyOf(path, path.length * 2);
+
+    int min = Integer.MAX_VALUE;
+    for (int k = 0; k < grid.neighbourCount(hole); k++) {
+      int next = grid.neighbour(hole, k);
+      if (next == previousHole) continue;
+
+      path[depth] = next;
+      int result = dfs(BoardState.swap(state, hole, next), next, hole, g + 1, depth + 1, bound);
+
+      if (result == FOUND || result == ABORTED) return result;
+      if (result < min) min = result;
+    }
+
+    // a flip right after a flip would undo it
+    if (previousHole != FLIPPED && canFlip(state)) {
+      path[depth] = -1;
+      int result = dfs(BoardState.flip(state), hole, FLIPPED, g + flipCost, depth + 1, bound);
+
+      if (result == FOUND || result == ABORTED) return result;
+      if (result < min) min = result;
+    }
+    return min;
+  }
+}
@@ -0,0 +1,91 @@
+package com.mamarino.puzzle.solver;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) map from packed boards to int values, with no boxing.
+ * The key 0 is reserved to mark empty slots: it never identifies a packed board.
+ */
+final class LongIntHashMap {
+
+  static final int MISSING = -1;
+
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private long[] keys;
+  private int[] values;
+  private int mask;
+  private int size;
+
+  LongIntHashMap() {
+    this(1 << 10);
+  }
+
+  /**
+   * @param capacity initial number of slots, rounded up to a power of two
+   */
+  LongIntHashMap(int capacity) {
+    int slots = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    keys = new long[slots];
+    values = new int[slots];
+    mask = slots - 1;
+  }
+
+  /**
+   * @return the value bound to 'key', or MISSING
+   */
+  int get(long key) {
+    int slot = slot(key);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) return values[slot];
+      slot = (slot + 1) & mask;
+    }
+    return MISSING;
+  }
+
+  /**
+   * it binds 'value' to 'key', replacing the previous value if any
+   */
+  void put(long key, int value) {
+    int slot = slot(key);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > keys.length * LOAD_FACTOR) grow();
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    Arrays.fill(keys, 0L);
+    size = 0;
+  }
+
+  private int slot(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+
+    keys = new long[oldKeys.length * 2];
+    values = new int[oldValues.length * 2];
+    mask = keys.length - 1;
+    size = 0;
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i]);
+    }
+  }
+}
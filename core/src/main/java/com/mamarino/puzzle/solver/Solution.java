@@ -0,0 +1,81 @@
+package com.mamarino.puzzle.solver;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of a {@link Solver} run: the moves found (if any) together with the search statistics.
+ * Each move is the position (1,...,9) of the tile to be clicked, i.e. the slot which becomes the new hole,
+ * or {@link com.mamarino.puzzle.core.BoardState#FLIP} when flips are enabled.
+ */
+public final class Solution {
+
+  public enum Status {
+    SOLVED,
+    UNSOLVABLE,
+    TIMED_OUT,
+    CANCELLED
+  }
+
+  private static final int[] NO_MOVES = new int[0];
+
+  private final Status status;
+  private final int[] moves;
+  private final int cost;
+  private final long nodesExpanded;
+  private final long elapsedNanos;
+
+  Solution(Status status, int[] moves, int cost, long nodesExpanded, long elapsedNanos) {
+    this.status = status;
+    this.moves = moves == null ? NO_MOVES : moves;
+    this.cost = cost;
+    this.nodesExpanded = nodesExpanded;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public boolean isSolved() {
+    return status == Status.SOLVED;
+  }
+
+  /**
+   * @return positions of the tiles to be clicked, in order; empty when the board has not been solved
+   */
+  public int[] getMoves() {
+    return moves.clone();
+  }
+
+  /**
+   * @return number of moves of the optimal solution; -1 when the board has not been solved
+   */
+  public int getLength() {
+    return isSolved() ? moves.length : -1;
+  }
+
+  /**
+   * @return moves plus the cost of each flip; -1 when the board has not been solved
+   */
+  public int getCost() {
+    return isSolved() ? cost : -1;
+  }
+
+  public long getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public double getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : nodesExpanded * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return status + " " + Arrays.toString(moves)
+        + " (" + nodesExpanded + " nodes, " + (elapsedNanos / 1_000) + "us)";
+  }
+}
@@ -0,0 +1,222 @@
+package com.mamarino.puzzle.solver;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of optimal solutions, keyed by packed board. Boards are
+ * canonicalized under the transposition about the main diagonal: the goal is symmetric (label L
+ * is relabelled as the label of the transposed goal slot, the hole stays the hole), so a board and
+ * its transpose have the same distance and the moves of one, transposed, solve the other. The two
+ * share one entry, stored in the orientation of the smaller packed board.
+ * <p>
+ * Solutions with flips are not cached: the flip switches slots 1 and 2, which the transposition
+ * does not map onto each other.
+ * <p>
+ * A stored solution also solves every board along it, so {@link #put(long, int[])} stores all of
+ * them: following a cached hint keeps hitting the cache. The cache is bounded by number of entries
+ * and by an estimate of the bytes they take; the least recently used entries are evicted first.
+ * All the methods are synchronized, an instance can be shared by threads.
+ */
+public final class SolutionCache {
+
+  public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+  // map entry, boxed key and array header: a rough figure, good enough to bound the footprint
+  private static final int ENTRY_BYTES = 96;
+
+  private final Grid grid;
+  private final int maxEntries;
+  private final long maxBytes;
+  // slot index -> transposed slot index; the goal slot of label L is L - 1
+  private final int[] transposed;
+  private final LinkedHashMap<Long, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * @param grid geometry of the boards, up to 4x4
+   * @param maxEntries maximum number of boards kept
+   * @param maxBytes maximum estimated footprint of the entries, in bytes
+   */
+  public SolutionCache(Grid grid, int maxEntries, long maxBytes) {
+    if (!grid.isPackable()) throw new IllegalArgumentException(grid + " boards are not supported.");
+    if (maxEntries <= 0 || maxBytes <= 0) throw new IllegalArgumentException("Cache bounds must be positive.");
+
+    this.grid = grid;
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.transposed = new int[grid.getSize()];
+    for (int i = 0; i < grid.getSize(); i++) transposed[i] = grid.index(grid.col(i), grid.row(i));
+  }
+
+  /**
+   * @param grid geometry of the boards, up to 4x4
+   * @param maxEntries maximum number of boards kept
+   */
+  public SolutionCache(Grid grid, int maxEntries) {
+    this(grid, maxEntries, Long.MAX_VALUE);
+  }
+
+  public SolutionCache(Grid grid) {
+    this(grid, DEFAULT_MAX_ENTRIES);
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @param packed packed board
+   * @return positions of the tiles to be clicked along an optimal solution; null when not cached
+   */
+  public synchronized int[] get(long packed) {
+    long transpose = transpose(packed);
+    boolean flipped = transpose < packed;
+    int[] moves = entries.get(flipped ? transpose : packed);
+
+    if (moves == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return flipped ? transposeMoves(moves) : moves.clone();
+  }
+
+  /**
+   * it stores an optimal solution of 'packed', and the rest of it for every board along the way
+   * @param packed packed board
+   * @param moves positions of the tiles to be clicked, as returned by {@link Solution#getMoves()}
+   */
+  public synchronized void put(long packed, int[] moves) {
+    for (int move : moves) {
+      if (move == BoardState.FLIP) return;
+    }
+
+    long state = packed;
+    for (int i = 0; i < moves.length; i++) {
+      store(state, moves, i);
+      int hole = grid.holeIndex(state);
+      state = BoardState.swap(state, hole, moves[i] - 1);
+    }
+    evict();
+  }
+
+  /**
+   * it answers from the cache, or runs 'solver' and caches its solution
+   * @param solver solver of boards of the same grid; a solver with flips enabled bypasses the cache
+   * @param packed packed board
+   */
+  public Solution solve(Solver solver, long packed) {
+    if (solver.getFlipCost() != Solver.NO_FLIPS) return solver.solve(packed);
+
+    long start = System.nanoTime();
+    int[] moves = get(packed);
+    if (moves != null) return new Solution(Solution.Status.SOLVED, moves, moves.length, 0, System.nanoTime() - start);
+
+    Solution solution = solver.solve(packed);
+    if (solution.isSolved()) put(packed, solution.getMoves());
+    return solution;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return estimated footprint of the entries, in bytes
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return hits / lookups; 0 before the first lookup
+   */
+  public synchronized double getHitRatio() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  /**
+   * it drops every entry and resets the statistics
+   */
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return grid + " solution cache: " + entries.size() + " entries, " + bytes + " bytes, "
+        + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+  }
+
+  /**
+   * it stores moves[from..] for 'state', in the orientation of its canonical board
+   */
+  private void store(long state, int[] moves, int from) {
+    long transpose = transpose(state);
+    boolean flipped = transpose < state;
+    int length = moves.length - from;
+
+    int[] stored = new int[length];
+    for (int i = 0; i < length; i++) stored[i] = flipped ? transposed[moves[from + i] - 1] + 1 : moves[from + i];
+
+    int[] old = entries.put(flipped ? transpose : state, stored);
+    bytes += cost(stored) - (old == null ? 0 : cost(old));
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Long, int[]>> eldest = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+      bytes -= cost(eldest.next().getValue());
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  private static long cost(int[] moves) {
+    return ENTRY_BYTES + 4L * moves.length;
+  }
+
+  /**
+   * @return board with every slot transposed and every label relabelled as the transposed goal slot
+   */
+  private long transpose(long packed) {
+    long result = 0L;
+    for (int i = 0; i < transposed.length; i++) {
+      int label = BoardState.labelAt(packed, i);
+      result = BoardState.withLabel(result, transposed[i], transposed[label - 1] + 1);
+    }
+    return result;
+  }
+
+  private int[] transposeMoves(int[] moves) {
+    int[] result = new int[moves.length];
+    for (int i = 0; i < moves.length; i++) result[i] = transposed[moves[i] - 1] + 1;
+    return result;
+  }
+}
@@ -0,0 +1,202 @@
+package com.mamarino.puzzle.solver;
+
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.Heuristics;
+import com.mamarino.puzzle.core.PatternDatabase;
+import com.mamarino.puzzle.core.PermutationFormat;
+
+import java.util.List;
+
+/**
+ * Headless optimal solver for boards up to 4x4 (the ones fitting in a packed long). A solver keeps its search buffers between runs, so an instance must
+ * not be shared by threads running {@link #solve(long)} at the same time; {@link #cancel()} is the
+ * only method meant to be called from another thread.
+ * <p>
+ * Flips (tiles in position 1 and 2 switched while the hole is in the last slot) can be enabled with
+ * {@link #setFlipCost(int)}: every permutation can then reach the goal, and a solution is optimal
+ * with respect to its cost, moves costing 1 and flips the given cost. A flip shows up in the moves
+ * as {@link BoardState#FLIP}.
+ */
+public abstract class Solver {
+
+  /** flip cost of a solver using regular moves only */
+  public static final int NO_FLIPS = 0;
+
+  // deadline and cancellation are checked once every CHECK_MASK + 1 expanded nodes
+  private static final int CHECK_MASK = (1 << 12) - 1;
+
+  protected final Grid grid;
+  protected final long goal;
+
+  protected int flipCost = NO_FLIPS;
+  private PatternDatabase patterns;
+
+  private volatile boolean cancelled;
+  private long timeBudgetNanos;
+  private long deadline;
+  private long nodesExpanded;
+  private Solution.Status abortStatus;
+
+  /**
+   * @param grid geometry of the boards to be solved
+   */
+  protected Solver(Grid grid) {
+    if (!grid.isPackable()) {
+      throw new IllegalArgumentException(grid + " boards are not supported.");
+    }
+    this.grid = grid;
+    this.goal = grid.goal();
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @param permutation labels from position 1 to dim * dim, same format fired with {@code RESTART_EVT}
+   * @return the optimal solution, or the reason why it has not been found
+   * @throws IllegalArgumentException when 'permutation' is not a permutation of the grid labels
+   */
+  public Solution solve(List<Integer> permutation) {
+    if (permutation.size() != grid.getSize()) {
+      throw new IllegalArgumentException("Permutation must have exactly " + grid.getSize() + " values.");
+    }
+    int seen = 0;
+    for (Integer label : permutation) {
+      if (label == null || label < 1 || label > grid.getSize() || (seen & (1 << label)) != 0) {
+        throw new IllegalArgumentException("Not a " + grid + " permutation: " + permutation);
+      }
+      seen |= 1 << label;
+    }
+    return solve(BoardState.pack(permutation));
+  }
+
+  /**
+   * @param packed packed board (see {@link BoardState#getPacked()})
+   * @return the optimal solution, or the reason why it has not been found
+   * @throws IllegalArgumentException when 'packed' is not a permutation of the grid labels
+   */
+  public Solution solve(long packed) {
+    checkPermutation(packed);
+
+    long start = System.nanoTime();
+    cancelled = false;
+    abortStatus = null;
+    nodesExpanded = 0;
+    deadline = start + timeBudgetNanos;
+
+    if (flipCost == NO_FLIPS && !grid.isSolvable(packed)) {
+      return new Solution(Solution.Status.UNSOLVABLE, null, 0, 0, System.nanoTime() - start);
+    }
+
+    int[] moves = search(packed);
+    long elapsed = System.nanoTime() - start;
+
+    if (moves == null) {
+      // a search exhausted without being stopped has proved that the goal cannot be reached
+      Solution.Status status = abortStatus != null ? abortStatus : Solution.Status.UNSOLVABLE;
+      return new Solution(status, null, 0, nodesExpanded, elapsed);
+    }
+    return new Solution(Solution.Status.SOLVED, moves, cost(moves), nodesExpanded, elapsed);
+  }
+
+  /**
+   * @param flipCost cost of a flip (a regular move costs 1), or {@link #NO_FLIPS} to solve with regular moves only
+   */
+  public void setFlipCost(int flipCost) {
+    if (flipCost < 0) throw new IllegalArgumentException("Flip cost must not be negative.");
+    this.flipCost = flipCost;
+  }
+
+  public int getFlipCost() {
+    return flipCost;
+  }
+
+  /**
+   * @param patterns pattern database of the grid, estimating the boards in place of manhattan distance
+   *        and linear conflicts when flips are disabled; null to go back to them
+   */
+  public void setPatternDatabase(PatternDatabase patterns) {
+    if (patterns != null && patterns.getGrid() != grid) {
+      throw new IllegalArgumentException("Pattern database of " + patterns.getGrid() + " boards.");
+    }
+    this.patterns = patterns;
+  }
+
+  public PatternDatabase getPatternDatabase() {
+    return patterns;
+  }
+
+  /**
+   * it limits the wall-clock time of each {@link #solve(long)} call
+   * @param millis time budget in milliseconds; 0 means no limit
+   */
+  public void setTimeBudget(long millis) {
+    this.timeBudgetNanos = millis * 1_000_000L;
+  }
+
+  /**
+   * it stops the running search (if any), which returns a {@link Solution.Status#CANCELLED} solution
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * @return admissible estimate of the cost from 'state' to the goal, under the current flip cost
+   */
+  protected final int estimate(long state) {
+    if (flipCost != NO_FLIPS) return Heuristics.flipEstimate(grid, state, flipCost);
+    return patterns != null ? patterns.estimate(state) : Heuristics.estimate(grid, state);
+  }
+
+  /**
+   * @return boolean: true -> a flip is a successor of 'state'; not otherwise
+   */
+  protected final boolean canFlip(long state) {
+    return flipCost != NO_FLIPS && grid.canFlip(state);
+  }
+
+  /**
+   * @param start packed board, solvable unless flips are enabled
+   * @return positions of the tiles to be clicked; null when the search has been stopped, or when it
+   *         has been exhausted without reaching the goal
+   */
+  protected abstract int[] search(long start);
+
+  /**
+   * @return cost of 'moves', a flip costing {@link #getFlipCost()} and any other move 1
+   */
+  private int cost(int[] moves) {
+    int cost = 0;
+    for (int move : moves) cost += move == BoardState.FLIP ? flipCost : 1;
+    return cost;
+  }
+
+  /**
+   * @throws IllegalArgumentException when 'packed' does not hold each label of the grid exactly once
+   */
+  private void checkPermutation(long packed) {
+    int size = grid.getSize();
+    int seen = 0;
+    for (int i = 0; i < size; i++) seen |= 1 << BoardState.labelAt(packed, i);
+    boolean extra = size < Grid.MAX_PACKED_SIZE && packed >>> (size * 4) != 0;
+    if (extra || seen != ((1 << (size + 1)) - 2)) {
+      throw new IllegalArgumentException("Not a " + grid + " permutation: " + PermutationFormat.format(packed, grid, new StringBuilder()));
+    }
+  }
+
+  /**
+   * it accounts for a node expansion and tells whether the search must be stopped because
+   * it has been cancelled or it ran out of time
+   * @return boolean: true -> the search must go on; false -> the search must return null
+   */
+  protected final boolean expand() {
+    if ((++nodesExpanded & CHECK_MASK) == 0 && abortStatus == null) {
+      if (cancelled) abortStatus = Solution.Status.CANCELLED;
+      else if (timeBudgetNanos > 0 && System.nanoTime() - deadline > 0) abortStatus = Solution.Status.TIMED_OUT;
+    }
+    return abortStatus == null;
+  }
+}
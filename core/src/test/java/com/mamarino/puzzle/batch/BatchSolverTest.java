@@ -0,0 +1,57 @@
+package com.mamarino.puzzle.batch;
+
+import com.mamarino.puzzle.core.BoardGenerator;
+import com.mamarino.puzzle.core.DistanceTable;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.PermutationFormat;
+import com.mamarino.puzzle.solver.IdaStarSolver;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchSolverTest {
+
+  private static final Grid GRID = Grid.DEFAULT;
+
+  @Test
+  void writesOneResultPerBoardInInputOrder() throws IOException {
+    DistanceTable table = DistanceTable.compute();
+    BoardGenerator generator = new BoardGenerator(GRID, 5);
+    long[] boards = new long[1000];
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < boards.length; i++) {
+      boards[i] = generator.next();
+      PermutationFormat.format(boards[i], GRID, input).append('\n');
+      if (i == 500) input.append("not a board\n\n");
+    }
+
+    StringWriter output = new StringWriter();
+    BatchSolver.Report report;
+    // chunks smaller than the input, so that reading, solving and writing overlap
+    try (BatchSolver batch = new BatchSolver(GRID, IdaStarSolver::new, 3, 128)) {
+      report = batch.run(new BufferedReader(new StringReader(input.toString())), output);
+    }
+
+    String[] lines = output.toString().split("\n");
+    assertEquals(boards.length + 1, lines.length);
+    assertEquals(boards.length + 1, report.getBoards());
+    assertEquals("not a board\tINVALID", lines[501]);
+    for (int i = 0; i < boards.length; i++) {
+      String[] fields = lines[i <= 500 ? i : i + 1].split("\t");
+      assertEquals(PermutationFormat.format(boards[i], GRID, new StringBuilder()).toString(), fields[0]);
+      assertEquals("SOLVED", fields[1]);
+      assertEquals(table.distance(boards[i]), Integer.parseInt(fields[2]));
+    }
+  }
+
+  @Test
+  void rejectsBoardsWhichCannotBePacked() {
+    assertThrows(IllegalArgumentException.class, () -> new BatchSolver(Grid.of(5), IdaStarSolver::new, 1, 16));
+  }
+}
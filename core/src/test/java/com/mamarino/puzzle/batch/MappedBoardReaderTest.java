@@ -0,0 +1,138 @@
+package com.mamarino.puzzle.batch;
+
+import com.mamarino.puzzle.core.BoardGenerator;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.PermutationFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedBoardReaderTest {
+
+  private static final Grid GRID = Grid.DEFAULT;
+  // "[1, 2, 3, 4, 5, 6, 7, 8, 9]" and its newline
+  private static final int LONGEST_LINE = 28;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void readsLinesAcrossWindows() throws IOException {
+    List<String> lines = lines(200);
+    for (boolean lastNewline : new boolean[] {true, false}) {
+      Path file = dir.resolve("boards-" + lastNewline + ".txt");
+      String text = String.join("\n", lines) + (lastNewline ? "\n" : "");
+      Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+
+      // every alignment of the window ends against the lines
+      for (int window = LONGEST_LINE; window <= 3 * LONGEST_LINE; window++) {
+        assertReadsLines(file, lines, window);
+      }
+      assertReadsLines(file, lines, MappedBoardReader.WINDOW_SIZE);
+    }
+  }
+
+  @Test
+  void rejectsALineLongerThanAWindow() throws IOException {
+    Path file = dir.resolve("boards.txt");
+    Files.write(file, "[1, 2, 3, 4, 5, 6, 7, 8, 9]\n".getBytes(StandardCharsets.US_ASCII));
+
+    try (MappedBoardReader reader = new MappedBoardReader(file, GRID, false, LONGEST_LINE - 1)) {
+      assertThrows(IOException.class, reader::next);
+    }
+    assertThrows(IllegalArgumentException.class, () -> new MappedBoardReader(file, GRID, false, Long.BYTES - 1));
+  }
+
+  @Test
+  void readsPackedBoardsAcrossWindows() throws IOException {
+    BoardGenerator generator = new BoardGenerator(GRID, 8);
+    long[] boards = new long[300];
+    for (int i = 0; i < boards.length; i++) boards[i] = generator.next();
+    // duplicate labels, and a label past the grid
+    boards[17] = boards[17] & ~0xFL | (boards[17] >>> 4 & 0xF);
+    boards[18] = boards[18] | 0xFL << 40;
+
+    // a trailing partial record, f.i. from a crashed writer
+    ByteBuffer bytes = ByteBuffer.allocate(boards.length * Long.BYTES + 3);
+    for (long board : boards) bytes.putLong(board);
+    Path file = dir.resolve("boards.bin");
+    Files.write(file, bytes.array());
+
+    for (int window = Long.BYTES; window <= 5 * Long.BYTES; window++) {
+      try (MappedBoardReader reader = new MappedBoardReader(file, GRID, true, window)) {
+        for (int i = 0; i < boards.length; i++) {
+          assertTrue(reader.next());
+          assertEquals(boards[i], reader.getBoard());
+          assertEquals(i != 17 && i != 18, reader.isValid());
+        }
+        assertFalse(reader.next());
+        assertEquals(boards.length * (long) Long.BYTES, reader.getOffset());
+      }
+    }
+  }
+
+  @Test
+  void readsAnEmptyFile() throws IOException {
+    Path file = Files.createFile(dir.resolve("empty"));
+    for (boolean binary : new boolean[] {true, false}) {
+      try (MappedBoardReader reader = new MappedBoardReader(file, GRID, binary, 16)) {
+        assertFalse(reader.next());
+      }
+    }
+  }
+
+  private static void assertReadsLines(Path file, List<String> lines, long window) throws IOException {
+    try (MappedBoardReader reader = new MappedBoardReader(file, GRID, false, window)) {
+      for (String line : lines) {
+        if (line.trim().isEmpty()) continue;
+
+        assertTrue(reader.next());
+        assertEquals(line, reader.getLine().toString());
+        boolean valid = !line.startsWith("x");
+        assertEquals(valid, reader.isValid());
+        if (valid) assertEquals(PermutationFormat.parse(line, GRID), reader.getBoard());
+      }
+      assertFalse(reader.next());
+    }
+  }
+
+  /**
+   * @return boards in the text forms accepted, of different lengths, with blank and invalid lines
+   */
+  private static List<String> lines(int count) {
+    BoardGenerator generator = new BoardGenerator(GRID, 9);
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      String board = PermutationFormat.format(generator.next(), GRID, new StringBuilder()).toString();
+      switch (i % 5) {
+        case 0:
+          lines.add(board);
+          break;
+        case 1:
+          lines.add(board.substring(1, board.length() - 1).replace(" ", ""));
+          break;
+        case 2:
+          lines.add(board.replaceAll("[^0-9]", " ").trim());
+          break;
+        case 3:
+          lines.add(i % 2 == 0 ? "" : "   ");
+          break;
+        default:
+          lines.add("x" + i);
+      }
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,91 @@
+package com.mamarino.puzzle.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RowWriterTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void reportsAFailedWriteAndClosesTheChannel() throws IOException {
+    FailingChannel channel = new FailingChannel(3 * RowWriter.BUFFER_SIZE);
+    RowWriter rows = new RowWriter(channel);
+
+    // rows beyond every buffer: the producer must get the failure rather than block
+    IOException failure = null;
+    for (int i = 0; i < 100 * RowWriter.BUFFERS * RowWriter.BUFFER_SIZE / 16 && failure == null; i++) {
+      try {
+        rows.append("row ").append(i).endRow();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    assertNotNull(failure);
+    assertEquals("disk full", failure.getMessage());
+    IOException closing = assertThrows(IOException.class, rows::close);
+    assertEquals("disk full", closing.getMessage());
+    assertFalse(channel.isOpen());
+  }
+
+  @Test
+  void writesEveryRow() throws IOException {
+    Path file = dir.resolve("rows.txt");
+    StringBuilder expected = new StringBuilder();
+    try (RowWriter rows = new RowWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE))) {
+      for (long i = -50_000; i < 50_000; i += 7) {
+        rows.append("row").append('\t').append(i * 1_000_003L).endRow();
+        expected.append("row\t").append(i * 1_000_003L).append('\n');
+      }
+    }
+    assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * channel failing once 'capacity' bytes have been written
+   */
+  private static final class FailingChannel implements WritableByteChannel {
+
+    private int capacity;
+    private boolean open = true;
+
+    FailingChannel(int capacity) {
+      this.capacity = capacity;
+    }
+
+    @Override
+    public int write(ByteBuffer buffer) throws IOException {
+      if (capacity == 0) throw new IOException("disk full");
+
+      int written = Math.min(capacity, buffer.remaining());
+      buffer.position(buffer.position() + written);
+      capacity -= written;
+      return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+    }
+  }
+}
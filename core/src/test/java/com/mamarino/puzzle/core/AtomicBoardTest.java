@@ -0,0 +1,139 @@
+package com.mamarino.puzzle.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AtomicBoardTest {
+
+  private static final Grid GRID = Grid.DEFAULT;
+  private static final int THREADS = 8;
+  private static final int CHANGES = 50_000;
+
+  @Test
+  void deliversEveryVersionOnceInOrder() throws InterruptedException {
+    AtomicBoard board = new AtomicBoard(GRID, GRID.goal());
+    Recorder first = new Recorder(GRID.goal());
+    Recorder second = new Recorder(GRID.goal());
+    board.addListener(first);
+    board.addListener(version -> {
+      if (version.getVersion() % 3 == 0) throw new IllegalStateException("listener failure " + version.getVersion());
+    });
+    board.addListener(second);
+
+    long accepted = stress(board);
+
+    assertEquals(accepted, board.current().getVersion());
+    for (Recorder recorder : new Recorder[] {first, second}) {
+      assertNull(recorder.error);
+      assertEquals(accepted, recorder.count);
+      assertEquals(accepted, recorder.last.getVersion());
+      assertEquals(board.current().getPacked(), recorder.last.getPacked());
+    }
+  }
+
+  @Test
+  void rejectsIllegalChanges() {
+    AtomicBoard board = new AtomicBoard(GRID, GRID.goal());
+    // the hole is in position 9: 1 is not next to it
+    assertEquals(BoardVersion.REJECTED, board.move(1));
+    assertEquals(BoardVersion.REJECTED, board.move(10));
+
+    BoardVersion moved = board.move(8);
+    assertTrue(moved.isAccepted());
+    assertEquals(BoardVersion.REJECTED, board.flip());
+    assertEquals(BoardVersion.STALE, board.move(9, moved.getVersion() - 1));
+    assertTrue(board.move(9, moved.getVersion()).isAccepted());
+    assertTrue(board.flip().isAccepted());
+
+    assertThrows(IllegalArgumentException.class, () -> new AtomicBoard(Grid.of(5), 0L));
+  }
+
+  /**
+   * it makes THREADS threads change 'board' at random at the same time
+   * @return number of accepted changes
+   */
+  private static long stress(AtomicBoard board) throws InterruptedException {
+    AtomicLong accepted = new AtomicLong();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+
+    for (int t = 0; t < THREADS; t++) {
+      SplittableRandom random = new SplittableRandom(t);
+      BoardGenerator generator = new BoardGenerator(GRID, t);
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < CHANGES; i++) {
+          int kind = random.nextInt(100);
+          BoardVersion version;
+          if (kind == 0) version = board.restart(generator.next());
+          else if (kind < 10) version = board.flip();
+          else if (kind < 40) version = board.move(random.nextInt(GRID.getSize()) + 1, board.current().getVersion());
+          else version = board.move(random.nextInt(GRID.getSize()) + 1);
+          if (version.isAccepted()) accepted.incrementAndGet();
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+
+    start.countDown();
+    for (Thread thread : threads) thread.join();
+    return accepted.get();
+  }
+
+  /**
+   * listener checking that it is never called concurrently, and that each version follows the one
+   * before it: next number, and a board produced by the change it carries
+   */
+  private static final class Recorder implements AtomicBoard.Listener {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private BoardVersion last;
+    private long lastPacked;
+    private long count;
+    // first violation seen; assertions thrown here would be swallowed as listener failures
+    private volatile String error;
+
+    Recorder(long initial) {
+      this.lastPacked = initial;
+    }
+
+    @Override
+    public void boardChanged(BoardVersion version) {
+      if (calls.incrementAndGet() != 1) fail("concurrent call on version " + version.getVersion());
+
+      long expected = last == null ? 1 : last.getVersion() + 1;
+      if (version.getVersion() != expected) fail("version " + version.getVersion() + " after " + (expected - 1));
+
+      int change = version.getChange();
+      long packed = change == BoardVersion.RESTART ? version.getPacked()
+          : change == BoardState.FLIP ? BoardState.flip(lastPacked)
+          : BoardState.swap(lastPacked, version.getPreviousHole() - 1, change - 1);
+      if (packed != version.getPacked()) fail("version " + version.getVersion() + " does not follow the one before");
+
+      last = version;
+      lastPacked = version.getPacked();
+      count++;
+      calls.decrementAndGet();
+    }
+
+    private void fail(String message) {
+      if (error == null) error = message;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.mamarino.puzzle.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistanceTableTest {
+
+  private static final Grid GRID = Grid.DEFAULT;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void reachesTheSolvableHalf() {
+    DistanceTable table = DistanceTable.compute();
+    int reachable = 0;
+    int hardest = 0;
+
+    for (int rank = 0; rank < DistanceTable.COUNT; rank++) {
+      long packed = StateSpace.full(GRID).unrank(rank);
+      int distance = table.distanceOfRank(rank);
+      assertEquals(GRID.isSolvable(packed), distance != DistanceTable.UNREACHABLE);
+      if (distance == DistanceTable.UNREACHABLE) continue;
+
+      reachable++;
+      assertTrue(distance >= Heuristics.estimate(GRID, packed));
+      if (distance == 31) hardest++;
+    }
+    assertEquals(DistanceTable.COUNT / 2, reachable);
+    // the two hardest 8-puzzle boards
+    assertEquals(2, hardest);
+    assertEquals(0, table.distance(GRID.goal()));
+  }
+
+  @Test
+  void bestMovesWalkToTheGoal() {
+    DistanceTable table = DistanceTable.compute();
+    BoardGenerator generator = new BoardGenerator(GRID, 3);
+
+    for (int i = 0; i < 1000; i++) {
+      long packed = generator.next();
+      assertWalks(table, packed, table.solve(packed));
+    }
+    assertEquals(-1, table.bestMove(GRID.goal()));
+    assertNull(table.solve(BoardState.flip(GRID.goal())));
+  }
+
+  @Test
+  void reachesEveryBoardWithFlips() {
+    for (int flipCost : new int[] {1, 2, 7}) {
+      DistanceTable table = DistanceTable.computeWithFlips(flipCost);
+      assertEquals(flipCost, table.getFlipCost());
+      assertEquals(flipCost, table.distance(BoardState.flip(GRID.goal())));
+
+      StateSpace space = StateSpace.full(GRID);
+      for (long rank = 0; rank < space.size(); rank += 97) {
+        long packed = space.unrank(rank);
+        assertWalks(table, packed, table.solve(packed));
+      }
+    }
+    assertThrows(IllegalArgumentException.class, () -> DistanceTable.computeWithFlips(0));
+    assertThrows(IllegalArgumentException.class, () -> DistanceTable.computeWithFlips(DistanceTable.MAX_FLIP_COST + 1));
+  }
+
+  @Test
+  void loadsWhatItWrites() throws IOException {
+    DistanceTable table = DistanceTable.compute();
+    Path file = dir.resolve("3x3.table");
+    DistanceTable created = DistanceTable.loadOrCreate(file);
+    assertTrue(Files.exists(file));
+    assertSameDistances(table, created);
+    assertSameDistances(table, DistanceTable.load(file));
+
+    DistanceTable flips = DistanceTable.computeWithFlips(3);
+    Path flipFile = dir.resolve("3x3-flips.table");
+    flips.write(flipFile);
+    DistanceTable loaded = DistanceTable.load(flipFile);
+    assertEquals(3, loaded.getFlipCost());
+    assertSameDistances(flips, loaded);
+  }
+
+  @Test
+  void keepsTheDefaultTablesInTheTablesDirectory() throws IOException {
+    String previous = System.setProperty(DistanceTable.DIRECTORY_PROPERTY, dir.resolve("tables").toString());
+    try {
+      DistanceTable table = DistanceTable.loadDefault(DistanceTable.NO_FLIPS);
+      Path file = dir.resolve("tables").resolve("distance-3x3.table");
+      assertTrue(Files.exists(file));
+      assertSameDistances(DistanceTable.compute(), table);
+
+      // a corrupted file is computed again and replaced
+      Files.write(file, new byte[10]);
+      assertSameDistances(DistanceTable.compute(), DistanceTable.loadDefault(DistanceTable.NO_FLIPS));
+      assertSameDistances(DistanceTable.compute(), DistanceTable.load(file));
+
+      DistanceTable flips = DistanceTable.loadDefault(2);
+      assertEquals(2, flips.getFlipCost());
+      assertSameDistances(DistanceTable.computeWithFlips(2), flips);
+    } finally {
+      if (previous == null) System.clearProperty(DistanceTable.DIRECTORY_PROPERTY);
+      else System.setProperty(DistanceTable.DIRECTORY_PROPERTY, previous);
+    }
+  }
+
+  @Test
+  void rejectsOtherFiles() throws IOException {
+    Path empty = Files.createFile(dir.resolve("empty"));
+    assertThrows(IOException.class, () -> DistanceTable.load(empty));
+
+    // right size, no magic number
+    Path zeros = Files.write(dir.resolve("zeros"), new byte[DistanceTable.HEADER_SIZE + DistanceTable.COUNT]);
+    assertThrows(IOException.class, () -> DistanceTable.load(zeros));
+  }
+
+  /**
+   * it checks that 'moves' bring 'packed' to the goal at the cost the table gives
+   */
+  private static void assertWalks(DistanceTable table, long packed, int[] moves) {
+    int cost = 0;
+    long state = packed;
+    for (int move : moves) {
+      if (move == BoardState.FLIP) {
+        state = BoardState.flip(state);
+        cost += table.getFlipCost();
+      } else {
+        int hole = GRID.holeIndex(state);
+        assertTrue(GRID.isAdjacent(hole, move - 1));
+        state = BoardState.swap(state, hole, move - 1);
+        cost++;
+      }
+    }
+    assertEquals(GRID.goal(), state);
+    assertEquals(table.distance(packed), cost);
+  }
+
+  private static void assertSameDistances(DistanceTable expected, DistanceTable actual) {
+    for (int rank = 0; rank < DistanceTable.COUNT; rank++) {
+      assertEquals(expected.distanceOfRank(rank), actual.distanceOfRank(rank));
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package com.mamarino.puzzle.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSnapshotTest {
+
+  private static final String[] STATUSES = {"START", "OK", "KO", "YOU WON!", "", "Solved in 31 moves", "\u00e0\u00e8\u00ec"};
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void readsWhatItWritesOnEveryGrid() {
+    for (int dim = Grid.MIN_DIM; dim <= Grid.MAX_DIM; dim++) {
+      Grid grid = Grid.of(dim);
+      BoardGenerator generator = new BoardGenerator(grid, dim);
+
+      for (int i = 0; i < 50; i++) {
+        GameSnapshot snapshot = snapshot(generator, i);
+        ByteBuffer buffer = ByteBuffer.allocate(snapshot.maxSize() + 1);
+        snapshot.write(buffer);
+        int size = buffer.position();
+        buffer.put((byte) 42).flip();
+
+        assertSameGame(snapshot, GameSnapshot.read(buffer));
+        assertEquals(size, buffer.position());
+      }
+    }
+  }
+
+  @Test
+  void rejectsTruncatedSnapshots() {
+    for (int dim : new int[] {3, 5}) {
+      GameSnapshot snapshot = snapshot(new BoardGenerator(Grid.of(dim), 1), 5);
+      byte[] bytes = bytes(snapshot);
+
+      for (int length = 0; length < bytes.length; length++) {
+        ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, length);
+        assertThrows(IllegalArgumentException.class, () -> GameSnapshot.read(truncated));
+      }
+    }
+  }
+
+  @Test
+  void rejectsACorruptStatusLength() {
+    // version, dimension, OTHER status, then a length far beyond the buffer
+    for (long length : new long[] {1L << 31, -1L, 1000}) {
+      ByteBuffer buffer = ByteBuffer.allocate(32).put(GameSnapshot.VERSION).put((byte) 3).put((byte) 5);
+      GameSnapshot.putVarint(buffer, length);
+      buffer.put(new byte[10]).flip();
+      assertThrows(IllegalArgumentException.class, () -> GameSnapshot.read(buffer));
+    }
+  }
+
+  @Test
+  void rejectsBoardsWhichAreNotPermutations() {
+    Grid grid = Grid.of(5);
+    byte[] bytes = bytes(snapshot(new BoardGenerator(grid, 2), 0));
+    // version, dimension, START status, hole position, then a byte per slot
+    int tiles = 4;
+
+    for (int label : new int[] {0, -3, grid.getSize() + 1}) {
+      byte[] corrupted = bytes.clone();
+      int slot = corrupted[tiles] == grid.getHole() ? 1 : 0;
+      corrupted[tiles + slot] = (byte) label;
+      assertThrows(IllegalArgumentException.class, () -> GameSnapshot.read(ByteBuffer.wrap(corrupted)));
+    }
+
+    byte[] duplicate = bytes.clone();
+    int a = duplicate[tiles] == grid.getHole() ? 1 : 0;
+    int b = duplicate[tiles + a + 1] == grid.getHole() ? a + 2 : a + 1;
+    duplicate[tiles + b] = duplicate[tiles + a];
+    assertThrows(IllegalArgumentException.class, () -> GameSnapshot.read(ByteBuffer.wrap(duplicate)));
+  }
+
+  @Test
+  void rejectsOtherCorruptions() {
+    byte[] bytes = bytes(snapshot(new BoardGenerator(Grid.DEFAULT, 3), 0));
+
+    byte[] version = bytes.clone();
+    version[0] = GameSnapshot.VERSION + 1;
+    byte[] dimension = bytes.clone();
+    dimension[1] = Grid.MAX_DIM + 1;
+    byte[] status = bytes.clone();
+    status[2] = 100;
+    byte[] hole = bytes.clone();
+    hole[3] = (byte) (hole[3] % 9 + 1);
+
+    for (byte[] corrupted : new byte[][] {version, dimension, status, hole}) {
+      assertThrows(IllegalArgumentException.class, () -> GameSnapshot.read(ByteBuffer.wrap(corrupted)));
+    }
+
+    // rank past 9!
+    ByteBuffer rank = ByteBuffer.allocate(32).put(GameSnapshot.VERSION).put((byte) 3).put((byte) 0).put((byte) 9);
+    GameSnapshot.putVarint(rank, StateSpace.full(Grid.DEFAULT).size());
+    rank.put(new byte[3]).flip();
+    assertThrows(IllegalArgumentException.class, () -> GameSnapshot.read(rank));
+  }
+
+  @Test
+  void storesManyGamesInAFile() throws IOException {
+    Path file = dir.resolve("games.snapshots");
+    List<GameSnapshot> snapshots = new ArrayList<>();
+    BoardGenerator generator = new BoardGenerator(Grid.of(4), 4);
+    try (SnapshotFile.Writer writer = SnapshotFile.create(file)) {
+      for (int i = 0; i < 100_000; i++) {
+        GameSnapshot snapshot = snapshot(generator, i);
+        snapshots.add(snapshot);
+        writer.append(i * 3L, snapshot);
+      }
+    }
+
+    try (SnapshotFile.Reader reader = SnapshotFile.open(file)) {
+      for (int i = 0; i < snapshots.size(); i++) {
+        assertTrue(reader.next());
+        assertEquals(i * 3L, reader.getId());
+        assertSameGame(snapshots.get(i), reader.getSnapshot());
+      }
+      assertFalse(reader.next());
+    }
+
+    // a crash while the last record was being written
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(file) - 2);
+    }
+    try (SnapshotFile.Reader reader = SnapshotFile.open(file)) {
+      for (int i = 0; i < snapshots.size() - 1; i++) assertTrue(reader.next());
+      assertThrows(IOException.class, reader::next);
+    }
+  }
+
+  private static GameSnapshot snapshot(BoardGenerator generator, int i) {
+    BoardState board = new BoardState(generator.nextPermutation());
+    return GameSnapshot.of(board, i * 1_000_003L, i % 7 - 1, i % 11 - 1, STATUSES[i % STATUSES.length]);
+  }
+
+  private static byte[] bytes(GameSnapshot snapshot) {
+    ByteBuffer buffer = ByteBuffer.allocate(snapshot.maxSize());
+    snapshot.write(buffer);
+    byte[] bytes = new byte[buffer.position()];
+    buffer.flip().get(bytes);
+    return bytes;
+  }
+
+  private static void assertSameGame(GameSnapshot expected, GameSnapshot actual) {
+    assertEquals(expected.getGrid(), actual.getGrid());
+    assertEquals(expected.toBoard().toString(), actual.toBoard().toString());
+    assertEquals(expected.getHolePosition(), actual.getHolePosition());
+    assertEquals(expected.getMoveCount(), actual.getMoveCount());
+    assertEquals(expected.getClickedPosition(), actual.getClickedPosition());
+    assertEquals(expected.getClickedLabel(), actual.getClickedLabel());
+    assertEquals(expected.getStatus(), actual.getStatus());
+  }
+}
@@ -0,0 +1,71 @@
+package com.mamarino.puzzle.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeuristicTrackerTest {
+
+  @Test
+  void followsMovesAndFlipsOnEveryGrid() {
+    SplittableRandom random = new SplittableRandom(13);
+
+    for (int dim = Grid.MIN_DIM; dim <= Grid.MAX_DIM; dim++) {
+      Grid grid = Grid.of(dim);
+      BoardState board = new BoardState(new BoardGenerator(grid, random.nextLong()).nextPermutation());
+      HeuristicTracker tracker = new HeuristicTracker(grid);
+      tracker.reset(board);
+
+      for (int i = 0; i < 5000; i++) {
+        if (random.nextInt(10) == 0 && board.canFlip()) {
+          assertTrue(board.flip());
+          tracker.flipped(board);
+        } else {
+          int hole = board.getHolePosition();
+          int position = grid.neighbour(hole - 1, random.nextInt(grid.neighbourCount(hole - 1))) + 1;
+          assertTrue(board.move(position));
+          tracker.moved(board, position, hole);
+        }
+        assertRecomputed(grid, board, tracker);
+      }
+    }
+  }
+
+  @Test
+  void solvedOnlyAtTheGoal() {
+    Grid grid = Grid.of(4);
+    BoardState board = new BoardState(grid, grid.goal());
+    HeuristicTracker tracker = new HeuristicTracker(grid);
+    tracker.reset(board);
+    assertTrue(tracker.isSolved());
+    assertEquals(0, tracker.getEstimate());
+
+    assertTrue(board.move(grid.getSize() - 1));
+    tracker.moved(board, grid.getSize() - 1, grid.getSize());
+    assertFalse(tracker.isSolved());
+    assertEquals(1, tracker.getEstimate());
+  }
+
+  /**
+   * it checks the tracked values against a tracker reset on 'board', and against {@link Heuristics}
+   * when the board can be packed
+   */
+  private static void assertRecomputed(Grid grid, BoardState board, HeuristicTracker tracker) {
+    HeuristicTracker fresh = new HeuristicTracker(grid);
+    fresh.reset(board);
+    assertEquals(fresh.getMisplaced(), tracker.getMisplaced());
+    assertEquals(fresh.getManhattan(), tracker.getManhattan());
+    assertEquals(fresh.getLinearConflict(), tracker.getLinearConflict());
+
+    if (grid.isPackable()) {
+      long packed = board.getPacked();
+      assertEquals(Heuristics.misplaced(grid, packed), tracker.getMisplaced());
+      assertEquals(Heuristics.manhattan(grid, packed), tracker.getManhattan());
+      assertEquals(Heuristics.linearConflict(grid, packed), tracker.getLinearConflict());
+    }
+  }
+}
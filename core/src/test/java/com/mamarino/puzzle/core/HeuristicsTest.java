@@ -0,0 +1,81 @@
+package com.mamarino.puzzle.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HeuristicsTest {
+
+  @Test
+  void countsTheFewestTilesLeavingALine() {
+    assertEquals(0, conflicts(0, 1, 2, 3));
+    assertEquals(3, conflicts(3, 2, 1, 0));
+    // removing first tile 3, one of those in most conflicts, would take 3 removals
+    assertEquals(2, conflicts(1, 3, 0, 4, 2));
+    assertEquals(1, conflicts(4, 0, 1, 2, 3));
+    assertEquals(0, conflicts());
+    assertEquals(9, conflicts(10, 9, 8, 7, 6, 5, 4, 3, 2, 1));
+  }
+
+  @Test
+  void matchesEveryRemovalOfShortLines() {
+    for (int count = 1; count <= 7; count++) {
+      int[] goals = new int[count];
+      for (int i = 0; i < count; i++) goals[i] = i;
+      do {
+        assertEquals(fewestRemovals(goals), conflicts(goals));
+      } while (nextPermutation(goals));
+    }
+  }
+
+  @Test
+  void linearConflictOfTheGoalIsZero() {
+    for (int dim = Grid.MIN_DIM; dim <= 4; dim++) {
+      Grid grid = Grid.of(dim);
+      assertEquals(0, Heuristics.linearConflict(grid, grid.goal()));
+      assertEquals(0, Heuristics.estimate(grid, grid.goal()));
+    }
+  }
+
+  private static int conflicts(int... goals) {
+    long line = 0L;
+    for (int i = 0; i < goals.length; i++) line |= (long) goals[i] << (4 * i);
+    return Heuristics.lineConflicts(line, goals.length);
+  }
+
+  /**
+   * @return fewest tiles of 'goals' to be removed so that the others are in order, trying every subset
+   */
+  private static int fewestRemovals(int[] goals) {
+    int fewest = goals.length;
+    for (int kept = 0; kept < 1 << goals.length; kept++) {
+      int last = -1;
+      boolean ordered = true;
+      for (int i = 0; i < goals.length && ordered; i++) {
+        if ((kept & (1 << i)) == 0) continue;
+        ordered = goals[i] > last;
+        last = goals[i];
+      }
+      if (ordered) fewest = Math.min(fewest, goals.length - Integer.bitCount(kept));
+    }
+    return fewest;
+  }
+
+  private static boolean nextPermutation(int[] a) {
+    int i = a.length - 2;
+    while (i >= 0 && a[i] >= a[i + 1]) i--;
+    if (i < 0) return false;
+
+    int j = a.length - 1;
+    while (a[j] <= a[i]) j--;
+    swap(a, i, j);
+    for (int l = i + 1, r = a.length - 1; l < r; l++, r--) swap(a, l, r);
+    return true;
+  }
+
+  private static void swap(int[] a, int i, int j) {
+    int t = a[i];
+    a[i] = a[j];
+    a[j] = t;
+  }
+}
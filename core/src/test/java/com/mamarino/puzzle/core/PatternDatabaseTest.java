@@ -0,0 +1,83 @@
+package com.mamarino.puzzle.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatternDatabaseTest {
+
+  private static final Grid GRID = Grid.DEFAULT;
+  private static final int[][] PATTERNS = {{1, 2, 3, 4}, {5, 6, 7, 8}};
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void estimatesAreAdmissible() {
+    PatternDatabase database = PatternDatabase.compute(GRID, PATTERNS, 2);
+    DistanceTable table = DistanceTable.compute();
+    StateSpace space = StateSpace.solvable(GRID);
+
+    boolean aboveManhattan = false;
+    for (long rank = 0; rank < space.size(); rank++) {
+      long packed = space.unrank(rank);
+      int estimate = database.estimate(packed);
+      int manhattan = Heuristics.manhattan(GRID, packed);
+
+      assertTrue(estimate >= manhattan);
+      assertTrue(estimate <= table.distance(packed));
+      assertEquals(0, (table.distance(packed) - estimate) % 2);
+      aboveManhattan |= estimate > manhattan;
+    }
+    assertTrue(aboveManhattan);
+    assertEquals(0, database.estimate(GRID.goal()));
+  }
+
+  @Test
+  void computesTheSameOnAnyNumberOfThreads() {
+    PatternDatabase single = PatternDatabase.compute(GRID, PATTERNS, 1);
+    PatternDatabase parallel = PatternDatabase.compute(GRID, PATTERNS, 4);
+    assertSameEstimates(single, parallel);
+  }
+
+  @Test
+  void loadsWhatItWrites() throws IOException {
+    Path file = dir.resolve("3x3.pdb");
+    PatternDatabase database = PatternDatabase.compute(GRID, new int[][] {{4, 3, 2, 1}, {8, 7, 6, 5}}, 2);
+    database.write(file);
+
+    PatternDatabase loaded = PatternDatabase.load(file);
+    assertEquals(GRID, loaded.getGrid());
+    assertEquals(PATTERNS.length, loaded.getPatterns().length);
+    for (int p = 0; p < PATTERNS.length; p++) assertArrayEquals(PATTERNS[p], loaded.getPatterns()[p]);
+    assertSameEstimates(database, loaded);
+
+    assertThrows(IOException.class, () -> PatternDatabase.loadOrCreate(file, Grid.of(4)));
+  }
+
+  @Test
+  void rejectsInvalidPatterns() {
+    assertThrows(IllegalArgumentException.class, () -> PatternDatabase.compute(GRID, new int[][] {{1, 2}, {2, 3}}, 1));
+    assertThrows(IllegalArgumentException.class, () -> PatternDatabase.compute(GRID, new int[][] {{1, 9}}, 1));
+    assertThrows(IllegalArgumentException.class, () -> PatternDatabase.compute(GRID, new int[][] {{}}, 1));
+    assertThrows(IllegalArgumentException.class, () -> PatternDatabase.compute(GRID, new int[0][], 1));
+    assertThrows(IllegalArgumentException.class, () -> PatternDatabase.defaultPatterns(GRID));
+    assertThrows(IllegalArgumentException.class, () -> PatternDatabase.defaultPatterns(Grid.of(5)));
+    assertThrows(IllegalArgumentException.class, () -> PatternDatabase.compute(Grid.of(5), new int[][] {{1, 2}}, 1));
+  }
+
+  private static void assertSameEstimates(PatternDatabase expected, PatternDatabase actual) {
+    StateSpace space = StateSpace.full(GRID);
+    for (long rank = 0; rank < space.size(); rank++) {
+      long packed = space.unrank(rank);
+      assertEquals(expected.estimate(packed), actual.estimate(packed));
+    }
+  }
+}
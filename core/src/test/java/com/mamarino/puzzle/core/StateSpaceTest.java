@@ -0,0 +1,82 @@
+package com.mamarino.puzzle.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateSpaceTest {
+
+  @Test
+  void fullSpaceRanksEveryPermutation() {
+    for (int dim = 2; dim <= 3; dim++) {
+      StateSpace space = StateSpace.full(Grid.of(dim));
+      assertEquals(factorial(dim * dim), space.size());
+      assertRoundTrips(space);
+    }
+  }
+
+  @Test
+  void solvableSpaceRanksTheSolvableHalf() {
+    for (int dim = 2; dim <= 3; dim++) {
+      Grid grid = Grid.of(dim);
+      StateSpace space = StateSpace.solvable(grid);
+      assertEquals(factorial(dim * dim) / 2, space.size());
+      assertRoundTrips(space);
+
+      for (long rank = 0; rank < space.size(); rank++) {
+        assertTrue(grid.isSolvable(space.unrank(rank)));
+      }
+    }
+  }
+
+  @Test
+  void ranks4x4Boards() {
+    Grid grid = Grid.of(4);
+    StateSpace full = StateSpace.full(grid);
+    StateSpace solvable = StateSpace.solvable(grid);
+    BoardGenerator generator = new BoardGenerator(grid, 12);
+
+    for (int i = 0; i < 100_000; i++) {
+      long packed = generator.next();
+      assertEquals(packed, full.unrank(full.rank(packed)));
+      assertEquals(packed, solvable.unrank(solvable.rank(packed)));
+    }
+    assertEquals(0, full.rank(grid.goal()));
+    assertEquals(full.size() - 1, full.rank(full.unrank(full.size() - 1)));
+  }
+
+  @Test
+  void solvableSpaceRejectsUnsolvableBoards() {
+    Grid grid = Grid.DEFAULT;
+    long unsolvable = BoardState.flip(grid.goal());
+
+    assertThrows(IllegalArgumentException.class, () -> StateSpace.solvable(grid).rank(unsolvable));
+    assertThrows(IllegalArgumentException.class, () -> StateSpace.full(grid).unrank(-1));
+  }
+
+  /**
+   * it checks that every rank gives a distinct board, which ranks back to it
+   */
+  private static void assertRoundTrips(StateSpace space) {
+    StateSpace full = StateSpace.full(space.getGrid());
+    BitSet seen = full.newVisitedSet();
+
+    for (long rank = 0; rank < space.size(); rank++) {
+      long packed = space.unrank(rank);
+      assertEquals(rank, space.rank(packed));
+
+      int index = (int) full.rank(packed);
+      assertFalse(seen.get(index));
+      seen.set(index);
+    }
+  }
+
+  private static long factorial(int n) {
+    return n <= 1 ? 1 : n * factorial(n - 1);
+  }
+}
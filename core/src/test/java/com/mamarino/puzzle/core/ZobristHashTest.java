@@ -0,0 +1,109 @@
+package com.mamarino.puzzle.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZobristHashTest {
+
+  @Test
+  void followsMovesAndFlipsOnEveryGrid() {
+    SplittableRandom random = new SplittableRandom(7);
+
+    for (int dim = Grid.MIN_DIM; dim <= Grid.MAX_DIM; dim++) {
+      Grid grid = Grid.of(dim);
+      ZobristHash zobrist = new ZobristHash(grid);
+      byte[] tiles = new byte[grid.getSize()];
+      new BoardGenerator(grid, random.nextLong()).next(tiles);
+      long hash = zobrist.hash(tiles);
+
+      for (int i = 0; i < 2000; i++) {
+        int hole = indexOf(tiles, grid.getHole());
+        boolean flip = hole == grid.getSize() - 1 && random.nextInt(5) == 0;
+        // a flip switches the first two slots, a move the hole and one of its neighbours
+        int a = flip ? 0 : hole;
+        int b = flip ? 1 : grid.neighbour(hole, random.nextInt(grid.neighbourCount(hole)));
+
+        hash = zobrist.swap(hash, tiles, a, b);
+        byte label = tiles[a];
+        tiles[a] = tiles[b];
+        tiles[b] = label;
+        assertEquals(zobrist.hash(tiles), hash);
+      }
+    }
+  }
+
+  @Test
+  void tellsEvery3x3BoardApart() {
+    Grid grid = Grid.DEFAULT;
+    ZobristHash zobrist = new ZobristHash(grid);
+    HashedVisitedSet visited = new HashedVisitedSet(16);
+    ArrayDeque<byte[]> queue = new ArrayDeque<>();
+
+    // breadth-first search over byte[] boards, as on grids with no dense rank
+    byte[] goal = new byte[grid.getSize()];
+    for (int i = 0; i < goal.length; i++) goal[i] = (byte) (i + 1);
+    assertTrue(visited.add(zobrist.hash(goal)));
+    queue.add(goal);
+
+    while (!queue.isEmpty()) {
+      byte[] tiles = queue.poll();
+      int hole = indexOf(tiles, grid.getHole());
+      long hash = zobrist.hash(tiles);
+      for (int k = 0; k < grid.neighbourCount(hole); k++) {
+        int next = grid.neighbour(hole, k);
+        if (!visited.add(zobrist.swap(hash, tiles, hole, next))) continue;
+
+        byte[] child = tiles.clone();
+        child[hole] = child[next];
+        child[next] = (byte) grid.getHole();
+        queue.add(child);
+      }
+    }
+    assertEquals(StateSpace.solvable(grid).size(), visited.size());
+  }
+
+  @Test
+  void visitedSetAgreesWithAHashSet() {
+    SplittableRandom random = new SplittableRandom(11);
+    HashedVisitedSet visited = new HashedVisitedSet();
+    Set<Long> expected = new HashSet<>();
+
+    for (int i = 0; i < 200_000; i++) {
+      // few distinct values, so that most adds find the hash already there
+      long hash = random.nextInt(50_000) * 0x9E3779B97F4A7C15L;
+      assertEquals(expected.add(hash), visited.add(hash));
+      assertTrue(visited.contains(hash));
+    }
+    assertEquals(expected.size(), visited.size());
+    assertTrue(visited.contains(0L));
+
+    visited.clear();
+    assertEquals(0, visited.size());
+    assertFalse(visited.contains(0L));
+    assertFalse(visited.contains(0x9E3779B97F4A7C15L));
+  }
+
+  @Test
+  void dependsOnTheSeed() {
+    Grid grid = Grid.of(5);
+    byte[] tiles = new byte[grid.getSize()];
+    new BoardGenerator(grid, 1).next(tiles);
+
+    assertEquals(new ZobristHash(grid, 3).hash(tiles), new ZobristHash(grid, 3).hash(tiles));
+    assertFalse(new ZobristHash(grid, 3).hash(tiles) == new ZobristHash(grid, 4).hash(tiles));
+  }
+
+  private static int indexOf(byte[] tiles, int label) {
+    int i = 0;
+    while (tiles[i] != label) i++;
+    return i;
+  }
+}
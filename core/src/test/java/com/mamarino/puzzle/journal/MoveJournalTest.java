@@ -0,0 +1,147 @@
+package com.mamarino.puzzle.journal;
+
+import com.mamarino.puzzle.core.BoardGenerator;
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.Grid;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveJournalTest {
+
+  private static final Grid GRID = Grid.DEFAULT;
+  // small, so that replays start from checkpoints as well as from restarts
+  private static final int CHECKPOINT_INTERVAL = 7;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void replaysEveryEventAfterReopen() throws IOException {
+    Path file = dir.resolve("game.journal");
+    List<Long> boards = new ArrayList<>();
+    try (MoveJournal journal = MoveJournal.open(file, GRID, CHECKPOINT_INTERVAL, false)) {
+      play(journal, null, boards, 2000, new SplittableRandom(1));
+    }
+
+    assertReplays(file, boards, boards.size());
+  }
+
+  @Test
+  void appendsToAnExistingJournal() throws IOException {
+    Path file = dir.resolve("game.journal");
+    List<Long> boards = new ArrayList<>();
+    SplittableRandom random = new SplittableRandom(2);
+    try (MoveJournal journal = MoveJournal.open(file, GRID, CHECKPOINT_INTERVAL, false)) {
+      play(journal, null, boards, 500, random);
+    }
+
+    try (MoveJournal journal = MoveJournal.open(file, GRID, CHECKPOINT_INTERVAL, false)) {
+      assertEquals(boards.size(), journal.getEventCount());
+      play(journal, new BoardState(GRID, boards.get(boards.size() - 1)), boards, 500, random);
+    }
+
+    assertReplays(file, boards, boards.size());
+  }
+
+  @Test
+  void discardsARecordCutOffAtTheEnd() throws IOException {
+    Path file = dir.resolve("game.journal");
+    List<Long> boards = new ArrayList<>();
+    SplittableRandom random = new SplittableRandom(3);
+    try (MoveJournal journal = MoveJournal.open(file, GRID, CHECKPOINT_INTERVAL, false)) {
+      play(journal, null, boards, 300, random);
+    }
+
+    // a crash while the last record was being written
+    long size = Files.size(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(size - 1);
+    }
+
+    long recovered;
+    try (JournalReader reader = JournalReader.open(file)) {
+      recovered = reader.getEventCount();
+      assertTrue(reader.getValidLength() <= size - 1);
+      assertTrue(recovered <= boards.size());
+    }
+    assertReplays(file, boards, recovered);
+
+    // reopening drops the partial record and appends after the last complete one
+    List<Long> kept = new ArrayList<>(boards.subList(0, (int) recovered));
+    try (MoveJournal journal = MoveJournal.open(file, GRID, CHECKPOINT_INTERVAL, false)) {
+      assertEquals(recovered, journal.getEventCount());
+      play(journal, new BoardState(GRID, kept.get(kept.size() - 1)), kept, 100, random);
+    }
+    assertReplays(file, kept, kept.size());
+  }
+
+  @Test
+  void rejectsAJournalOfAnotherGrid() throws IOException {
+    Path file = dir.resolve("game.journal");
+    try (MoveJournal journal = MoveJournal.open(file, GRID)) {
+      journal.restart(new BoardGenerator(GRID, 4).nextPermutation());
+    }
+
+    assertThrows(IllegalArgumentException.class, () -> MoveJournal.open(file, Grid.of(4)));
+  }
+
+  @Test
+  void refusesMovesBeforeTheFirstBoard() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(dir.resolve("game.journal"), GRID)) {
+      assertThrows(IllegalStateException.class, () -> journal.move(8));
+    }
+  }
+
+  /**
+   * it plays random moves, flips and restarts on 'journal' and on a board of its own, adding the packed
+   * board after each event to 'boards'
+   * @param board board the journal is on, null to deal the first one
+   */
+  private static void play(MoveJournal journal, BoardState board, List<Long> boards, int events, SplittableRandom random)
+      throws IOException {
+    BoardGenerator generator = new BoardGenerator(GRID, random.nextLong());
+
+    for (int i = 0; i < events; i++) {
+      if (board == null || random.nextInt(100) == 0) {
+        List<Integer> permutation = generator.nextPermutation();
+        if (board == null) board = new BoardState(permutation);
+        else board.set(permutation);
+        journal.restart(permutation);
+      } else if (random.nextInt(20) == 0 && board.canFlip()) {
+        board.flip();
+        journal.flip();
+      } else {
+        int hole = board.getHolePosition() - 1;
+        int position = GRID.neighbour(hole, random.nextInt(GRID.neighbourCount(hole))) + 1;
+        assertTrue(board.move(position));
+        journal.move(position);
+      }
+      boards.add(board.getPacked());
+    }
+  }
+
+  private static void assertReplays(Path file, List<Long> boards, long events) throws IOException {
+    try (JournalReader reader = JournalReader.open(file)) {
+      assertEquals(GRID, reader.getGrid());
+      assertEquals(events, reader.getEventCount());
+      assertNull(reader.stateAt(0));
+      for (int i = 1; i <= events; i++) {
+        assertEquals(boards.get(i - 1).longValue(), reader.stateAt(i).getPacked(), "board after event " + i);
+      }
+    }
+  }
+}
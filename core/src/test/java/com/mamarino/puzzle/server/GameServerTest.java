@@ -0,0 +1,214 @@
+package com.mamarino.puzzle.server;
+
+import com.mamarino.puzzle.core.Grid;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameServerTest {
+
+  private static final int TIMEOUT_MILLIS = 10_000;
+
+  @Test
+  void createsSessionsAndAnswersState() throws IOException {
+    try (GameServer server = new GameServer(0)) {
+      String[] created = fields(request(server, "NEW"));
+      assertEquals(3, created.length);
+      assertEquals(GameSession.START, created[1]);
+      assertEquals(Grid.DEFAULT.getSize(), labels(created[2]).length);
+
+      String[] state = fields(request(server, "state " + created[0]));
+      assertEquals(created[0], state[0]);
+      assertEquals(created[2], state[2]);
+
+      String[] large = fields(request(server, "NEW 4"));
+      assertFalse(created[0].equals(large[0]));
+      assertEquals(16, labels(large[2]).length);
+      assertEquals(2, server.getSessions().size());
+    }
+  }
+
+  @Test
+  void answersMovesWithTheControllerStatus() throws IOException {
+    try (GameServer server = new GameServer(0)) {
+      String[] created = fields(request(server, "NEW"));
+      String id = created[0];
+      int[] labels = labels(created[2]);
+      int hole = holeIndex(labels);
+
+      int far = 0;
+      while (far == hole || Grid.DEFAULT.isAdjacent(far, hole)) far++;
+      String[] refused = fields(request(server, "MOVE " + id + " " + (far + 1)));
+      assertEquals(GameSession.KO, refused[1]);
+      assertEquals(created[2], refused[2]);
+
+      assertEquals(GameSession.KO, fields(request(server, "MOVE " + id + " 0"))[1]);
+      assertEquals(GameSession.KO, fields(request(server, "MOVE " + id + " 10"))[1]);
+
+      int near = Grid.DEFAULT.neighbour(hole, 0);
+      String[] moved = fields(request(server, "MOVE " + id + " " + (near + 1)));
+      assertTrue(GameSession.OK.equals(moved[1]) || GameSession.WON.equals(moved[1]));
+      int[] after = labels(moved[2]);
+      assertEquals(Grid.DEFAULT.getHole(), after[near]);
+      assertEquals(labels[near], after[hole]);
+      assertEquals(1, server.getSessions().get(Long.parseLong(id)).getMoveCount());
+    }
+  }
+
+  @Test
+  void flipsOnlyWithTheHoleInTheLastPosition() throws IOException {
+    try (GameServer server = new GameServer(0)) {
+      String[] created = fields(request(server, "NEW"));
+      String id = created[0];
+      int last = Grid.DEFAULT.getSize() - 1;
+
+      int hole = holeIndex(labels(created[2]));
+      // it walks the hole to the last position, first along its row and then down its column
+      while (hole != last) {
+        int next = hole % Grid.DEFAULT.getDimension() < Grid.DEFAULT.getDimension() - 1 ? hole + 1 : hole + Grid.DEFAULT.getDimension();
+        request(server, "MOVE " + id + " " + (next + 1));
+        hole = next;
+      }
+
+      int[] before = labels(fields(request(server, "STATE " + id))[2]);
+      assertEquals(Grid.DEFAULT.getHole(), before[last]);
+      int[] after = labels(fields(request(server, "FLIP " + id))[2]);
+      assertEquals(before[0], after[1]);
+      assertEquals(before[1], after[0]);
+
+      request(server, "MOVE " + id + " " + last);
+      int[] unchanged = labels(fields(request(server, "FLIP " + id))[2]);
+      assertEquals(after[0], unchanged[0]);
+      assertEquals(after[1], unchanged[1]);
+    }
+  }
+
+  @Test
+  void restartsAndClosesSessions() throws IOException {
+    try (GameServer server = new GameServer(0)) {
+      String id = fields(request(server, "NEW"))[0];
+      String[] restarted = fields(request(server, "RESTART " + id));
+      assertEquals(id, restarted[0]);
+      assertEquals(GameSession.START, restarted[1]);
+
+      assertEquals(id + "\tCLOSED", request(server, "CLOSE " + id));
+      assertEquals(0, server.getSessions().size());
+      assertEquals("ERR No session " + id + ".", request(server, "STATE " + id));
+    }
+  }
+
+  @Test
+  void answersMalformedRequestsWithErrors() throws IOException {
+    try (GameServer server = new GameServer(0)) {
+      assertEquals("ERR Unknown command JUMP.", request(server, "JUMP 1"));
+      assertEquals("ERR Missing session id.", request(server, "STATE"));
+      assertEquals("ERR Missing position.", request(server, "MOVE 1"));
+      assertEquals("ERR No session 99.", request(server, "FLIP 99"));
+      assertTrue(request(server, "STATE one").startsWith("ERR "));
+      assertTrue(request(server, "NEW " + (Grid.MAX_DIM + 1)).startsWith("ERR "));
+      assertEquals(0, server.getSessions().size());
+
+      StringBuilder builder = new StringBuilder();
+      assertFalse(server.handle("quit", builder));
+      assertEquals(0, builder.length());
+    }
+  }
+
+  @Test
+  void repliesBeforeAPartialRequestIsCompleted() throws IOException {
+    try (GameServer server = new GameServer(0)) {
+      try (Socket socket = connect(server)) {
+        OutputStream out = socket.getOutputStream();
+        BufferedReader in = reader(socket);
+
+        // the second request stays incomplete: the reply to the first one must not wait for it
+        out.write("NEW\nSTA".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        String[] created = fields(in.readLine());
+        assertEquals(GameSession.START, created[1]);
+
+        out.write(("TE " + created[0] + "\nSTATE " + created[0] + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        assertEquals(created[0] + "\tSTART\t" + created[2], in.readLine());
+        assertEquals(created[0] + "\tSTART\t" + created[2], in.readLine());
+
+        out.write("\n  \nQUIT\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        assertNull(in.readLine());
+      }
+      assertEquals(1, server.getSessions().size());
+    }
+  }
+
+  @Test
+  void closingTheServerClosesTheConnections() throws IOException {
+    GameServer server = new GameServer(0);
+    try (Socket socket = connect(server)) {
+      BufferedReader in = reader(socket);
+      socket.getOutputStream().write("NEW\n".getBytes(StandardCharsets.UTF_8));
+      assertEquals(GameSession.START, fields(in.readLine())[1]);
+
+      server.close();
+      assertNull(in.readLine());
+      // the sessions outlive the server
+      assertEquals(1, server.getSessions().size());
+    } finally {
+      server.close();
+    }
+  }
+
+  /**
+   * it handles a request without any connection
+   */
+  private static String request(GameServer server, String line) {
+    StringBuilder builder = new StringBuilder();
+    assertTrue(server.handle(line, builder));
+    return builder.toString();
+  }
+
+  private static Socket connect(GameServer server) throws IOException {
+    Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    socket.setSoTimeout(TIMEOUT_MILLIS);
+    return socket;
+  }
+
+  private static BufferedReader reader(Socket socket) throws IOException {
+    return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * it splits a session reply into id, status and board
+   */
+  private static String[] fields(String reply) {
+    assertFalse(reply.startsWith("ERR"), reply);
+    return reply.split("\t");
+  }
+
+  /**
+   * it parses the board text, f.i. "[1, 2, 3]"
+   */
+  private static int[] labels(String board) {
+    String[] values = board.substring(1, board.length() - 1).split(", ");
+    int[] labels = new int[values.length];
+    for (int i = 0; i < values.length; i++) labels[i] = Integer.parseInt(values[i]);
+    return labels;
+  }
+
+  private static int holeIndex(int[] labels) {
+    for (int i = 0; i < labels.length; i++) {
+      if (labels[i] == labels.length) return i;
+    }
+    throw new AssertionError("No hole.");
+  }
+}
@@ -0,0 +1,132 @@
+package com.mamarino.puzzle.solver;
+
+import com.mamarino.puzzle.core.BoardGenerator;
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.DistanceTable;
+import com.mamarino.puzzle.core.Grid;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolutionCacheTest {
+
+  private static final Grid GRID = Grid.DEFAULT;
+  private static final DistanceTable TABLE = DistanceTable.compute();
+
+  @Test
+  void transposedHitsSolveTheTransposedBoard() {
+    BoardGenerator generator = new BoardGenerator(GRID, 17);
+    int transposedHits = 0;
+
+    for (int i = 0; i < 500; i++) {
+      SolutionCache cache = new SolutionCache(GRID);
+      long packed = generator.next();
+      cache.put(packed, TABLE.solve(packed));
+
+      long transpose = transpose(GRID, packed);
+      int[] moves = cache.get(transpose);
+      assertNotNull(moves);
+      SolverTest.assertSolves(solution(moves), transpose, TABLE.distance(transpose));
+      if (transpose != packed) transposedHits++;
+
+      // the board itself, whichever orientation the entry has been stored in
+      SolverTest.assertSolves(solution(cache.get(packed)), packed, TABLE.distance(packed));
+    }
+    assertTrue(transposedHits > 0);
+  }
+
+  @Test
+  void storesEveryBoardAlongASolution() {
+    SolutionCache cache = new SolutionCache(GRID);
+    long packed = new BoardGenerator(TABLE, 3).next(24);
+    int[] moves = TABLE.solve(packed);
+    cache.put(packed, moves);
+
+    long state = packed;
+    for (int move : moves) {
+      for (long board : new long[] {state, transpose(GRID, state)}) {
+        SolverTest.assertSolves(solution(cache.get(board)), board, TABLE.distance(board));
+      }
+      state = BoardState.swap(state, GRID.holeIndex(state), move - 1);
+    }
+    assertEquals(2L * moves.length, cache.getHits());
+    assertEquals(0, cache.getMisses());
+  }
+
+  @Test
+  void transposes4x4Solutions() {
+    Grid grid = Grid.of(4);
+    SplittableRandom random = new SplittableRandom(4);
+    IdaStarSolver solver = new IdaStarSolver(grid);
+
+    for (int i = 0; i < 50; i++) {
+      long packed = walk(grid, random, 30);
+      SolutionCache cache = new SolutionCache(grid);
+      Solution solution = cache.solve(solver, packed);
+
+      long transpose = transpose(grid, packed);
+      int[] moves = cache.get(transpose);
+      assertNotNull(moves);
+      assertEquals(solution.getLength(), moves.length);
+      assertEquals(grid.goal(), replay(grid, transpose, moves));
+      assertEquals(solution.getLength(), solver.solve(transpose).getLength());
+    }
+  }
+
+  @Test
+  void skipsFlipsAndEvictsTheLeastRecentlyUsed() {
+    SolutionCache cache = new SolutionCache(GRID, 10);
+    long flipped = BoardState.flip(GRID.goal());
+    cache.put(flipped, new int[] {BoardState.FLIP});
+    assertEquals(0, cache.size());
+    assertNull(cache.get(flipped));
+
+    BoardGenerator generator = new BoardGenerator(TABLE, 5);
+    long first = generator.next(25);
+    cache.put(first, TABLE.solve(first));
+    assertEquals(10, cache.size());
+    assertTrue(cache.getEvictions() > 0);
+    // the first boards of the solution were stored first, and evicted first
+    assertNull(cache.get(first));
+  }
+
+  private static Solution solution(int[] moves) {
+    return new Solution(Solution.Status.SOLVED, moves, moves.length, 0, 0);
+  }
+
+  /**
+   * it transposes 'packed' about the main diagonal, relabelling each label as the transposed goal slot
+   */
+  private static long transpose(Grid grid, long packed) {
+    long result = 0L;
+    for (int i = 0; i < grid.getSize(); i++) {
+      int label = BoardState.labelAt(packed, i);
+      int goal = label - 1;
+      result = BoardState.withLabel(result, grid.index(grid.col(i), grid.row(i)), grid.index(grid.col(goal), grid.row(goal)) + 1);
+    }
+    return result;
+  }
+
+  private static long walk(Grid grid, SplittableRandom random, int moves) {
+    long packed = grid.goal();
+    for (int i = 0; i < moves; i++) {
+      int hole = grid.holeIndex(packed);
+      packed = BoardState.swap(packed, hole, grid.neighbour(hole, random.nextInt(grid.neighbourCount(hole))));
+    }
+    return packed;
+  }
+
+  private static long replay(Grid grid, long packed, int[] moves) {
+    for (int move : moves) {
+      int hole = grid.holeIndex(packed);
+      assertTrue(grid.isAdjacent(hole, move - 1));
+      packed = BoardState.swap(packed, hole, move - 1);
+    }
+    return packed;
+  }
+}
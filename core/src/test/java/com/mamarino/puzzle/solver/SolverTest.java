@@ -0,0 +1,161 @@
+package com.mamarino.puzzle.solver;
+
+import com.mamarino.puzzle.core.BoardGenerator;
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.DistanceTable;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.PatternDatabase;
+import com.mamarino.puzzle.core.StateSpace;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolverTest {
+
+  private static final Grid GRID = Grid.DEFAULT;
+  private static final DistanceTable TABLE = DistanceTable.compute();
+  private static final int BOARDS = 300;
+  // flips weaken the estimates, so each board takes longer
+  private static final int FLIP_BOARDS = 50;
+
+  @Test
+  void idaStarIsOptimal() {
+    assertOptimal(IdaStarSolver::new);
+  }
+
+  @Test
+  void aStarIsOptimal() {
+    assertOptimal(AStarSolver::new);
+  }
+
+  @Test
+  void idaStarIsOptimalWithPatterns() {
+    PatternDatabase patterns = PatternDatabase.compute(GRID, new int[][] {{1, 2, 3, 4}, {5, 6, 7, 8}}, 2);
+    assertOptimal(grid -> {
+      Solver solver = new IdaStarSolver(grid);
+      solver.setPatternDatabase(patterns);
+      return solver;
+    });
+  }
+
+  @Test
+  void bidirectionalBfsIsOptimal() {
+    assertOptimal(BidirectionalBfsSolver::new);
+  }
+
+  @Test
+  void solvesTheHardest3x3Boards() {
+    BoardGenerator generator = new BoardGenerator(TABLE, 5);
+    Solver solver = new IdaStarSolver(GRID);
+
+    for (int i = 0; i < 5; i++) {
+      long packed = generator.next(generator.getMaxDistance());
+      assertSolves(solver.solve(packed), packed, generator.getMaxDistance());
+    }
+  }
+
+  @Test
+  void reportsUnsolvableBoards() {
+    long unsolvable = BoardState.flip(GRID.goal());
+
+    for (Solver solver : new Solver[] {new IdaStarSolver(GRID), new AStarSolver(GRID), new BidirectionalBfsSolver(GRID)}) {
+      Solution solution = solver.solve(unsolvable);
+      assertEquals(Solution.Status.UNSOLVABLE, solution.getStatus());
+      assertEquals(-1, solution.getLength());
+    }
+  }
+
+  @Test
+  void solvesWithFlipsAtUnitCost() {
+    DistanceTable table = DistanceTable.computeWithFlips(1);
+    for (Solver solver : new Solver[] {new IdaStarSolver(GRID), new AStarSolver(GRID), new BidirectionalBfsSolver(GRID)}) {
+      solver.setFlipCost(1);
+      assertOptimal(solver, table, 11);
+    }
+  }
+
+  @Test
+  void solvesWithCostlyFlips() {
+    DistanceTable table = DistanceTable.computeWithFlips(5);
+    for (Solver solver : new Solver[] {new IdaStarSolver(GRID), new AStarSolver(GRID)}) {
+      solver.setFlipCost(5);
+      assertOptimal(solver, table, 12);
+    }
+  }
+
+  @Test
+  void rejectsBoardsWhichAreNotPermutations() {
+    long duplicate = BoardState.withLabel(GRID.goal(), 1, 1);
+
+    for (Solver solver : new Solver[] {new IdaStarSolver(GRID), new AStarSolver(GRID), new BidirectionalBfsSolver(GRID)}) {
+      assertThrows(IllegalArgumentException.class, () -> solver.solve(Arrays.asList(1, 1, 3, 4, 5, 6, 7, 8, 9)));
+      assertThrows(IllegalArgumentException.class, () -> solver.solve(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 10)));
+      assertThrows(IllegalArgumentException.class, () -> solver.solve(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, null)));
+      assertThrows(IllegalArgumentException.class, () -> solver.solve(Arrays.asList(1, 2, 3)));
+      assertThrows(IllegalArgumentException.class, () -> solver.solve(duplicate));
+      assertThrows(IllegalArgumentException.class, () -> solver.solve(BoardState.withLabel(GRID.goal(), 9, 10)));
+    }
+  }
+
+  @Test
+  void solvesTheGoalWithNoMoves() {
+    Solution solution = new IdaStarSolver(GRID).solve(GRID.goal());
+    assertTrue(solution.isSolved());
+    assertEquals(0, solution.getLength());
+  }
+
+  /**
+   * it solves random solvable boards with solvers made by 'factory', checking each length against the distance table
+   */
+  private static void assertOptimal(Function<Grid, Solver> factory) {
+    Solver solver = factory.apply(GRID);
+    BoardGenerator generator = new BoardGenerator(GRID, 42);
+
+    for (int i = 0; i < BOARDS; i++) {
+      long packed = generator.next();
+      Solution solution = solver.solve(packed);
+      assertSolves(solution, packed, TABLE.distance(packed));
+      assertEquals(solution.getCost(), solution.getLength());
+    }
+  }
+
+  /**
+   * it solves random boards, solvable or not, with 'solver', checking each cost against 'table'
+   */
+  private static void assertOptimal(Solver solver, DistanceTable table, long seed) {
+    StateSpace space = StateSpace.full(GRID);
+    SplittableRandom random = new SplittableRandom(seed);
+
+    for (int i = 0; i < FLIP_BOARDS; i++) {
+      long packed = space.unrank(random.nextLong(space.size()));
+      assertSolves(solver.solve(packed), packed, table.distance(packed));
+    }
+  }
+
+  /**
+   * it checks that 'solution' has the given cost and that its moves bring 'packed' to the goal
+   */
+  static void assertSolves(Solution solution, long packed, int cost) {
+    assertTrue(solution.isSolved());
+    assertEquals(cost, solution.getCost());
+
+    long state = packed;
+    for (int move : solution.getMoves()) {
+      if (move == BoardState.FLIP) {
+        assertTrue(GRID.canFlip(state));
+        state = BoardState.flip(state);
+      } else {
+        int hole = GRID.holeIndex(state);
+        assertTrue(GRID.isAdjacent(hole, move - 1));
+        state = BoardState.swap(state, hole, move - 1);
+      }
+    }
+    assertEquals(GRID.goal(), state);
+  }
+}
@@ -1,10 +0,0 @@
-package com.mamarino.puzzle;
-
-public class Constants {
-    public static final Integer HOLE = 9;
-    public static final Integer MAX_DIM = 3;
-    public static final Integer ERR_DURATION = 500;
-    public static final String RESTART_EVT = "restartEvent";
-    public static final String FLIP_EVT = "flipEvent";
-    public static final String SET_LABEL_EVT = "setLabelEvent";
-}
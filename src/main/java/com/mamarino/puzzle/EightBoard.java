@@ -1,279 +0,0 @@
-/*
- * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
- * Click nbfs://nbhost/SystemFileSystem/Templates/GUIForms/JFrame.java to edit this template
- */
-package com.mamarino.puzzle;
-
-import javax.swing.*;
-import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-
-/**
- *
- * @author marco.marino
- */
-public class EightBoard extends javax.swing.JFrame {
-
-    private final List<EightTile> eightTiles = new ArrayList<>();
-    private final PropertyChangeSupport changeSupport = new PropertyChangeSupport(this);
-
-    /**
-     * Creates new form TmpBoard
-     */
-    public EightBoard() {
-        initComponents();
-        initGame();
-    }
-
-    private void initGame() {
-        eightTiles.add(eightTile1);
-        eightTiles.add(eightTile2);
-        eightTiles.add(eightTile3);
-        eightTiles.add(eightTile4);
-        eightTiles.add(eightTile5);
-        eightTiles.add(eightTile6);
-        eightTiles.add(eightTile7);
-        eightTiles.add(eightTile8);
-        eightTiles.add(eightTile9);
-
-        for (int i = 0; i < eightTiles.size(); i++) {
-            EightTile tile = eightTiles.get(i);
-
-            tile.setPosition(i + 1);
-
-            // the controller listens to this tile for a vetoable change
-            tile.addVetoableChangeListener(eightController);
-
-            // this tile is listening to new 'changeSupport' events to be fired
-            addPropertyChangeListener(tile);
-
-            // this tile listens to controller's property changes  
-            eightController.addPropertyChangeListener(tile);
-
-            tile.addActionListener(_e -> tile.onClick());
-        }
-
-        // controller listens to EightBoard's property changes 
-        addPropertyChangeListener(eightController);
-
-        resetTilesPosition();
-
-        eightController.setText("START");
-    }
-
-    private void resetTilesPosition() {
-        List<Integer> newPermutation = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9);
-        Collections.shuffle(newPermutation);
-
-        changeSupport.firePropertyChange(
-                Constants.RESTART_EVT,
-                new ArrayList<>(),
-                newPermutation
-        );
-    }
-
-    /**
-     * This method is called from within the constructor to initialize the form.
-     * WARNING: Do NOT modify this code. The content of this method is always
-     * regenerated by the Form Editor.
-     */
-    @SuppressWarnings("unchecked")
-    // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
-    private void initComponents() {
-
-        titleLabel = new javax.swing.JLabel();
-        eightTile1 = new com.mamarino.puzzle.EightTile();
-        eightTile2 = new com.mamarino.puzzle.EightTile();
-        eightTile3 = new com.mamarino.puzzle.EightTile();
-        eightTile4 = new com.mamarino.puzzle.EightTile();
-        eightTile5 = new com.mamarino.puzzle.EightTile();
-        eightTile6 = new com.mamarino.puzzle.EightTile();
-        eightTile7 = new com.mamarino.puzzle.EightTile();
-        eightTile8 = new com.mamarino.puzzle.EightTile();
-        eightTile9 = new com.mamarino.puzzle.EightTile();
-        eightController = new com.mamarino.puzzle.EightController();
-        restartButton = new javax.swing.JButton();
-        flipButton = new javax.swing.JButton();
-
-        setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
-        setMinimumSize(null);
-        setSize(new java.awt.Dimension(211, 255));
-
-        titleLabel.setFont(new java.awt.Font("Segoe UI", 1, 18)); // NOI18N
-        titleLabel.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        titleLabel.setText("8Puzzle");
-
-        eightController.setText("eightController2");
-
-        restartButton.setFont(new java.awt.Font("Segoe UI", 0, 10)); // NOI18N
-        restartButton.setText("Restart");
-        restartButton.setBorderPainted(false);
-        restartButton.setMargin(new java.awt.Insets(2, 6, 2, 6));
-        restartButton.addActionListener(new java.awt.event.ActionListener() {
-            public void actionPerformed(java.awt.event.ActionEvent evt) {
-                restartButtonActionPerformed(evt);
-            }
-        });
-
-        flipButton.setText("Flip");
-        flipButton.addActionListener(new java.awt.event.ActionListener() {
-            public void actionPerformed(java.awt.event.ActionEvent evt) {
-                flipButtonActionPerformed(evt);
-            }
-        });
-
-        javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
-        getContentPane().setLayout(layout);
-        layout.setHorizontalGroup(
-            layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-            .addGroup(layout.createSequentialGroup()
-                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.TRAILING)
-                    .addGroup(javax.swing.GroupLayout.Alignment.LEADING, layout.createSequentialGroup()
-                        .addGap(12, 12, 12)
-                        .addComponent(eightController, javax.swing.GroupLayout.PREFERRED_SIZE, 44, javax.swing.GroupLayout.PREFERRED_SIZE)
-                        .addGap(18, 18, 18)
-                        .addComponent(restartButton, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
-                    .addGroup(layout.createSequentialGroup()
-                        .addGap(30, 30, 30)
-                        .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                            .addComponent(eightTile7, javax.swing.GroupLayout.DEFAULT_SIZE, 50, Short.MAX_VALUE)
-                            .addComponent(eightTile1, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(eightTile4, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE))
-                        .addGap(18, 18, 18)
-                        .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                            .addComponent(eightTile8, javax.swing.GroupLayout.DEFAULT_SIZE, 50, Short.MAX_VALUE)
-                            .addComponent(eightTile2, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                            .addComponent(eightTile5, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE))))
-                .addGap(18, 18, 18)
-                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                    .addComponent(eightTile9, javax.swing.GroupLayout.DEFAULT_SIZE, 50, Short.MAX_VALUE)
-                    .addComponent(eightTile3, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(eightTile6, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(flipButton, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE))
-                .addGap(31, 31, 31))
-            .addGroup(layout.createSequentialGroup()
-                .addGap(6, 6, 6)
-                .addComponent(titleLabel, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
-                .addContainerGap())
-        );
-
-        layout.linkSize(javax.swing.SwingConstants.HORIZONTAL, new java.awt.Component[] {eightTile1, eightTile2, eightTile3, eightTile4, eightTile5, eightTile6, eightTile7, eightTile8, eightTile9});
-
-        layout.setVerticalGroup(
-            layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-            .addGroup(layout.createSequentialGroup()
-                .addContainerGap()
-                .addComponent(titleLabel, javax.swing.GroupLayout.PREFERRED_SIZE, 28, javax.swing.GroupLayout.PREFERRED_SIZE)
-                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                    .addGroup(layout.createSequentialGroup()
-                        .addComponent(eightTile1, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(eightTile4, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(eightTile7, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE))
-                    .addGroup(layout.createSequentialGroup()
-                        .addComponent(eightTile3, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(eightTile6, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(eightTile9, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE))
-                    .addGroup(layout.createSequentialGroup()
-                        .addComponent(eightTile2, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(eightTile5, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
-                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                        .addComponent(eightTile8, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)))
-                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                    .addGroup(layout.createSequentialGroup()
-                        .addGap(19, 19, 19)
-                        .addComponent(eightController, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
-                    .addGroup(layout.createSequentialGroup()
-                        .addGap(18, 18, 18)
-                        .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
-                            .addComponent(flipButton)
-                            .addComponent(restartButton))))
-                .addContainerGap(8, Short.MAX_VALUE))
-        );
-
-        layout.linkSize(javax.swing.SwingConstants.VERTICAL, new java.awt.Component[] {eightTile1, eightTile2, eightTile3, eightTile4, eightTile5, eightTile6, eightTile7, eightTile8, eightTile9});
-
-        pack();
-    }// </editor-fold>//GEN-END:initComponents
-
-    private void restartButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_restartButtonActionPerformed
-        resetTilesPosition();
-    }//GEN-LAST:event_restartButtonActionPerformed
-
-    private void flipButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_flipButtonActionPerformed
-        changeSupport.firePropertyChange(
-                "flipEvent",
-                false,
-                true
-        );
-    }//GEN-LAST:event_flipButtonActionPerformed
-
-    @Override
-    public void addPropertyChangeListener(PropertyChangeListener listener) {
-        if (changeSupport != null)
-            changeSupport.addPropertyChangeListener(listener);
-    }
-
-    @Override
-    public void removePropertyChangeListener(PropertyChangeListener listener) {
-        changeSupport.removePropertyChangeListener(listener);
-    }
-
-    /**
-     * @param args the command line arguments
-     */
-    public static void main(String args[]) {
-        /* Set the Nimbus look and feel */
-        //<editor-fold defaultstate="collapsed" desc=" Look and feel setting code (optional) ">
-        /* If Nimbus (introduced in Java SE 6) is not available, stay with the default look and feel.
-         * For details see http://download.oracle.com/javase/tutorial/uiswing/lookandfeel/plaf.html 
-         */
-        try {
-            for (javax.swing.UIManager.LookAndFeelInfo info : javax.swing.UIManager.getInstalledLookAndFeels()) {
-                if ("Nimbus".equals(info.getName())) {
-                    javax.swing.UIManager.setLookAndFeel(info.getClassName());
-                    break;
-                }
-            }
-        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException |
-                 UnsupportedLookAndFeelException ex) {
-            java.util.logging.Logger.getLogger(EightBoard.class.getName()).log(java.util.logging.Level.SEVERE, null, ex);
-        }
-        //</editor-fold>
-        //</editor-fold>
-
-        /* Create and display the form */
-        java.awt.EventQueue.invokeLater(new Runnable() {
-            public void run() {
-                EightBoard board = new EightBoard();
-                board.setVisible(true);
-                board.setResizable(false);
-            }
-        });
-    }
-
-    // Variables declaration - do not modify//GEN-BEGIN:variables
-    private com.mamarino.puzzle.EightController eightController;
-    private com.mamarino.puzzle.EightTile eightTile1;
-    private com.mamarino.puzzle.EightTile eightTile2;
-    private com.mamarino.puzzle.EightTile eightTile3;
-    private com.mamarino.puzzle.EightTile eightTile4;
-    private com.mamarino.puzzle.EightTile eightTile5;
-    private com.mamarino.puzzle.EightTile eightTile6;
-    private com.mamarino.puzzle.EightTile eightTile7;
-    private com.mamarino.puzzle.EightTile eightTile8;
-    private com.mamarino.puzzle.EightTile eightTile9;
-    private javax.swing.JButton flipButton;
-    private javax.swing.JButton restartButton;
-    private javax.swing.JLabel titleLabel;
-    // End of variables declaration//GEN-END:variables
-}
@@ -0,0 +1,613 @@
+package com.mamarino.puzzle;
+
+import java.beans.PropertyChangeSupport;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import javax.swing.SwingUtilities;
+
+import com.mamarino.puzzle.core.BoardGenerator;
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.DistanceTable;
+import com.mamarino.puzzle.core.GameEngine;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.PermutationFormat;
+import com.mamarino.puzzle.metrics.GameMetrics;
+import com.mamarino.puzzle.metrics.LatencyHistogram;
+import com.mamarino.puzzle.solver.IdaStarSolver;
+import com.mamarino.puzzle.solver.Solution;
+
+/**
+ * Load generator driving the beans through the real event path: every click is an {@link EightTile#onClick()},
+ * so it goes through {@code setLabel}, the {@code VetoableChangeSupport} of the tile,
+ * {@link EightController#vetoableChange} and the SET_LABEL_EVT back to the tiles, on the EDT. Clicks come
+ * from optimal solutions of random boards, from random positions (legal or not) or from a given solution.
+ * <p>
+ * A driver thread produces the clicks at the configured rate and hands them to the EDT in one batch per
+ * frame (60 per second). When the EDT is still busy with the previous batch the frame is dropped and its
+ * clicks join the next batch, so the tiles are repainted (through their {@link TileUpdateQueue}) at most
+ * once per batch however long the solution replayed. The {@link Report} tells the clicks per second
+ * sustained, the dropped frames, the clicks waiting for the EDT (its queue depth, in clicks) and the time
+ * a batch waits before the EDT runs it.
+ * <p>
+ * It plays a visible {@link EightBoard} ({@link #of(EightBoard)}) or beans wired without a frame
+ * ({@link #headless(int, boolean)}), with tile buttons or a {@link BoardCanvas}.
+ */
+public class AutoPlayer {
+
+  /** rate of a player clicking as fast as the EDT takes the clicks */
+  public static final int UNTHROTTLED = 0;
+
+  private static final long FRAME_NANOS = 1_000_000_000L / 60;
+  // clicks of an unthrottled batch
+  private static final int MAX_BATCH = 4096;
+  // boards other than 3x3 are dealt by a random walk from the goal, so that IDA* solves them in about a millisecond
+  private static final int SCRAMBLE_MOVES = 24;
+  // boards not solved by then are replaced by other ones
+  private static final long SOLVE_BUDGET_MILLIS = 1000;
+
+  // script steps besides 1-based positions
+  private static final int RESTART = 0;
+  private static final int END = -1;
+
+  private final EightController controller;
+  // it clicks the tile in a 1-based position
+  private final IntConsumer clicker;
+  private final Consumer<List<Integer>> restart;
+  private final Grid grid;
+  private int rate = UNTHROTTLED;
+  private volatile boolean stopped;
+
+  /**
+   * @param controller controller of the tiles
+   * @param tiles tiles by position, registered to the controller
+   * @param restart it deals a board to the controller and the tiles (RESTART_EVT), on the EDT
+   */
+  public AutoPlayer(EightController controller, List<EightTile> tiles, Consumer<List<Integer>> restart) {
+    this(controller, Grid.ofSize(tiles.size()), List.copyOf(tiles), restart);
+  }
+
+  /**
+   * @param controller controller of the canvas
+   * @param canvas board painted in one component, registered to the controller
+   * @param restart it deals a board to the controller and the canvas (RESTART_EVT), on the EDT
+   */
+  public AutoPlayer(EightController controller, BoardCanvas canvas, Consumer<List<Integer>> restart) {
+    this.controller = controller;
+    this.clicker = canvas::click;
+    this.restart = restart;
+    this.grid = canvas.getGrid();
+  }
+
+  private AutoPlayer(EightController controller, Grid grid, List<EightTile> tiles, Consumer<List<Integer>> restart) {
+    this.controller = controller;
+    this.clicker = position -> tiles.get(position - 1).onClick();
+    this.restart = restart;
+    this.grid = grid;
+  }
+
+  /**
+   * @param board visible board, whose tiles (or canvas) are clicked
+   * @return player of 'board'
+   */
+  public static AutoPlayer of(EightBoard board) {
+    if (board.getCanvas() != null) return new AutoPlayer(board.getController(), board.getCanvas(), board::restart);
+    return new AutoPlayer(board.getController(), board.getTiles(), board::restart);
+  }
+
+  /**
+   * @param dimension number of rows (and columns) of the board
+   * @param painted true -> a {@link BoardCanvas}; false -> tile buttons
+   * @return player of a controller and its tiles wired as in {@link EightBoard}, without the frame
+   */
+  public static AutoPlayer headless(int dimension, boolean painted) {
+    Grid grid = Grid.of(dimension);
+    EightController controller = new EightController();
+    PropertyChangeSupport boardChanges = new PropertyChangeSupport(controller);
+    Consumer<List<Integer>> restart =
+        permutation -> boardChanges.firePropertyChange(Constants.RESTART_EVT, new ArrayList<>(), permutation);
+
+    if (painted) {
+      BoardCanvas canvas = new BoardCanvas(dimension, BoardCanvas.DEFAULT_GAP);
+      canvas.setSize(canvas.getPreferredSize());
+      canvas.addVetoableChangeListener(controller);
+      boardChanges.addPropertyChangeListener(canvas);
+      for (int i = 0; i < grid.getSize(); i++) controller.addTileListener(i + 1, canvas);
+      boardChanges.addPropertyChangeListener(controller);
+      return new AutoPlayer(controller, canvas, restart);
+    }
+
+    TileUpdateQueue tileUpdates = new TileUpdateQueue();
+    List<EightTile> tiles = new ArrayList<>();
+    for (int i = 0; i < grid.getSize(); i++) {
+      EightTile tile = new EightTile();
+      tile.setPosition(i + 1);
+      tile.setUpdateQueue(tileUpdates);
+      tile.addVetoableChangeListener(controller);
+      boardChanges.addPropertyChangeListener(tile);
+      controller.addTileListener(i + 1, tile);
+      tiles.add(tile);
+    }
+    boardChanges.addPropertyChangeListener(controller);
+
+    return new AutoPlayer(controller, tiles, restart);
+  }
+
+  /**
+   * @param clicksPerSecond clicks produced per second, {@link #UNTHROTTLED} to click as fast as the EDT goes
+   */
+  public void setRate(int clicksPerSecond) {
+    if (clicksPerSecond < 0) throw new IllegalArgumentException("Invalid rate " + clicksPerSecond + ".");
+    this.rate = clicksPerSecond;
+  }
+
+  public int getRate() {
+    return rate;
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * it stops the run in progress after the batch in flight; to be called by any thread
+   */
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * it deals random solvable boards and plays their optimal solutions, until 'clicks' clicks. 3x3 boards
+   * are uniformly random and solved by a {@link DistanceTable}, computed first; boards of other grids are
+   * {@value #SCRAMBLE_MOVES} random moves away from the goal and solved by an {@link IdaStarSolver}. To
+   * be called off the EDT
+   * @param clicks clicks to be made
+   * @param seed seed of the boards
+   * @return figures of the run
+   * @throws UnsupportedOperationException when the boards are larger than 4x4
+   */
+  public Report playSolutions(long clicks, long seed) {
+    if (!grid.isPackable()) throw new UnsupportedOperationException(grid + " boards cannot be solved.");
+    return run(new SolutionScript(seed), clicks);
+  }
+
+  /**
+   * it deals a random solvable board and clicks random positions, next to the hole or not, until 'clicks'
+   * clicks. To be called off the EDT
+   * @param clicks clicks to be made
+   * @param seed seed of the board and of the positions
+   * @return figures of the run
+   */
+  public Report playRandom(long clicks, long seed) {
+    return run(new RandomScript(seed), clicks);
+  }
+
+  /**
+   * it deals 'permutation' and clicks the moves of a solution of it, f.i. a {@code BatchSolver} line.
+   * To be called off the EDT
+   * @param permutation labels of the board, by position
+   * @param moves positions of the tiles to be clicked
+   * @return figures of the run
+   * @throws IllegalArgumentException when a move is not a position of the board (f.i. a flip)
+   */
+  public Report replay(List<Integer> permutation, int[] moves) {
+    if (permutation.size() != grid.getSize()) throw new IllegalArgumentException("Not a " + grid + " board: " + permutation + ".");
+    for (int move : moves) {
+      if (move < 1 || move > grid.getSize()) throw new IllegalArgumentException("Move " + move + " cannot be clicked.");
+    }
+    return run(new ReplayScript(permutation, moves), moves.length);
+  }
+
+  /**
+   * usage: AutoPlayer [solutions|random] [clicks] [clicks/s, 0 unthrottled] [dimension] [visible] [painted]
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+    boolean random = args.length > 0 && args[0].equals("random");
+    long clicks = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+    int rate = args.length > 2 ? Integer.parseInt(args[2]) : UNTHROTTLED;
+    int dimension = args.length > 3 ? Integer.parseInt(args[3]) : Constants.DEFAULT_DIM;
+    List<String> options = Arrays.asList(args).subList(Math.min(args.length, 4), args.length);
+    boolean visible = options.contains("visible");
+    boolean painted = options.contains("painted");
+
+    EightBoard[] frame = new EightBoard[1];
+    AutoPlayer player;
+    if (visible) {
+      SwingUtilities.invokeAndWait(() -> {
+        frame[0] = new EightBoard(dimension, painted);
+        frame[0].setVisible(true);
+      });
+      player = of(frame[0]);
+    } else {
+      System.setProperty("java.awt.headless", "true");
+      player = headless(dimension, painted);
+    }
+    player.setRate(rate);
+
+    Report report = random ? player.playRandom(clicks, 1) : player.playSolutions(clicks, 1);
+    System.out.println(report);
+    if (GameMetrics.ENABLED) System.out.println(GameMetrics.snapshot());
+    if (visible) SwingUtilities.invokeLater(frame[0]::dispose);
+  }
+
+  /**
+   * it produces the clicks of 'script' on the calling thread and hands them to the EDT, a batch per frame
+   */
+  private Report run(Script script, long clicks) {
+    if (SwingUtilities.isEventDispatchThread()) throw new IllegalStateException("The player cannot run on the EDT.");
+    stopped = false;
+
+    Report report = new Report(grid, rate);
+    Thread driver = Thread.currentThread();
+    Batch buffer = new Batch(driver);
+    Batch inFlight = null;
+    long produced = 0;
+    boolean ended = false;
+    long start = System.nanoTime();
+    long nextFrame = start + FRAME_NANOS;
+    boolean tick = true;
+
+    while (true) {
+      long now = System.nanoTime();
+      for (; now >= nextFrame; nextFrame += FRAME_NANOS) {
+        tick = true;
+        report.frames++;
+        // the EDT has spent the whole frame running the batch or getting to it: nothing has been painted
+        if (inFlight != null && !inFlight.done && inFlight.postedAt <= nextFrame - FRAME_NANOS) report.droppedFrames++;
+      }
+
+      long due = rate == UNTHROTTLED ? produced + MAX_BATCH - buffer.clicks : 1 + (long) ((now - start) * (rate / 1e9));
+      due = Math.min(due, clicks);
+      while (!ended && produced < due) {
+        int step = script.next();
+        if (step == END) {
+          ended = true;
+        } else if (step == RESTART) {
+          buffer.restart(script.board());
+        } else {
+          buffer.click(step);
+          produced++;
+        }
+      }
+      if (produced >= clicks || stopped) ended = true;
+      report.maxBacklog = Math.max(report.maxBacklog, buffer.clicks);
+
+      if (inFlight != null && inFlight.done) {
+        report.add(inFlight);
+        inFlight = null;
+      }
+      if (inFlight == null) {
+        // a throttled player hands a batch per frame; an unthrottled one as soon as the EDT is done
+        if (buffer.length > 0 && !stopped && (tick || rate == UNTHROTTLED)) {
+          inFlight = buffer;
+          buffer = new Batch(driver);
+          inFlight.post();
+          tick = false;
+        } else if (ended && (buffer.length == 0 || stopped)) {
+          break;
+        }
+      }
+
+      // the EDT wakes the driver up as soon as the batch is done
+      LockSupport.parkNanos(this, nextFrame - System.nanoTime());
+    }
+
+    report.elapsedNanos = System.nanoTime() - start;
+    return report;
+  }
+
+  /**
+   * Source of the steps of a run, called by the driver thread
+   */
+  private interface Script {
+    /**
+     * @return 1-based position of the tile to be clicked, RESTART (see {@link #board()}) or END
+     */
+    int next();
+
+    /**
+     * @return board to be dealt by the last RESTART
+     */
+    List<Integer> board();
+  }
+
+  private final class SolutionScript implements Script {
+
+    private final BoardGenerator generator;
+    private final Random random;
+    private final DistanceTable table;
+    private final IdaStarSolver solver;
+    private int[] moves = new int[0];
+    private int next;
+    private List<Integer> board;
+
+    SolutionScript(long seed) {
+      this.generator = new BoardGenerator(grid, seed);
+      this.random = new Random(seed);
+      boolean lookup = grid.equals(Grid.DEFAULT);
+      this.table = lookup ? DistanceTable.loadDefault(DistanceTable.NO_FLIPS) : null;
+      this.solver = lookup ? null : new IdaStarSolver(grid);
+      if (solver != null) solver.setTimeBudget(SOLVE_BUDGET_MILLIS);
+    }
+
+    @Override
+    public int next() {
+      if (next < moves.length) return moves[next++];
+
+      // the solution has been played: a new board is dealt, and solved while the EDT plays
+      int[] solution = null;
+      long packed = 0L;
+      while (solution == null) {
+        packed = table != null ? generator.next() : scramble();
+        solution = solve(packed);
+      }
+      board = PermutationFormat.toList(packed, grid);
+      moves = solution;
+      next = 0;
+      return RESTART;
+    }
+
+    private int[] solve(long packed) {
+      if (table != null) return table.solve(packed);
+
+      Solution solution = solver.solve(packed);
+      return solution.isSolved() ? solution.getMoves() : null;
+    }
+
+    /**
+     * @return board reached from the goal by a random walk of the hole, never stepping straight back
+     */
+    private long scramble() {
+      long packed = grid.goal();
+      int hole = grid.holeIndex(packed);
+      int previous = -1;
+      for (int i = 0; i < SCRAMBLE_MOVES; i++) {
+        int next;
+        do {
+          next = grid.neighbour(hole, random.nextInt(grid.neighbourCount(hole)));
+        } while (next == previous);
+        packed = BoardState.swap(packed, hole, next);
+        previous = hole;
+        hole = next;
+      }
+      return packed;
+    }
+
+    @Override
+    public List<Integer> board() {
+      return board;
+    }
+  }
+
+  private final class RandomScript implements Script {
+
+    private final Random random;
+    private final List<Integer> board;
+    private boolean dealt;
+
+    RandomScript(long seed) {
+      this.random = new Random(seed);
+      this.board = new BoardGenerator(grid, seed).nextPermutation();
+    }
+
+    @Override
+    public int next() {
+      if (!dealt) {
+        dealt = true;
+        return RESTART;
+      }
+      return 1 + random.nextInt(grid.getSize());
+    }
+
+    @Override
+    public List<Integer> board() {
+      return board;
+    }
+  }
+
+  private static final class ReplayScript implements Script {
+
+    private final List<Integer> board;
+    private final int[] moves;
+    // -1 before the board is dealt
+    private int next = -1;
+
+    ReplayScript(List<Integer> board, int[] moves) {
+      this.board = board;
+      this.moves = moves;
+    }
+
+    @Override
+    public int next() {
+      if (next < 0) {
+        next = 0;
+        return RESTART;
+      }
+      return next < moves.length ? moves[next++] : END;
+    }
+
+    @Override
+    public List<Integer> board() {
+      return board;
+    }
+  }
+
+  /**
+   * Steps handed to the EDT together: written by the driver until posted, then run by the EDT
+   */
+  private final class Batch implements Runnable {
+
+    private final Thread driver;
+    private int[] steps = new int[64];
+    private int length;
+    private final List<List<Integer>> boards = new ArrayList<>();
+    private int clicks;
+
+    private long postedAt;
+    private long startedAt;
+    private long finishedAt;
+    private int vetoed;
+    private volatile boolean done;
+
+    Batch(Thread driver) {
+      this.driver = driver;
+    }
+
+    void click(int position) {
+      add(position);
+      clicks++;
+    }
+
+    void restart(List<Integer> board) {
+      add(RESTART);
+      boards.add(board);
+    }
+
+    private void add(int step) {
+      if (length == steps.length) steps = Arrays.copyOf(steps, length * 2);
+      steps[length++] = step;
+    }
+
+    void post() {
+      postedAt = System.nanoTime();
+      SwingUtilities.invokeLater(this);
+    }
+
+    @Override
+    public void run() {
+      startedAt = System.nanoTime();
+      int board = 0;
+      for (int i = 0; i < length; i++) {
+        int step = steps[i];
+        if (step == RESTART) {
+          restart.accept(boards.get(board++));
+          continue;
+        }
+
+        clicker.accept(step);
+        if (GameEngine.KO.equals(controller.getText())) vetoed++;
+      }
+      finishedAt = System.nanoTime();
+      done = true;
+      LockSupport.unpark(driver);
+    }
+  }
+
+  /**
+   * Figures of a run
+   */
+  public static final class Report {
+
+    private final Grid grid;
+    private final int rate;
+    private final LatencyHistogram edtLag = new LatencyHistogram("edt-lag");
+    private final LatencyHistogram batchTime = new LatencyHistogram("batch");
+    private long clicks;
+    private long vetoed;
+    private long restarts;
+    private long batches;
+    private long frames;
+    private long droppedFrames;
+    private int maxBacklog;
+    private long elapsedNanos;
+
+    Report(Grid grid, int rate) {
+      this.grid = grid;
+      this.rate = rate;
+    }
+
+    void add(Batch batch) {
+      batches++;
+      clicks += batch.clicks;
+      vetoed += batch.vetoed;
+      restarts += batch.boards.size();
+      edtLag.record(batch.startedAt - batch.postedAt);
+      batchTime.record(batch.finishedAt - batch.startedAt);
+    }
+
+    public long getClicks() {
+      return clicks;
+    }
+
+    /**
+     * @return clicks vetoed by the controller (tile not next to the hole)
+     */
+    public long getVetoed() {
+      return vetoed;
+    }
+
+    public long getRestarts() {
+      return restarts;
+    }
+
+    public long getBatches() {
+      return batches;
+    }
+
+    /**
+     * @return frames elapsed during the run
+     */
+    public long getFrames() {
+      return frames;
+    }
+
+    /**
+     * @return frames the EDT spent entirely on a batch or behind it, without repainting
+     */
+    public long getDroppedFrames() {
+      return droppedFrames;
+    }
+
+    /**
+     * @return largest number of clicks produced and waiting for the EDT
+     */
+    public int getMaxBacklog() {
+      return maxBacklog;
+    }
+
+    /**
+     * @return time between the post of a batch and its start on the EDT
+     */
+    public LatencyHistogram.Snapshot getEdtLag() {
+      return edtLag.snapshot();
+    }
+
+    /**
+     * @return time spent by the EDT on a batch
+     */
+    public LatencyHistogram.Snapshot getBatchTime() {
+      return batchTime.snapshot();
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getClicksPerSecond() {
+      return elapsedNanos == 0 ? 0 : clicks * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return accepted moves per second
+     */
+    public double getMovesPerSecond() {
+      return elapsedNanos == 0 ? 0 : (clicks - vetoed) * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s, %s: %d clicks (%d vetoed, %d restarts) in %d ms, %.0f clicks/s, %.0f moves/s%n"
+              + "  %d batches, %d/%d frames dropped, max backlog %d clicks%n  %s%n  %s",
+          grid, rate == UNTHROTTLED ? "unthrottled" : rate + " clicks/s", clicks, vetoed, restarts,
+          elapsedNanos / 1_000_000, getClicksPerSecond(), getMovesPerSecond(),
+          batches, droppedFrames, frames, maxBacklog, getEdtLag(), getBatchTime());
+    }
+  }
+}
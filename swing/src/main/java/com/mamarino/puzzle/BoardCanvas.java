@@ -0,0 +1,328 @@
+package com.mamarino.puzzle;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.beans.*;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.metrics.GameMetrics;
+
+/**
+ * The whole board in a single component, an alternative to the dim x dim {@link EightTile} buttons: no
+ * per-tile component, layout or border painting. It plays the part of every tile in the bean chain: a
+ * click fires the same vetoable "tileLabelProperty" change to the controller, and it listens to the
+ * SET_LABEL_EVT and HINT_EVT of every position (see {@link EightController#addTileListener(int, PropertyChangeListener)})
+ * and to the RESTART_EVT of the board.
+ * <p>
+ * Labels are kept a byte per slot, as in {@code BoardState}, so that boards of any size are painted.
+ * A change repaints the rectangle of its slot only, and each slot is drawn from a pre-rendered glyph
+ * (label and colour) cached for the current tile size. The colours are the ones of the tiles: grey hole,
+ * green tile in place, yellow misplaced tile, cyan hinted tile, red for ERR_DURATION ms after an error.
+ */
+public class BoardCanvas extends JComponent implements PropertyChangeListener {
+
+  public static final int DEFAULT_TILE_SIZE = 50;
+  public static final int DEFAULT_GAP = 6;
+
+  // glyph colours, by index
+  private static final Color[] COLOURS = {Color.GRAY, Color.GREEN, Color.YELLOW, Color.CYAN, Color.RED};
+  private static final int HOLE = 0;
+  private static final int IN_PLACE = 1;
+  private static final int MISPLACED = 2;
+  private static final int HINTED = 3;
+  private static final int ERROR = 4;
+
+  private final VetoableChangeSupport vChangeSupport = new VetoableChangeSupport(this);
+  private final int gap;
+  private Grid grid;
+  private byte[] labels;
+  // time (ms) until which a slot is shown in error, 0 when it is not
+  private long[] errorUntil;
+  // 1-based position of the hinted tile, -1 when none
+  private int hinted = -1;
+
+  // opaque glyphs by colour and label, for tiles of 'glyphSize' pixels on 'glyphBackground'
+  private BufferedImage[][] glyphs;
+  private int glyphSize;
+  private Color glyphBackground;
+  // error flashes: swing timers fire on the EDT, one timer serves every slot
+  private final Timer errorTimer = new Timer(Constants.ERR_DURATION, _e -> clearErrors());
+
+  public BoardCanvas() {
+    this(Constants.DEFAULT_DIM, DEFAULT_GAP);
+  }
+
+  /**
+   * @param dimension number of rows (and columns) of the board, until a RESTART_EVT of another size
+   * @param gap pixels between two tiles
+   */
+  public BoardCanvas(int dimension, int gap) {
+    this.gap = gap;
+    setGrid(Grid.of(dimension));
+    errorTimer.setRepeats(false);
+    setOpaque(true);
+
+    addMouseListener(new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        int position = positionAt(e.getX(), e.getY());
+        if (position > 0) click(position);
+      }
+    });
+  }
+
+  /**
+   * it requests to the controller that the tile in 'position' becomes the hole, as a tile click does
+   * @param position 1-based position of the tile
+   */
+  public void click(int position) {
+    int index = position - 1;
+    Pair<Integer> oldValue = new Pair<>(position, (int) labels[index]);
+    Pair<Integer> newValue = new Pair<>(position, grid.getHole());
+
+    try {
+      vChangeSupport.fireVetoableChange("tileLabelProperty", oldValue, newValue);
+      setLabel(position, grid.getHole());
+    } catch (PropertyVetoException e) {
+      // the veto is counted by the controller
+      showError(position);
+    }
+  }
+
+  /**
+   * @param position 1-based position
+   * @return label shown in 'position'
+   */
+  public int getLabel(int position) {
+    return labels[position - 1];
+  }
+
+  public Grid getGrid() {
+    return grid;
+  }
+
+  /**
+   * @param x horizontal coordinate in the component
+   * @param y vertical coordinate in the component
+   * @return 1-based position of the tile under the point, -1 for a gap or outside the board
+   */
+  public int positionAt(int x, int y) {
+    int pitch = tileSize() + gap;
+    if (x < 0 || y < 0) return -1;
+
+    int col = x / pitch;
+    int row = y / pitch;
+    if (col >= grid.getDimension() || row >= grid.getDimension()) return -1;
+    if (x % pitch >= tileSize() || y % pitch >= tileSize()) return -1;
+    return grid.index(row, col) + 1;
+  }
+
+  /**
+   * it shows the tile in red for ERR_DURATION ms; a repeated error restarts its flash
+   * @param position 1-based position of the tile
+   */
+  public void showError(int position) {
+    errorUntil[position - 1] = System.currentTimeMillis() + Constants.ERR_DURATION;
+    repaintSlot(position - 1);
+    if (!errorTimer.isRunning()) errorTimer.restart();
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    if (isPreferredSizeSet()) return super.getPreferredSize();
+
+    int side = grid.getDimension() * (DEFAULT_TILE_SIZE + gap) - gap;
+    return new Dimension(side, side);
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+    Color background = getBackground() != null ? getBackground() : Color.WHITE;
+    g.setColor(background);
+    g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+    int size = tileSize();
+    if (size <= 0) return;
+    if (glyphs == null || glyphSize != size || !background.equals(glyphBackground)) {
+      glyphs = new BufferedImage[COLOURS.length][grid.getSize() + 1];
+      glyphSize = size;
+      glyphBackground = background;
+    }
+
+    // only the slots in the dirty region are drawn
+    int pitch = size + gap;
+    int dimension = grid.getDimension();
+    int firstCol = Math.max(0, clip.x / pitch);
+    int lastCol = Math.min(dimension - 1, (clip.x + clip.width) / pitch);
+    int firstRow = Math.max(0, clip.y / pitch);
+    int lastRow = Math.min(dimension - 1, (clip.y + clip.height) / pitch);
+    long now = System.currentTimeMillis();
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int col = firstCol; col <= lastCol; col++) {
+        int index = grid.index(row, col);
+        long start = GameMetrics.start();
+        g.drawImage(glyph(colour(index, now), labels[index]), col * pitch, row * pitch, null);
+        GameMetrics.tileRepainted(start);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void addVetoableChangeListener(VetoableChangeListener listener) {
+    vChangeSupport.addVetoableChangeListener(listener);
+  }
+
+  @Override
+  public synchronized void removeVetoableChangeListener(VetoableChangeListener listener) {
+    vChangeSupport.removeVetoableChangeListener(listener);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void propertyChange(PropertyChangeEvent evt) {
+    switch (evt.getPropertyName()) {
+      case Constants.RESTART_EVT:
+        List<Integer> permutation = (List<Integer>) evt.getNewValue();
+        if (permutation.size() != grid.getSize()) {
+          setGrid(Grid.ofSize(permutation.size()));
+          revalidate();
+        }
+        for (int i = 0; i < labels.length; i++) labels[i] = permutation.get(i).byteValue();
+        repaint();
+
+        break;
+
+      case Constants.SET_LABEL_EVT:
+        // (x,y) x = position; y = label, -1 meaning an error on that position
+        Pair<Integer> clickedTileValue = (Pair<Integer>) evt.getNewValue();
+        int position = clickedTileValue.getX();
+        int label = clickedTileValue.getY();
+        if (position < 1 || position > labels.length) break;
+
+        if (label <= 0) showError(position);
+        else setLabel(position, label);
+
+        break;
+
+      case Constants.HINT_EVT:
+        // (old hinted position, new hinted position), -1 meaning none
+        int old = hinted;
+        hinted = (Integer) evt.getNewValue();
+        if (old > 0 && old <= labels.length) repaintSlot(old - 1);
+        if (hinted > 0 && hinted <= labels.length) repaintSlot(hinted - 1);
+
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void setGrid(Grid grid) {
+    this.grid = grid;
+    this.labels = new byte[grid.getSize()];
+    this.errorUntil = new long[grid.getSize()];
+    this.glyphs = null;
+    this.hinted = -1;
+  }
+
+  private void setLabel(int position, int label) {
+    // a new label ends the error flash, as a tile appearance update does
+    if (labels[position - 1] == label && errorUntil[position - 1] == 0) return;
+
+    labels[position - 1] = (byte) label;
+    errorUntil[position - 1] = 0;
+    repaintSlot(position - 1);
+  }
+
+  private int colour(int index, long now) {
+    int label = labels[index];
+    if (errorUntil[index] > now) return ERROR;
+    if (label == grid.getHole()) return HOLE;
+    if (hinted == index + 1) return HINTED;
+    return label == index + 1 ? IN_PLACE : MISPLACED;
+  }
+
+  private void clearErrors() {
+    long now = System.currentTimeMillis();
+    long next = Long.MAX_VALUE;
+
+    for (int i = 0; i < errorUntil.length; i++) {
+      if (errorUntil[i] == 0) continue;
+
+      if (errorUntil[i] <= now) {
+        errorUntil[i] = 0;
+        repaintSlot(i);
+      } else {
+        next = Math.min(next, errorUntil[i]);
+      }
+    }
+
+    // flashes started while this one was running end later
+    if (next != Long.MAX_VALUE) {
+      errorTimer.setInitialDelay((int) (next - now));
+      errorTimer.restart();
+    }
+  }
+
+  private void repaintSlot(int index) {
+    int pitch = tileSize() + gap;
+    repaint(grid.col(index) * pitch, grid.row(index) * pitch, tileSize(), tileSize());
+  }
+
+  private int tileSize() {
+    int side = Math.min(getWidth(), getHeight());
+    if (side <= 0) side = getPreferredSize().width;
+    return (side - gap * (grid.getDimension() - 1)) / grid.getDimension();
+  }
+
+  /**
+   * @return the pre-rendered tile, drawn on first use
+   */
+  private BufferedImage glyph(int colour, int label) {
+    BufferedImage glyph = glyphs[colour][label];
+    if (glyph != null) return glyph;
+
+    int size = glyphSize;
+    // the corners are filled with the background: an opaque image is a plain copy, with no blending
+    glyph = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = glyph.createGraphics();
+    try {
+      g.setColor(glyphBackground);
+      g.fillRect(0, 0, size, size);
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      g.setColor(COLOURS[colour]);
+      g.fillRoundRect(0, 0, size, size, size / 6, size / 6);
+
+      if (label != grid.getHole()) {
+        String text = String.valueOf(label);
+        Font font = getFont() != null ? getFont() : new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+        g.setFont(font.deriveFont(Font.BOLD, size * 0.4f));
+        FontMetrics metrics = g.getFontMetrics();
+        g.setColor(Color.BLACK);
+        g.drawString(text, (size - metrics.stringWidth(text)) / 2, (size - metrics.getHeight()) / 2 + metrics.getAscent());
+      }
+    } finally {
+      g.dispose();
+    }
+    glyphs[colour][label] = glyph;
+    return glyph;
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/GUIForms/JFrame.java to edit this template
+ */
+package com.mamarino.puzzle;
+
+import javax.swing.*;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.mamarino.puzzle.core.BoardGenerator;
+import com.mamarino.puzzle.core.DistanceTable;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.solver.SolutionCache;
+
+/**
+ *
+ * @author marco.marino
+ */
+public class EightBoard extends javax.swing.JFrame {
+
+    private static final int TILE_SIZE = 50;
+    private static final int TILE_GAP = 6;
+
+    private final List<EightTile> eightTiles = new ArrayList<>();
+    private final PropertyChangeSupport changeSupport = new PropertyChangeSupport(this);
+    private final int dimension;
+    private final BoardGenerator boardGenerator;
+    private final TileUpdateQueue tileUpdates = new TileUpdateQueue();
+    private final boolean painted;
+    // the whole board, in painted mode only
+    private BoardCanvas boardCanvas;
+
+    /**
+     * Creates new form EightBoard with the default 3x3 grid
+     */
+    public EightBoard() {
+        this(Constants.DEFAULT_DIM);
+    }
+
+    /**
+     * Creates new form EightBoard with a dimension x dimension grid
+     * @param dimension number of rows (and columns) of the grid
+     */
+    public EightBoard(int dimension) {
+        this(dimension, false);
+    }
+
+    /**
+     * Creates new form EightBoard with a dimension x dimension grid
+     * @param dimension number of rows (and columns) of the grid
+     * @param painted true -> the tiles are painted by a single {@link BoardCanvas}; false -> they are EightTile buttons
+     */
+    public EightBoard(int dimension, boolean painted) {
+        // fails fast on unsupported dimensions
+        this.dimension = Grid.of(dimension).getDimension();
+        this.painted = painted;
+        this.boardGenerator = new BoardGenerator(Grid.of(dimension));
+        initComponents();
+        initGame();
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    private void initGame() {
+        int size = dimension * dimension;
+        titleLabel.setText((size - 1) + "Puzzle");
+        tilesPanel.setPreferredSize(new java.awt.Dimension(
+                dimension * (TILE_SIZE + TILE_GAP) - TILE_GAP,
+                dimension * (TILE_SIZE + TILE_GAP) - TILE_GAP));
+
+        if (painted) initCanvas();
+        else initTiles(size);
+
+        // controller listens to EightBoard's property changes 
+        addPropertyChangeListener(eightController);
+
+        resetTilesPosition();
+
+        if (dimension == Constants.DEFAULT_DIM) loadDistanceTable();
+        // larger boards search their hints: a solution found once answers the rest of the game
+        else if (Grid.of(dimension).isPackable()) eightController.setSolutionCache(new SolutionCache(Grid.of(dimension)));
+
+        eightController.setText("START");
+        pack();
+    }
+
+    private void initTiles(int size) {
+        tilesPanel.setLayout(new java.awt.GridLayout(dimension, dimension, TILE_GAP, TILE_GAP));
+
+        for (int i = 0; i < size; i++) {
+            EightTile tile = new EightTile();
+
+            tile.setPosition(i + 1);
+            tile.setUpdateQueue(tileUpdates);
+
+            // the controller listens to this tile for a vetoable change
+            tile.addVetoableChangeListener(eightController);
+
+            // this tile is listening to new 'changeSupport' events to be fired
+            addPropertyChangeListener(tile);
+
+            // this tile listens to controller's label changes of its own position only
+            eightController.addTileListener(i + 1, tile);
+
+            tile.addActionListener(_e -> tile.onClick());
+
+            eightTiles.add(tile);
+            tilesPanel.add(tile);
+        }
+    }
+
+    /**
+     * one component plays every tile: it fires their vetoable changes and receives the changes of every position
+     */
+    private void initCanvas() {
+        boardCanvas = new BoardCanvas(dimension, TILE_GAP);
+        boardCanvas.addVetoableChangeListener(eightController);
+        addPropertyChangeListener(boardCanvas);
+        for (int i = 0; i < dimension * dimension; i++) eightController.addTileListener(i + 1, boardCanvas);
+
+        tilesPanel.setLayout(new java.awt.BorderLayout());
+        tilesPanel.add(boardCanvas, java.awt.BorderLayout.CENTER);
+    }
+
+    /**
+     * 3x3 hints become table lookups once the distance table has been mapped in background: computed
+     * and written to the tables directory on the first run only
+     */
+    private void loadDistanceTable() {
+        Thread loader = new Thread(() -> eightController.setDistanceTable(DistanceTable.loadDefault(DistanceTable.NO_FLIPS)),
+            "distance-table");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void resetTilesPosition() {
+        // only solvable boards are dealt
+        restart(boardGenerator.nextPermutation());
+    }
+
+    /**
+     * it deals the given board to the controller and the tiles, as the restart button does with a random one
+     * @param permutation labels of the board, by position
+     */
+    public void restart(List<Integer> permutation) {
+        changeSupport.firePropertyChange(
+                Constants.RESTART_EVT,
+                new ArrayList<>(),
+                permutation
+        );
+    }
+
+    public EightController getController() {
+        return eightController;
+    }
+
+    /**
+     * @return the component painting the whole board, null when the tiles are buttons
+     */
+    public BoardCanvas getCanvas() {
+        return boardCanvas;
+    }
+
+    /**
+     * @return the tiles, by position; empty when the board is painted by a {@link BoardCanvas}
+     */
+    public List<EightTile> getTiles() {
+        return Collections.unmodifiableList(eightTiles);
+    }
+
+    /**
+     * This method is called from within the constructor to initialize the form.
+     * WARNING: Do NOT modify this code. The content of this method is always
+     * regenerated by the Form Editor.
+     */
+    @SuppressWarnings("unchecked")
+    // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
+    private void initComponents() {
+
+        titleLabel = new javax.swing.JLabel();
+        tilesPanel = new javax.swing.JPanel();
+        eightController = new com.mamarino.puzzle.EightController();
+        restartButton = new javax.swing.JButton();
+        flipButton = new javax.swing.JButton();
+        hintButton = new javax.swing.JButton();
+
+        setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
+        setMinimumSize(null);
+        setSize(new java.awt.Dimension(211, 255));
+
+        titleLabel.setFont(new java.awt.Font("Segoe UI", 1, 18)); // NOI18N
+        titleLabel.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        titleLabel.setText("8Puzzle");
+
+        tilesPanel.setLayout(new java.awt.GridLayout(3, 3, 6, 6));
+
+        eightController.setText("eightController2");
+
+        restartButton.setFont(new java.awt.Font("Segoe UI", 0, 10)); // NOI18N
+        restartButton.setText("Restart");
+        restartButton.setBorderPainted(false);
+        restartButton.setMargin(new java.awt.Insets(2, 6, 2, 6));
+        restartButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                restartButtonActionPerformed(evt);
+            }
+        });
+
+        flipButton.setText("Flip");
+        flipButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                flipButtonActionPerformed(evt);
+            }
+        });
+
+        hintButton.setText("Hint");
+        hintButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                hintButtonActionPerformed(evt);
+            }
+        });
+
+        javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
+        getContentPane().setLayout(layout);
+        layout.setHorizontalGroup(
+            layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+            .addGroup(layout.createSequentialGroup()
+                .addGap(6, 6, 6)
+                .addComponent(titleLabel, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                .addContainerGap())
+            .addGroup(layout.createSequentialGroup()
+                .addGap(30, 30, 30)
+                .addComponent(tilesPanel, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                .addGap(31, 31, 31))
+            .addGroup(layout.createSequentialGroup()
+                .addGap(12, 12, 12)
+                .addComponent(eightController, javax.swing.GroupLayout.PREFERRED_SIZE, 44, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addGap(18, 18, 18)
+                .addComponent(restartButton, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                .addGap(18, 18, 18)
+                .addComponent(flipButton, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addGap(18, 18, 18)
+                .addComponent(hintButton, javax.swing.GroupLayout.PREFERRED_SIZE, 50, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addGap(31, 31, 31))
+        );
+        layout.setVerticalGroup(
+            layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+            .addGroup(layout.createSequentialGroup()
+                .addContainerGap()
+                .addComponent(titleLabel, javax.swing.GroupLayout.PREFERRED_SIZE, 28, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(tilesPanel, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                .addGap(18, 18, 18)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(eightController)
+                    .addComponent(restartButton)
+                    .addComponent(flipButton)
+                    .addComponent(hintButton))
+                .addContainerGap(8, Short.MAX_VALUE))
+        );
+
+        pack();
+    }// </editor-fold>//GEN-END:initComponents
+
+    private void restartButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_restartButtonActionPerformed
+        resetTilesPosition();
+    }//GEN-LAST:event_restartButtonActionPerformed
+
+    private void flipButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_flipButtonActionPerformed
+        changeSupport.firePropertyChange(
+                "flipEvent",
+                false,
+                true
+        );
+    }//GEN-LAST:event_flipButtonActionPerformed
+
+    private void hintButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_hintButtonActionPerformed
+        // the hint is computed away from the EDT and highlighted on the tile by a HINT_EVT
+        eightController.requestHint();
+    }//GEN-LAST:event_hintButtonActionPerformed
+
+    @Override
+    public void addPropertyChangeListener(PropertyChangeListener listener) {
+        if (changeSupport != null)
+            changeSupport.addPropertyChangeListener(listener);
+    }
+
+    @Override
+    public void removePropertyChangeListener(PropertyChangeListener listener) {
+        changeSupport.removePropertyChangeListener(listener);
+    }
+
+    /**
+     * @param args the command line arguments: the board dimension can be passed as first argument,
+     *             "painted" as second one to draw the board in a single component
+     */
+    public static void main(String args[]) {
+        // optional board dimension, f.i. 4 for the 15-puzzle
+        int dimension = args.length > 0 ? Integer.parseInt(args[0]) : Constants.DEFAULT_DIM;
+        boolean painted = args.length > 1 && args[1].equals("painted");
+
+        /* Set the Nimbus look and feel */
+        //<editor-fold defaultstate="collapsed" desc=" Look and feel setting code (optional) ">
+        /* If Nimbus (introduced in Java SE 6) is not available, stay with the default look and feel.
+         * For details see http://download.oracle.com/javase/tutorial/uiswing/lookandfeel/plaf.html 
+         */
+        try {
+            for (javax.swing.UIManager.LookAndFeelInfo info : javax.swing.UIManager.getInstalledLookAndFeels()) {
+                if ("Nimbus".equals(info.getName())) {
+                    javax.swing.UIManager.setLookAndFeel(info.getClassName());
+                    break;
+                }
+            }
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException |
+                 UnsupportedLookAndFeelException ex) {
+            java.util.logging.Logger.getLogger(EightBoard.class.getName()).log(java.util.logging.Level.SEVERE, null, ex);
+        }
+        //</editor-fold>
+        //</editor-fold>
+
+        /* Create and display the form */
+        java.awt.EventQueue.invokeLater(new Runnable() {
+            public void run() {
+                EightBoard board = new EightBoard(dimension, painted);
+                board.setVisible(true);
+                board.setResizable(false);
+            }
+        });
+    }
+
+    // Variables declaration - do not modify//GEN-BEGIN:variables
+    private com.mamarino.puzzle.EightController eightController;
+    private javax.swing.JButton flipButton;
+    private javax.swing.JButton hintButton;
+    private javax.swing.JButton restartButton;
+    private javax.swing.JPanel tilesPanel;
+    private javax.swing.JLabel titleLabel;
+    // End of variables declaration//GEN-END:variables
+}
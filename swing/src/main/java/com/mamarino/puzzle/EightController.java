@@ -0,0 +1,554 @@
+package com.mamarino.puzzle;
+
+import java.beans.IndexedPropertyChangeEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.beans.PropertyVetoException;
+import java.beans.VetoableChangeListener;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+
+import com.mamarino.puzzle.core.AtomicBoard;
+import com.mamarino.puzzle.core.BoardState;
+import com.mamarino.puzzle.core.BoardVersion;
+import com.mamarino.puzzle.core.DistanceTable;
+import com.mamarino.puzzle.core.GameEngine;
+import com.mamarino.puzzle.core.GameSnapshot;
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.core.PermutationFormat;
+import com.mamarino.puzzle.journal.MoveJournal;
+import com.mamarino.puzzle.metrics.GameMetrics;
+import com.mamarino.puzzle.metrics.MoveEvent;
+import com.mamarino.puzzle.metrics.RestartEvent;
+import com.mamarino.puzzle.solver.HintSearch;
+import com.mamarino.puzzle.solver.SolutionCache;
+
+/**
+ * Bean adapter of a {@link GameEngine}: it turns tile label changes into moves, vetoing the illegal
+ * ones, and the RESTART_EVT and FLIP_EVT of the board into restarts and flips, then tells the tiles
+ * what to show and the label what the status is
+ */
+public class EightController extends JLabel implements PropertyChangeListener, VetoableChangeListener {
+
+  // time budget of a hint computed in background, boards larger than 3x3 keep the best move found by then
+  private static final long BACKGROUND_HINT_MICROS = 50_000;
+
+  // hints requested through requestHint() are computed here, away from the EDT
+  private static final ExecutorService HINT_EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "hint-search");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final PropertyChangeSupport changes = new PropertyChangeSupport(this);
+  // tile listeners by 0-based position: a label change is routed to the tile at that position only
+  private PropertyChangeListener[] tileListeners = new PropertyChangeListener[0];
+  // rules of the game, created by the first RESTART_EVT
+  private GameEngine engine;
+  // optional audit trail of restarts, flips and accepted moves
+  private MoveJournal journal;
+  // optional O(1) hints on 3x3 boards; it may be set from a loader thread
+  private volatile DistanceTable distanceTable;
+  // searches of the calling thread (suggestNextMove) and of the hint thread (requestHint)
+  private HintSearch hintSearch;
+  private HintSearch backgroundHintSearch;
+  // optional cache of the solutions found by the hint searches, shared with other controllers
+  private volatile SolutionCache solutionCache;
+  // position of the tile currently hinted, -1 when none
+  private int hintedPosition = -1;
+
+  // optional board shared with other input sources (see share()); the engine then follows its versions
+  private AtomicBoard sharedBoard;
+  private final AtomicBoard.Listener sharedListener = version -> SwingUtilities.invokeLater(() -> applyShared(version));
+  // true while a shared version is being painted: the tile changes it causes are not moves
+  private boolean applyingShared;
+  // last version of the shared board applied to the engine
+  private long sharedVersion;
+
+  private Pair<Integer> clickedTileValue = new Pair<>(0, 0);
+  
+  public EightController() {}
+
+  /**
+   * it checks whether the move made is legal or not, it's being triggered whenever a tile is pressed
+   * then the controller has to check the move update the board accordingly
+   * @param evt a {@code PropertyChangeEvent} object describing the
+   *                event source and the property that has changed.
+   * @throws PropertyVetoException launched when the movement is not allowed
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public void vetoableChange(PropertyChangeEvent evt) throws PropertyVetoException {
+    // position, label
+    Pair<Integer> tileChangedLabel = (Pair<Integer>) evt.getNewValue();
+    Integer tileOldLabel = ((Pair<Integer>) evt.getOldValue()).getY();
+
+    if (applyingShared || !Objects.equals(tileChangedLabel.getY(), engine.getGrid().getHole())) {
+      // just change property without throwing an error
+      // as it is a consequence of an already approved move
+      return;
+    }
+
+    long start = GameMetrics.start();
+    MoveEvent event = new MoveEvent();
+    event.begin();
+
+    int position = tileChangedLabel.getX();
+    BoardVersion shared = sharedBoard == null ? null : sharedBoard.move(position);
+
+    // if the hole is not next to the tile then it means we cannot move that tile
+    boolean accepted = shared != null ? shared.isAccepted() : engine.move(position);
+    if (!accepted) {
+      if (shared != null) engine.reject(position);
+      setText(engine.getStatus());
+
+      // -1 means this tile is temporary on error state
+      // a new event is sent to the corresponding tile
+      setTileLabel(new Pair<>(position, -1));
+
+      GameMetrics.moveVetoed(start);
+      commit(event, position, false);
+      throw new PropertyVetoException("Cannot move this tile", evt);
+    }
+
+    if (shared != null) {
+      // the shared board may have moved on since the tiles were painted: the version tells what moved
+      // where; the engine itself is updated when the version is delivered
+      setText(GameEngine.OK);
+      setTileLabel(new Pair<>(shared.getPreviousHole(), BoardState.labelAt(shared.getPacked(), shared.getPreviousHole() - 1)));
+      GameMetrics.moveAccepted(start);
+      commit(event, position, true);
+      return;
+    }
+
+    setText(engine.getStatus());
+
+    // clicked tile becomes the new hole
+    Pair<Integer> tileChangePair = new Pair<>(engine.getLastPosition(), tileOldLabel);
+    setTileLabel(tileChangePair);
+
+    clearHint();
+    record(Constants.SET_LABEL_EVT, position);
+
+    GameMetrics.moveAccepted(start);
+    commit(event, position, true);
+  }
+
+  private void commit(MoveEvent event, int position, boolean accepted) {
+    if (!event.shouldCommit()) return;
+
+    event.position = position;
+    event.accepted = accepted;
+    event.solved = checkVictory();
+    event.commit();
+  }
+
+  /**
+   * controller initialization phase where the board is filled with a permutation
+   * @param permutation input permutation
+   */
+  private void initController(List<Integer> permutation) {
+    if (engine == null) engine = new GameEngine(permutation);
+    else engine.restart(permutation);
+    clearHint();
+  }
+
+  /**
+   * it lets other input sources (other controllers, bots, remote players) drive this game: every move,
+   * flip and restart is applied to 'shared' with a compare-and-set, and the board shown follows the
+   * versions of 'shared' in order, on the EDT. To be called on the EDT
+   * @param shared board shared with the other sources, null to play alone again from the current board
+   */
+  public void share(AtomicBoard shared) {
+    if (sharedBoard != null) sharedBoard.removeListener(sharedListener);
+    sharedBoard = shared;
+    if (shared == null) return;
+
+    // versions delivered from now on and already included in 'version' are skipped
+    shared.addListener(sharedListener);
+    BoardVersion version = shared.current();
+    if (engine == null || !engine.getGrid().equals(shared.getGrid())) {
+      initController(PermutationFormat.toList(version.getPacked(), shared.getGrid()));
+    }
+
+    paintShared(version);
+    engine.set(version.getPacked());
+    sharedVersion = version.getVersion();
+    clearHint();
+    if (checkVictory()) setText(GameEngine.WON);
+  }
+
+  public AtomicBoard getSharedBoard() {
+    return sharedBoard;
+  }
+
+  /**
+   * it brings the engine and the tiles to a version of the shared board; versions arrive in order
+   */
+  private void applyShared(BoardVersion version) {
+    if (version.getVersion() <= sharedVersion || sharedBoard == null) return;
+    sharedVersion = version.getVersion();
+
+    paintShared(version);
+    engine.apply(version);
+    switch (version.getChange()) {
+      case BoardVersion.RESTART:
+        record(Constants.RESTART_EVT, PermutationFormat.toList(version.getPacked(), engine.getGrid()));
+        break;
+      case BoardState.FLIP:
+        GameMetrics.flipped();
+        record(Constants.FLIP_EVT, null);
+        break;
+      default:
+        record(Constants.SET_LABEL_EVT, version.getChange());
+        break;
+    }
+    clearHint();
+
+    if (checkVictory()) setText(GameEngine.WON);
+  }
+
+  /**
+   * it paints the slots where the version differs from the engine board: the tiles of a move made here already are
+   */
+  private void paintShared(BoardVersion version) {
+    applyingShared = true;
+    try {
+      BoardState board = engine.getBoard();
+      for (int i = 0; i < board.getGrid().getSize(); i++) {
+        int label = BoardState.labelAt(version.getPacked(), i);
+        if (board.get(i + 1) != label) setTileLabel(new Pair<>(i + 1, label));
+      }
+    } finally {
+      applyingShared = false;
+    }
+  }
+
+  /**
+   * @return the whole state of the game: board, moves made, last tile label change and status text
+   */
+  public GameSnapshot snapshot() {
+    return GameSnapshot.of(engine.getBoard(), engine.getMoveCount(), clickedTileValue.getX(), clickedTileValue.getY(), getText());
+  }
+
+  /**
+   * it brings the game back to a snapshot without firing any controller event: neither the tiles nor
+   * the other listeners are notified, nor the journal; only the label text is set. It is meant for controllers without views (f.i. sessions
+   * moved between processes); a view must be refreshed by the caller
+   * @param snapshot state of the game
+   */
+  public void restore(GameSnapshot snapshot) {
+    if (engine == null) engine = new GameEngine(snapshot);
+    else engine.restore(snapshot);
+    clickedTileValue = new Pair<>(snapshot.getClickedPosition(), snapshot.getClickedLabel());
+    hintedPosition = -1;
+    setText(snapshot.getStatus());
+  }
+
+  /**
+   * @return accepted moves since the board was dealt
+   */
+  public long getMoveCount() {
+    return engine.getMoveCount();
+  }
+
+  /**
+   * it sets the tile label by firing a SET_LABEL_EVT. The event is delivered as an indexed change
+   * to the tile registered at that position (see {@link #addTileListener(int, PropertyChangeListener)}) and
+   * to the listeners registered for every change, which must check whether they are the tile to be
+   * changed or not by checking the tile value passed by the sending event
+   * @param newClickedTileValue pair (position, value) (f.i, (3, 8) means that tile in position 3 has label '8')
+   */
+  public void setTileLabel(Pair<Integer> newClickedTileValue) {
+    Pair<Integer> oldClickedTileValue = clickedTileValue;
+    clickedTileValue = newClickedTileValue;
+
+    fireTileLabel(oldClickedTileValue, newClickedTileValue);
+  }
+
+  private void fireTileLabel(Pair<Integer> oldValue, Pair<Integer> newValue) {
+    int index = newValue.getX() - 1;
+    if (index >= 0 && index < tileListeners.length && tileListeners[index] != null) {
+      tileListeners[index].propertyChange(
+          new IndexedPropertyChangeEvent(this, Constants.SET_LABEL_EVT, oldValue, newValue, index));
+    }
+
+    changes.firePropertyChange(Constants.SET_LABEL_EVT, oldValue, newValue);
+  }
+
+  /**
+   * controller is registered to events fired by the EightBoard class: RESTART_EVT and FLIP_EVT
+   * are being caught to handle restart and flip movements respectively
+   * @param evt A PropertyChangeEvent object describing the event source
+   *          and the property that has changed.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public void propertyChange(PropertyChangeEvent evt) {
+    switch (evt.getPropertyName()) {
+      case Constants.RESTART_EVT:
+        List<Integer> permutation = (List<Integer>) evt.getNewValue();
+        // the tiles already show the new board, which is applied when its version is delivered
+        if (sharedBoard != null && sharedBoard.getGrid().getSize() == permutation.size()) {
+          sharedBoard.restart(BoardState.pack(permutation));
+          break;
+        }
+
+        RestartEvent restart = new RestartEvent();
+        restart.begin();
+
+        initController(permutation);
+        record(Constants.RESTART_EVT, permutation);
+
+        GameMetrics.restarted();
+        if (restart.shouldCommit()) {
+          restart.size = permutation.size();
+          restart.lowerBound = engine.getEstimate();
+          restart.commit();
+        }
+
+        setText(engine.getStatus());
+        break;
+
+      case Constants.FLIP_EVT:
+        if (sharedBoard != null) {
+          sharedBoard.flip();
+          break;
+        }
+
+        // switch both position 1 and 2, only if the hole is in position 9
+        if (engine.flip()) {
+          clearHint();
+          GameMetrics.flipped();
+          record(Constants.FLIP_EVT, null);
+          if (checkVictory()) setText(GameEngine.WON);
+
+          BoardState board = engine.getBoard();
+          Pair<Integer> tile1 = new Pair<>(1, board.get(1));
+          Pair<Integer> tile2 = new Pair<>(2, board.get(2));
+
+          // dummy old values
+          fireTileLabel(new Pair<>(-1, -1), tile1);
+          fireTileLabel(new Pair<>(-1, -1), tile2);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * it records the current board as a restart first, so that a new journal (or one left on another
+   * board) follows the moves that come next
+   * @param journal journal recording every restart, flip and accepted move from now on, null to stop recording
+   */
+  public void setJournal(MoveJournal journal) {
+    this.journal = journal;
+    if (engine == null) return;
+
+    BoardState board = engine.getBoard();
+    Integer[] permutation = new Integer[engine.getGrid().getSize()];
+    for (int i = 0; i < permutation.length; i++) permutation[i] = board.get(i + 1);
+    record(Constants.RESTART_EVT, Arrays.asList(permutation));
+  }
+
+  public MoveJournal getJournal() {
+    return journal;
+  }
+
+  /**
+   * it records an event in the journal, if any. A journal that cannot be written, or that refuses the
+   * event because it is out of step with the board, is dropped, so that the game goes on without it
+   * @param event RESTART_EVT, FLIP_EVT or SET_LABEL_EVT (accepted move)
+   * @param value the permutation for RESTART_EVT, the position of the moved tile for SET_LABEL_EVT
+   */
+  @SuppressWarnings("unchecked")
+  private void record(String event, Object value) {
+    if (journal == null) return;
+
+    try {
+      switch (event) {
+        case Constants.RESTART_EVT:
+          journal.restart((List<Integer>) value);
+          break;
+        case Constants.FLIP_EVT:
+          journal.flip();
+          break;
+        default:
+          journal.move((Integer) value);
+          break;
+      }
+    } catch (IOException | RuntimeException e) {
+      GameMetrics.journalDropped(e);
+      journal = null;
+    }
+  }
+
+  /**
+   * @param distanceTable table making 3x3 hints an O(1) lookup, null to search them
+   */
+  public void setDistanceTable(DistanceTable distanceTable) {
+    this.distanceTable = distanceTable;
+  }
+
+  /**
+   * @param solutionCache cache answering the hints of boards already solved (by any controller sharing
+   *                      it) and storing the solutions found by the hint searches; null for none
+   */
+  public void setSolutionCache(SolutionCache solutionCache) {
+    this.solutionCache = solutionCache;
+  }
+
+  public SolutionCache getSolutionCache() {
+    return solutionCache;
+  }
+
+  /**
+   * it computes the best next move on the calling thread, within {@link HintSearch#DEFAULT_BUDGET_MICROS}:
+   * a solution cache hit, a table lookup on 3x3 boards once a distance table is set, an anytime search otherwise
+   * @return position of the tile to be clicked; -1 when no board has been dealt yet, the board is solved,
+   *         it cannot be solved without flips or it is larger than 4x4
+   */
+  public int suggestNextMove() {
+    if (engine == null || !engine.getGrid().isPackable()) return -1;
+
+    hintSearch = hintSearch(hintSearch, HintSearch.DEFAULT_BUDGET_MICROS);
+    return bestMove(hintSearch, engine.getPacked());
+  }
+
+  /**
+   * it computes the best next move away from the EDT; the HINT_EVT carrying its position is then fired
+   * on the EDT to the hinted tile, to the tile hinted before (if any) and to the other listeners.
+   * A hint for a board which has changed in the meantime is dropped
+   */
+  public void requestHint() {
+    if (engine == null || !engine.getGrid().isPackable()) return;
+
+    long packed = engine.getPacked();
+    backgroundHintSearch = hintSearch(backgroundHintSearch, BACKGROUND_HINT_MICROS);
+    HintSearch search = backgroundHintSearch;
+
+    HINT_EXECUTOR.execute(() -> {
+      int position = bestMove(search, packed);
+      SwingUtilities.invokeLater(() -> {
+        if (engine.getGrid().isPackable() && engine.getPacked() == packed) fireHint(position);
+      });
+    });
+  }
+
+  /**
+   * it looks the board up in the solution cache first, and caches the solution of a search which found one
+   */
+  private int bestMove(HintSearch search, long packed) {
+    SolutionCache cache = solutionCache;
+    if (cache == null || !cache.getGrid().equals(search.getGrid())) return search.bestMove(packed);
+
+    int[] moves = cache.get(packed);
+    if (moves != null) return moves.length == 0 ? -1 : moves[0];
+
+    int position = search.bestMove(packed);
+    int[] solution = search.getSolution();
+    if (solution != null) cache.put(packed, solution);
+    return position;
+  }
+
+  /**
+   * @return the search for the current grid and distance table, 'search' itself when it still fits
+   */
+  private HintSearch hintSearch(HintSearch search, long budgetMicros) {
+    Grid grid = engine.getGrid();
+    DistanceTable table = grid.equals(Grid.DEFAULT) ? distanceTable : null;
+    if (search != null && search.getGrid().equals(grid) && search.getTable() == table) return search;
+
+    search = new HintSearch(grid, table);
+    search.setTimeBudget(budgetMicros);
+    return search;
+  }
+
+  private void clearHint() {
+    if (hintedPosition != -1) fireHint(-1);
+  }
+
+  private void fireHint(int position) {
+    int old = hintedPosition;
+    hintedPosition = position;
+
+    for (int hinted : new int[] {old, position}) {
+      int index = hinted - 1;
+      if (index >= 0 && index < tileListeners.length && tileListeners[index] != null) {
+        tileListeners[index].propertyChange(new IndexedPropertyChangeEvent(this, Constants.HINT_EVT, old, position, index));
+      }
+      if (old == position) break;
+    }
+
+    changes.firePropertyChange(Constants.HINT_EVT, old, position);
+  }
+
+  public boolean checkVictory() {
+    return engine.isSolved();
+  }
+
+  /**
+   * @return number of tiles (hole excluded) which are not in their goal position
+   */
+  public int getMisplacedTiles() {
+    return engine.getMisplaced();
+  }
+
+  /**
+   * @return sum of the distances of each tile from its goal position
+   */
+  public int getManhattanDistance() {
+    return engine.getManhattan();
+  }
+
+  /**
+   * @return lower bound of the moves left to the goal without flips (manhattan distance plus linear conflicts)
+   */
+  public int getDistanceLowerBound() {
+    return engine.getEstimate();
+  }
+
+  /**
+   * @return packed value of the current board (see {@link BoardState#getPacked()})
+   */
+  public long getPackedBoard() {
+    return engine.getPacked();
+  }
+
+  public void addPropertyChangeListener(PropertyChangeListener listener) {
+    if (changes != null)
+      this.changes.addPropertyChangeListener(listener);
+  }
+
+  public void removePropertyChangeListener(PropertyChangeListener listener) {
+    this.changes.removePropertyChangeListener(listener);
+  }
+
+  /**
+   * it registers the listener of a single tile: it only receives the SET_LABEL_EVT events of its position
+   * @param position 1-based position of the tile
+   * @param listener tile listener, it replaces the one already registered at that position
+   */
+  public void addTileListener(int position, PropertyChangeListener listener) {
+    if (position <= 0) throw new IllegalArgumentException("Invalid tile position " + position + ".");
+    if (position > tileListeners.length) tileListeners = Arrays.copyOf(tileListeners, position);
+    tileListeners[position - 1] = listener;
+  }
+
+  /**
+   * @param position 1-based position of the tile
+   */
+  public void removeTileListener(int position) {
+    if (position > 0 && position <= tileListeners.length) tileListeners[position - 1] = null;
+  }
+
+}
\ No newline at end of file
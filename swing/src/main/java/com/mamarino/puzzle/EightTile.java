@@ -6,18 +6,32 @@ import java.util.List;
 import java.util.Objects;
 
 import javax.swing.JButton;
+import javax.swing.Timer;
+
+import com.mamarino.puzzle.core.Grid;
+import com.mamarino.puzzle.metrics.GameMetrics;
 
 public class EightTile extends JButton implements PropertyChangeListener {
 
   private Integer position;
   private Integer label;
+  // label of the hole, it depends on the board dimension
+  private Integer hole = Constants.HOLE;
 
   private final VetoableChangeSupport vChangeSupport = new VetoableChangeSupport(this);
+  // when set, appearance updates are coalesced with the ones of the other tiles of the board
+  private TileUpdateQueue updateQueue;
+  // whether the tile is the one suggested by the last HINT_EVT
+  private boolean hinted;
+  // error flash: swing timers share a single timer thread and fire on the EDT
+  private final Timer errorTimer = new Timer(Constants.ERR_DURATION, _e -> updateAppearance());
 
   public EightTile() {
+    errorTimer.setRepeats(false);
   }
 
   public EightTile(Integer position, Integer label) {
+    this();
     this.label = label;
     this.position = position;
     updateAppearance();
@@ -30,7 +44,7 @@ public class EightTile extends JButton implements PropertyChangeListener {
     if (vChangeSupport == null)
       return;
 
-    setLabel(Constants.HOLE);
+    setLabel(hole);
   }
 
   /**
@@ -54,10 +68,12 @@ public class EightTile extends JButton implements PropertyChangeListener {
       );
 
       this.label = newLabel;
+      // a new label ends the error flash
+      errorTimer.stop();
       updateAppearance();
     } catch (PropertyVetoException e) {
+      // the veto is counted by the controller
       showError();
-      System.out.println("VetoExc: " + e.getMessage());
     }
   }
 
@@ -66,9 +82,33 @@ public class EightTile extends JButton implements PropertyChangeListener {
     this.position = position;
   }
 
+  /**
+   * @param updateQueue queue refreshing the tile on the EDT, null to refresh it as soon as it changes
+   */
+  public void setUpdateQueue(TileUpdateQueue updateQueue) {
+    this.updateQueue = updateQueue;
+  }
+
   private void updateAppearance() {
-    if (Objects.equals(label, Constants.HOLE)) {
-      System.out.println("setting " + position + " as HOLE");
+    if (updateQueue != null) updateQueue.invalidate(this);
+    else refreshAppearance();
+  }
+
+  void refreshAppearance() {
+    long start = GameMetrics.start();
+    paintLabel();
+    GameMetrics.tileRepainted(start);
+  }
+
+  private void paintLabel() {
+    // a refresh queued before the error (or a hint) does not cut the flash short
+    if (errorTimer.isRunning()) {
+      setBackground(Color.RED);
+      setText(Objects.equals(label, hole) ? "" : String.valueOf(label));
+      return;
+    }
+
+    if (Objects.equals(label, hole)) {
       setBackground(Color.GRAY);
       setText("");
       return;
@@ -76,6 +116,11 @@ public class EightTile extends JButton implements PropertyChangeListener {
 
     setText(String.valueOf(label));
 
+    if (hinted) {
+      setBackground(Color.CYAN);
+      return;
+    }
+
     if (Objects.equals(label, position)) {
       setBackground(Color.GREEN);
       return;
@@ -84,17 +129,12 @@ public class EightTile extends JButton implements PropertyChangeListener {
     setBackground(Color.YELLOW);
   }
 
+  /**
+   * it shows the tile in red for ERR_DURATION ms; a repeated error restarts the running flash
+   */
   public void showError() {
-    System.out.println("Showing error");
     setBackground(Color.RED);
-    new java.util.Timer().schedule(
-        new java.util.TimerTask() {
-          @Override
-          public void run() {
-            updateAppearance();
-          }
-        },
-        Constants.ERR_DURATION);
+    errorTimer.restart();
   }
 
   public Pair<Integer> getValue() {
@@ -117,7 +157,9 @@ public class EightTile extends JButton implements PropertyChangeListener {
     switch (evt.getPropertyName()) {
       case Constants.RESTART_EVT:
         List<Integer> permutation = (List<Integer>) evt.getNewValue();
-          this.label = permutation.get(position - 1);
+        this.hole = Grid.ofSize(permutation.size()).getHole();
+        this.label = permutation.get(position - 1);
+        errorTimer.stop();
         updateAppearance();
 
         break;
@@ -133,6 +175,13 @@ public class EightTile extends JButton implements PropertyChangeListener {
           setLabel(eventTileLabel);
 
         break;
+
+      case Constants.HINT_EVT:
+        // (old hinted position, new hinted position), -1 meaning none
+        hinted = Objects.equals(evt.getNewValue(), position);
+        updateAppearance();
+
+        break;
       default:
         break;
     }
@@ -0,0 +1,38 @@
+package com.mamarino.puzzle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Coalesces the appearance updates of the tiles of a board: the tiles changed by a move, a flip or
+ * a restart are marked dirty and refreshed together by a single task posted on the EDT, whatever
+ * the thread that changed them.
+ */
+public class TileUpdateQueue {
+
+  private final List<EightTile> dirtyTiles = new ArrayList<>();
+  private final Runnable flush = this::flush;
+
+  /**
+   * it marks the tile dirty; the first dirty tile of a batch schedules the refresh
+   * @param tile tile whose appearance must be refreshed
+   */
+  public synchronized void invalidate(EightTile tile) {
+    if (dirtyTiles.contains(tile)) return;
+
+    dirtyTiles.add(tile);
+    if (dirtyTiles.size() == 1) SwingUtilities.invokeLater(flush);
+  }
+
+  private void flush() {
+    EightTile[] tiles;
+    synchronized (this) {
+      tiles = dirtyTiles.toArray(new EightTile[0]);
+      dirtyTiles.clear();
+    }
+
+    for (EightTile tile : tiles) tile.refreshAppearance();
+  }
+}